@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Generates the synthetic documents used by the benchmarks. A document is a <code>feed</code> root element
+ * containing a sequence of <code>record</code> elements:
+ *
+ * <pre>
+ * &lt;record id="0" type="t0" version="1" lang="en" checksum="0"&gt;
+ *   &lt;name&gt;record-0&lt;/name&gt;
+ *   &lt;value&gt;0&lt;/value&gt;
+ *   &lt;flag&gt;true&lt;/flag&gt;
+ *   &lt;description&gt;...&lt;/description&gt;
+ *   &lt;tags&gt;&lt;tag&gt;a&lt;/tag&gt;&lt;tag&gt;b&lt;/tag&gt;&lt;tag&gt;c&lt;/tag&gt;&lt;/tags&gt;
+ * &lt;/record&gt;
+ * </pre>
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public enum Documents
+{
+
+   /** About the size of the <code>portlet-application.xml</code> test descriptor. */
+   SMALL(3),
+
+   /** A few megabytes. */
+   MEDIUM(10000),
+
+   /** A few hundred megabytes, the record count can be changed with the <code>staxnav.bench.large</code> property. */
+   LARGE(Integer.getInteger("staxnav.bench.large", 1000000));
+
+   /** The number of elements in a record. */
+   public static final int RECORD_ELEMENTS = 9;
+
+   /** . */
+   private final int records;
+
+   Documents(int records)
+   {
+      this.records = records;
+   }
+
+   public int getRecords()
+   {
+      return records;
+   }
+
+   /**
+    * Returns the number of elements of the document.
+    *
+    * @return the element count
+    */
+   public int getElements()
+   {
+      return 1 + records * RECORD_ELEMENTS;
+   }
+
+   /**
+    * Returns true when the document should be kept on disk rather than in memory.
+    *
+    * @return true for file backed documents
+    */
+   public boolean isFile()
+   {
+      return this == LARGE;
+   }
+
+   public byte[] toBytes() throws IOException
+   {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      write(out);
+      return out.toByteArray();
+   }
+
+   public File toFile() throws IOException
+   {
+      File file = File.createTempFile("staxnav-" + name().toLowerCase(), ".xml");
+      file.deleteOnExit();
+      OutputStream out = new FileOutputStream(file);
+      try
+      {
+         write(out);
+      }
+      finally
+      {
+         out.close();
+      }
+      return file;
+   }
+
+   private void write(OutputStream out) throws IOException
+   {
+      Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"), 64 * 1024);
+      writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<feed>\n");
+      for (int i = 0;i < records;i++)
+      {
+         writer.write("  <record id=\"");
+         writer.write(Integer.toString(i));
+         writer.write("\" type=\"t");
+         writer.write(Integer.toString(i % 4));
+         writer.write("\" version=\"1\" lang=\"en\" checksum=\"");
+         writer.write(Integer.toHexString(i * 0x9E3779B1));
+         writer.write("\">\n    <name>record-");
+         writer.write(Integer.toString(i));
+         writer.write("</name>\n    <value>");
+         writer.write(Integer.toString((i * 31) % 100000));
+         writer.write("</value>\n    <flag>");
+         writer.write(Boolean.toString(i % 2 == 0));
+         writer.write("</flag>\n    <description>Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut labore et dolore magna aliqua</description>\n");
+         writer.write("    <tags><tag>a</tag><tag>b</tag><tag>c</tag></tags>\n  </record>\n");
+      }
+      writer.write("</feed>\n");
+      writer.flush();
+   }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav.benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The document and the parser a benchmark runs against, the benchmark matrix is the cartesian product
+ * of the {@link Parser} and {@link Documents} values.
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+public class Input
+{
+
+   @Param({"WOODSTOX", "JDK"})
+   public Parser parser;
+
+   @Param({"SMALL", "MEDIUM", "LARGE"})
+   public Documents document;
+
+   /** . */
+   private XMLInputFactory factory;
+
+   /** . */
+   private byte[] bytes;
+
+   /** . */
+   private File file;
+
+   @Setup
+   public void setUp() throws Exception
+   {
+      factory = parser.createFactory();
+      if (document.isFile())
+      {
+         file = document.toFile();
+      }
+      else
+      {
+         bytes = document.toBytes();
+      }
+   }
+
+   /**
+    * Opens a new stream reader on the document, the caller is responsible for closing it.
+    *
+    * @return the stream reader
+    * @throws IOException any io exception
+    * @throws XMLStreamException any stream exception
+    */
+   public XMLStreamReader open() throws IOException, XMLStreamException
+   {
+      InputStream in;
+      if (file != null)
+      {
+         in = new BufferedInputStream(new FileInputStream(file), 64 * 1024);
+      }
+      else
+      {
+         in = new ByteArrayInputStream(bytes);
+      }
+      return factory.createXMLStreamReader(in);
+   }
+}
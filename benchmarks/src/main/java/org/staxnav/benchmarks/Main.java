@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Runs the benchmarks with the GC profiler and reports the throughput and the bytes allocated per document
+ * element. Any argument is handled as a JMH command line option, for instance
+ * <code>java -jar benchmarks.jar -p document=SMALL,MEDIUM NavigatorBenchmark.fork</code>.
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public class Main
+{
+
+   public static void main(String[] args) throws Exception
+   {
+      Options options = new OptionsBuilder().
+         parent(new CommandLineOptions(args)).
+         addProfiler(GCProfiler.class).
+         build();
+      Collection<RunResult> results = new Runner(options).run();
+
+      //
+      System.out.println();
+      System.out.printf("%-36s %-9s %-7s %16s %16s %14s%n", "Benchmark", "Parser", "Size", "ops/s", "B/op", "B/element");
+      for (RunResult result : results)
+      {
+         String benchmark = result.getParams().getBenchmark();
+         benchmark = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1);
+         Documents document = Documents.valueOf(result.getParams().getParam("document"));
+         double allocated = Double.NaN;
+         for (Map.Entry<String, Result> secondary : result.getSecondaryResults().entrySet())
+         {
+            if (secondary.getKey().endsWith("gc.alloc.rate.norm"))
+            {
+               allocated = secondary.getValue().getScore();
+            }
+         }
+         System.out.printf("%-36s %-9s %-7s %16.3f %16.1f %14.2f%n",
+            benchmark,
+            result.getParams().getParam("parser"),
+            document,
+            result.getPrimaryResult().getScore(),
+            allocated,
+            allocated / document.getElements());
+      }
+   }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.staxnav.Axis;
+import org.staxnav.Naming;
+import org.staxnav.StaxNavigator;
+import org.staxnav.StaxNavigatorFactory;
+import org.staxnav.ValueType;
+
+import javax.xml.stream.XMLStreamReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the navigator over a whole document, each benchmark has a counterpart with the same name in
+ * {@link RawStaxBenchmark} that performs the same work with a hand written {@link XMLStreamReader} loop.
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NavigatorBenchmark
+{
+
+   /** . */
+   private static final Naming<String> NAMING = new Naming.Local();
+
+   @Benchmark
+   public int self(Input input) throws Exception
+   {
+      XMLStreamReader stream = input.open();
+      try
+      {
+         StaxNavigator<String> nav = StaxNavigatorFactory.create(NAMING, stream);
+         int count = 0;
+         if (nav.child("record"))
+         {
+            do
+            {
+               if (nav.navigate(Axis.SELF, "record"))
+               {
+                  count++;
+               }
+            }
+            while (nav.navigate(Axis.FOLLOWING_SIBLING, "record"));
+         }
+         return count;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   @Benchmark
+   public int child(Input input) throws Exception
+   {
+      XMLStreamReader stream = input.open();
+      try
+      {
+         StaxNavigator<String> nav = StaxNavigatorFactory.create(NAMING, stream);
+         int count = 0;
+         while (nav.navigate(Axis.FOLLOWING, "record"))
+         {
+            if (nav.navigate(Axis.CHILD, "value"))
+            {
+               count++;
+            }
+         }
+         return count;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   @Benchmark
+   public int next(Input input) throws Exception
+   {
+      XMLStreamReader stream = input.open();
+      try
+      {
+         StaxNavigator<String> nav = StaxNavigatorFactory.create(NAMING, stream);
+         int count = 1;
+         while (nav.navigate(Axis.NEXT) != null)
+         {
+            count++;
+         }
+         return count;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   @Benchmark
+   public int followingSibling(Input input) throws Exception
+   {
+      XMLStreamReader stream = input.open();
+      try
+      {
+         StaxNavigator<String> nav = StaxNavigatorFactory.create(NAMING, stream);
+         int count = 0;
+         if (nav.child("record"))
+         {
+            count++;
+            while (nav.navigate(Axis.FOLLOWING_SIBLING, "record"))
+            {
+               count++;
+            }
+         }
+         return count;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   @Benchmark
+   public int following(Input input) throws Exception
+   {
+      XMLStreamReader stream = input.open();
+      try
+      {
+         StaxNavigator<String> nav = StaxNavigatorFactory.create(NAMING, stream);
+         int count = 0;
+         while (nav.navigate(Axis.FOLLOWING, "tag"))
+         {
+            count++;
+         }
+         return count;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   @Benchmark
+   public int fork(Input input) throws Exception
+   {
+      XMLStreamReader stream = input.open();
+      try
+      {
+         StaxNavigator<String> nav = StaxNavigatorFactory.create(NAMING, stream);
+         int count = 0;
+         if (nav.child("record"))
+         {
+            for (StaxNavigator<String> record : nav.fork(Axis.FOLLOWING_SIBLING, "record"))
+            {
+               if (record.child("value"))
+               {
+                  count++;
+               }
+            }
+         }
+         return count;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   @Benchmark
+   public int forkStreaming(Input input) throws Exception
+   {
+      XMLStreamReader stream = input.open();
+      try
+      {
+         StaxNavigator<String> nav = StaxNavigatorFactory.create(NAMING, stream);
+         int count = 0;
+         if (nav.child("record"))
+         {
+            for (StaxNavigator<String> record : nav.forkStreaming(Axis.FOLLOWING_SIBLING, "record"))
+            {
+               if (record.child("value"))
+               {
+                  count++;
+               }
+            }
+         }
+         return count;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   @Benchmark
+   public int find(Input input) throws Exception
+   {
+      XMLStreamReader stream = input.open();
+      try
+      {
+         StaxNavigator<String> nav = StaxNavigatorFactory.create(NAMING, stream);
+         int count = 0;
+         while (nav.find("value"))
+         {
+            count++;
+            if (nav.next() == null)
+            {
+               break;
+            }
+         }
+         return count;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   @Benchmark
+   public int descendant(Input input) throws Exception
+   {
+      XMLStreamReader stream = input.open();
+      try
+      {
+         StaxNavigator<String> nav = StaxNavigatorFactory.create(NAMING, stream);
+         int count = 0;
+         if (nav.child("record"))
+         {
+            do
+            {
+               StaxNavigator<String> record = nav.fork();
+               if (record.descendant("tag") >= 0)
+               {
+                  count++;
+               }
+            }
+            while (nav.sibling("record"));
+         }
+         return count;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   @Benchmark
+   public int getContent(Input input) throws Exception
+   {
+      XMLStreamReader stream = input.open();
+      try
+      {
+         StaxNavigator<String> nav = StaxNavigatorFactory.create(NAMING, stream);
+         int length = 0;
+         while (nav.navigate(Axis.NEXT) != null)
+         {
+            String content = nav.getContent();
+            if (content != null)
+            {
+               length += content.length();
+            }
+         }
+         return length;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   @Benchmark
+   public int parseContent(Input input) throws Exception
+   {
+      XMLStreamReader stream = input.open();
+      try
+      {
+         StaxNavigator<String> nav = StaxNavigatorFactory.create(NAMING, stream);
+         int sum = 0;
+         while (nav.navigate(Axis.FOLLOWING, "value"))
+         {
+            sum += nav.parseContent(ValueType.INTEGER);
+         }
+         return sum;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   @Benchmark
+   public int parseInt(Input input) throws Exception
+   {
+      XMLStreamReader stream = input.open();
+      try
+      {
+         StaxNavigator<String> nav = StaxNavigatorFactory.create(NAMING, stream);
+         int sum = 0;
+         while (nav.navigate(Axis.FOLLOWING, "value"))
+         {
+            sum += nav.parseInt();
+         }
+         return sum;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The baseline of {@link NavigatorBenchmark}: each benchmark performs the same work than the navigator benchmark
+ * of the same name with a hand written {@link XMLStreamReader} loop.
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RawStaxBenchmark
+{
+
+   @Benchmark
+   public int self(Input input) throws Exception
+   {
+      return records(input);
+   }
+
+   @Benchmark
+   public int child(Input input) throws Exception
+   {
+      XMLStreamReader stream = input.open();
+      try
+      {
+         int count = 0;
+         int depth = 0;
+         int recordDepth = -1;
+         while (stream.hasNext())
+         {
+            int type = stream.next();
+            if (type == XMLStreamConstants.START_ELEMENT)
+            {
+               depth++;
+               String name = stream.getLocalName();
+               if (recordDepth == -1 && "record".equals(name))
+               {
+                  recordDepth = depth;
+               }
+               else if (recordDepth != -1 && depth == recordDepth + 1 && "value".equals(name))
+               {
+                  count++;
+                  recordDepth = -1;
+               }
+            }
+            else if (type == XMLStreamConstants.END_ELEMENT)
+            {
+               if (depth == recordDepth)
+               {
+                  recordDepth = -1;
+               }
+               depth--;
+            }
+         }
+         return count;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   @Benchmark
+   public int next(Input input) throws Exception
+   {
+      XMLStreamReader stream = input.open();
+      try
+      {
+         int count = 0;
+         while (stream.hasNext())
+         {
+            if (stream.next() == XMLStreamConstants.START_ELEMENT)
+            {
+               count++;
+            }
+         }
+         return count;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   @Benchmark
+   public int followingSibling(Input input) throws Exception
+   {
+      return records(input);
+   }
+
+   @Benchmark
+   public int following(Input input) throws Exception
+   {
+      return count(input, "tag");
+   }
+
+   @Benchmark
+   public int fork(Input input) throws Exception
+   {
+      return child(input);
+   }
+
+   @Benchmark
+   public int forkStreaming(Input input) throws Exception
+   {
+      return child(input);
+   }
+
+   @Benchmark
+   public int find(Input input) throws Exception
+   {
+      return count(input, "value");
+   }
+
+   @Benchmark
+   public int descendant(Input input) throws Exception
+   {
+      XMLStreamReader stream = input.open();
+      try
+      {
+         int count = 0;
+         int depth = 0;
+         boolean found = true;
+         while (stream.hasNext())
+         {
+            int type = stream.next();
+            if (type == XMLStreamConstants.START_ELEMENT)
+            {
+               depth++;
+               if (depth == 2)
+               {
+                  found = false;
+               }
+               else if (!found && depth > 2 && "tag".equals(stream.getLocalName()))
+               {
+                  found = true;
+                  count++;
+               }
+            }
+            else if (type == XMLStreamConstants.END_ELEMENT)
+            {
+               depth--;
+            }
+         }
+         return count;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   @Benchmark
+   public int getContent(Input input) throws Exception
+   {
+      XMLStreamReader stream = input.open();
+      try
+      {
+         int length = 0;
+         String text = null;
+         boolean simple = false;
+         while (stream.hasNext())
+         {
+            int type = stream.next();
+            if (type == XMLStreamConstants.START_ELEMENT)
+            {
+               text = null;
+               simple = true;
+            }
+            else if (type == XMLStreamConstants.CHARACTERS)
+            {
+               if (simple)
+               {
+                  text = text == null ? stream.getText() : text + stream.getText();
+               }
+            }
+            else if (type == XMLStreamConstants.END_ELEMENT)
+            {
+               if (simple && text != null)
+               {
+                  length += text.length();
+               }
+               simple = false;
+            }
+         }
+         return length;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   @Benchmark
+   public int parseContent(Input input) throws Exception
+   {
+      XMLStreamReader stream = input.open();
+      try
+      {
+         int sum = 0;
+         while (stream.hasNext())
+         {
+            if (stream.next() == XMLStreamConstants.START_ELEMENT && "value".equals(stream.getLocalName()))
+            {
+               sum += Integer.parseInt(stream.getElementText().trim());
+            }
+         }
+         return sum;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   @Benchmark
+   public int parseInt(Input input) throws Exception
+   {
+      return parseContent(input);
+   }
+
+   private int records(Input input) throws Exception
+   {
+      XMLStreamReader stream = input.open();
+      try
+      {
+         int count = 0;
+         int depth = 0;
+         while (stream.hasNext())
+         {
+            int type = stream.next();
+            if (type == XMLStreamConstants.START_ELEMENT)
+            {
+               if (++depth == 2 && "record".equals(stream.getLocalName()))
+               {
+                  count++;
+               }
+            }
+            else if (type == XMLStreamConstants.END_ELEMENT)
+            {
+               depth--;
+            }
+         }
+         return count;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   private int count(Input input, String localName) throws Exception
+   {
+      XMLStreamReader stream = input.open();
+      try
+      {
+         int count = 0;
+         while (stream.hasNext())
+         {
+            if (stream.next() == XMLStreamConstants.START_ELEMENT && localName.equals(stream.getLocalName()))
+            {
+               count++;
+            }
+         }
+         return count;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+}
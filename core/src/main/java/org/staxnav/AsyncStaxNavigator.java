@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.staxnav;
+
+/**
+ * <p>A navigator fed with chunks of bytes, for instance read from a non blocking channel. The navigation operations
+ * never block waiting for input, instead they return {@link Status#NEED_INPUT} and leave the navigator unchanged,
+ * the operation should be invoked again after more input is fed.</p>
+ *
+ * <p>The navigator reads a non blocking stream that returns the {@link #EVENT_INCOMPLETE} event when it needs
+ * more input, such as the Aalto <code>AsyncXMLStreamReader</code>. The position of the navigator is available with
+ * {@link #getNavigator()}, the methods of that navigator that read the stream throw an
+ * {@link IncompleteInputException} when the input is not available yet.</p>
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ * @param <N> the name type
+ */
+public interface AsyncStaxNavigator<N>
+{
+
+   /** The event of a stream that needs more input, the value of Aalto <code>AsyncXMLStreamReader.EVENT_INCOMPLETE</code>. */
+   int EVENT_INCOMPLETE = 257;
+
+   /**
+    * The status of a navigation operation.
+    */
+   enum Status
+   {
+
+      /** The operation completed and found an element. */
+      FOUND,
+
+      /** The operation completed without finding an element. */
+      NOT_FOUND,
+
+      /** The operation needs more input. */
+      NEED_INPUT
+
+   }
+
+   /**
+    * Returns true when the stream consumed the input fed so far and needs more input.
+    *
+    * @return true when more input is needed
+    */
+   boolean needsInput();
+
+   /**
+    * Feeds bytes to the stream, the array must not be modified until more input is needed.
+    *
+    * @param bytes the bytes
+    * @param offset the offset of the first byte
+    * @param length the number of bytes
+    * @throws NullPointerException if the bytes argument is null
+    * @throws IllegalStateException if no input is needed or the end of input was signaled
+    * @throws StaxNavException any StaxNavException
+    */
+   void feed(byte[] bytes, int offset, int length) throws NullPointerException, IllegalStateException, StaxNavException;
+
+   /**
+    * Signals the end of the input, the operations do not need input anymore.
+    *
+    * @throws IllegalStateException if the end of input was already signaled
+    * @throws StaxNavException any StaxNavException
+    */
+   void endOfInput() throws IllegalStateException, StaxNavException;
+
+   /**
+    * Navigates the axis, the navigation {@link Axis#SELF} reads the root element.
+    *
+    * @param axis the axis
+    * @return the status
+    * @throws NullPointerException if the axis is null
+    * @throws StaxNavException any StaxNavException
+    */
+   Status navigate(Axis axis) throws NullPointerException, StaxNavException;
+
+   /**
+    * Navigates the axis to an element with the specified name.
+    *
+    * @param axis the axis
+    * @param name the name
+    * @return the status
+    * @throws NullPointerException if any argument is null
+    * @throws StaxNavException any StaxNavException
+    */
+   Status navigate(Axis axis, N name) throws NullPointerException, StaxNavException;
+
+   /**
+    * Navigates to the next element.
+    *
+    * @return the status
+    * @throws StaxNavException any StaxNavException
+    */
+   Status next() throws StaxNavException;
+
+   /**
+    * Navigates to the first child.
+    *
+    * @return the status
+    * @throws StaxNavException any StaxNavException
+    */
+   Status child() throws StaxNavException;
+
+   /**
+    * Navigates to the first child with the specified name.
+    *
+    * @param name the name
+    * @return the status
+    * @throws NullPointerException if the name is null
+    * @throws StaxNavException any StaxNavException
+    */
+   Status child(N name) throws NullPointerException, StaxNavException;
+
+   /**
+    * Navigates to the next sibling.
+    *
+    * @return the status
+    * @throws StaxNavException any StaxNavException
+    */
+   Status sibling() throws StaxNavException;
+
+   /**
+    * Navigates to the next sibling with the specified name.
+    *
+    * @param name the name
+    * @return the status
+    * @throws NullPointerException if the name is null
+    * @throws StaxNavException any StaxNavException
+    */
+   Status sibling(N name) throws NullPointerException, StaxNavException;
+
+   /**
+    * Reads the content of the current element, once it is found the content is available from the navigator
+    * without reading the stream.
+    *
+    * @return the status
+    * @throws StaxNavException any StaxNavException
+    */
+   Status readContent() throws StaxNavException;
+
+   /**
+    * Returns the navigator positioned on the current element.
+    *
+    * @return the navigator
+    */
+   StaxNavigator<N> getNavigator();
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.staxnav;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import java.util.function.BooleanSupplier;
+
+/**
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+class AsyncStaxNavigatorImpl<N> implements AsyncStaxNavigator<N>
+{
+
+   /**
+    * Wraps a non blocking stream so that the navigator reading it throws an incomplete input exception when
+    * the stream needs more input, the navigator keeps the state of its reading and resumes it.
+    *
+    * @param stream the non blocking stream
+    * @return the wrapped stream
+    */
+   static XMLStreamReader wrap(XMLStreamReader stream)
+   {
+      return new StreamReaderDelegate(stream)
+      {
+         @Override
+         public int next() throws XMLStreamException
+         {
+            int type = super.next();
+            if (type == EVENT_INCOMPLETE)
+            {
+               throw new IncompleteInputException(getLocation());
+            }
+            return type;
+         }
+      };
+   }
+
+   /** . */
+   private final StaxNavigatorImpl<N> navigator;
+
+   /** . */
+   private final InputFeeder feeder;
+
+   /** . */
+   private boolean needsInput;
+
+   /** . */
+   private boolean ended;
+
+   AsyncStaxNavigatorImpl(StaxNavigatorImpl<N> navigator, InputFeeder feeder)
+   {
+      this.navigator = navigator;
+      this.feeder = feeder;
+      this.needsInput = true;
+      this.ended = false;
+   }
+
+   public boolean needsInput()
+   {
+      return needsInput;
+   }
+
+   public void feed(byte[] bytes, int offset, int length) throws NullPointerException, IllegalStateException, StaxNavException
+   {
+      if (bytes == null)
+      {
+         throw new NullPointerException("No null bytes accepted");
+      }
+      if (ended)
+      {
+         throw new IllegalStateException("The end of input was signaled");
+      }
+      if (!needsInput)
+      {
+         throw new IllegalStateException("The input fed previously was not consumed");
+      }
+      try
+      {
+         feeder.feed(bytes, offset, length);
+         needsInput = false;
+      }
+      catch (XMLStreamException e)
+      {
+         throw new StaxNavException(e);
+      }
+   }
+
+   public void endOfInput() throws IllegalStateException, StaxNavException
+   {
+      if (ended)
+      {
+         throw new IllegalStateException("The end of input was already signaled");
+      }
+      try
+      {
+         feeder.endOfInput();
+         ended = true;
+         needsInput = false;
+      }
+      catch (XMLStreamException e)
+      {
+         throw new StaxNavException(e);
+      }
+   }
+
+   public Status navigate(final Axis axis) throws NullPointerException, StaxNavException
+   {
+      if (axis == null)
+      {
+         throw new NullPointerException("No null axis accepted");
+      }
+      return execute(() -> navigator.navigate(axis) != null);
+   }
+
+   public Status navigate(final Axis axis, final N name) throws NullPointerException, StaxNavException
+   {
+      if (axis == null)
+      {
+         throw new NullPointerException("No null axis accepted");
+      }
+      if (name == null)
+      {
+         throw new NullPointerException("No null name accepted");
+      }
+      return execute(() -> navigator.navigate(axis, name));
+   }
+
+   public Status next() throws StaxNavException
+   {
+      return navigate(Axis.NEXT);
+   }
+
+   public Status child() throws StaxNavException
+   {
+      return navigate(Axis.CHILD);
+   }
+
+   public Status child(N name) throws NullPointerException, StaxNavException
+   {
+      return navigate(Axis.CHILD, name);
+   }
+
+   public Status sibling() throws StaxNavException
+   {
+      return navigate(Axis.FOLLOWING_SIBLING);
+   }
+
+   public Status sibling(N name) throws NullPointerException, StaxNavException
+   {
+      return navigate(Axis.FOLLOWING_SIBLING, name);
+   }
+
+   public Status readContent() throws StaxNavException
+   {
+      return execute(() ->
+      {
+         navigator.getContent();
+         return true;
+      });
+   }
+
+   public StaxNavigator<N> getNavigator()
+   {
+      return navigator;
+   }
+
+   private Status execute(BooleanSupplier operation) throws StaxNavException
+   {
+      try
+      {
+         return operation.getAsBoolean() ? Status.FOUND : Status.NOT_FOUND;
+      }
+      catch (IncompleteInputException e)
+      {
+         needsInput = true;
+         return Status.NEED_INPUT;
+      }
+   }
+}
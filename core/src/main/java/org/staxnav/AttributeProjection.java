@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+import javax.xml.namespace.QName;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Declares which attributes are retained when an element is read from the stream, the attributes that are not
+ * retained are never copied from the stream and are not available from the navigator. An element is designated by its
+ * name as resolved by the {@link Naming} of the navigator the projection is set on. A projection is immutable, it is
+ * created with a builder, for instance:</p>
+ *
+ * <p><code><pre>
+ * navigator.setAttributeProjection(AttributeProjection.&lt;String&gt;builder().
+ *    keep("portlet", "id").
+ *    keepAll("preference").
+ *    build());
+ * </pre></code></p>
+ *
+ * <p>retains the <code>id</code> attribute of the <code>portlet</code> elements, all the attributes of
+ * the <code>preference</code> elements and none for the other elements.</p>
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ * @param <N> the name type
+ */
+public final class AttributeProjection<N>
+{
+
+   /** . */
+   private static final QName[] NONE = new QName[0];
+
+   /**
+    * Returns a builder of a projection retaining no attributes for the elements that are not declared.
+    *
+    * @param <N> the name type
+    * @return a new builder
+    */
+   public static <N> Builder<N> builder()
+   {
+      return new Builder<N>(false);
+   }
+
+   /**
+    * Returns a builder of a projection.
+    *
+    * @param keepAll true when the elements that are not declared retain all their attributes
+    * @param <N> the name type
+    * @return a new builder
+    */
+   public static <N> Builder<N> builder(boolean keepAll)
+   {
+      return new Builder<N>(keepAll);
+   }
+
+   /** The projections, a null value means all attributes. */
+   private final Map<N, QName[]> projections;
+
+   /** . */
+   private final boolean keepAll;
+
+   private AttributeProjection(Map<N, QName[]> projections, boolean keepAll)
+   {
+      this.projections = projections;
+      this.keepAll = keepAll;
+   }
+
+   /**
+    * Returns the attributes retained for an element.
+    *
+    * @param name the element name
+    * @return the retained attributes or null when all attributes are retained
+    */
+   QName[] getAttributes(N name)
+   {
+      QName[] attributes = projections.get(name);
+      if (attributes == null && !projections.containsKey(name))
+      {
+         attributes = keepAll ? null : NONE;
+      }
+      return attributes;
+   }
+
+   /**
+    * Declares the attributes retained per element, a builder can build several projections.
+    *
+    * @param <N> the name type
+    */
+   public static class Builder<N>
+   {
+
+      /** . */
+      private final Map<N, QName[]> projections;
+
+      /** . */
+      private final boolean keepAll;
+
+      private Builder(boolean keepAll)
+      {
+         this.projections = new HashMap<N, QName[]>();
+         this.keepAll = keepAll;
+      }
+
+      /**
+       * Retains all attributes of an element.
+       *
+       * @param name the element name
+       * @return this builder
+       * @throws NullPointerException if the name is null
+       */
+      public Builder<N> keepAll(N name) throws NullPointerException
+      {
+         if (name == null)
+         {
+            throw new NullPointerException("No null name accepted");
+         }
+         projections.put(name, null);
+         return this;
+      }
+
+      /**
+       * Retains no attributes of an element.
+       *
+       * @param name the element name
+       * @return this builder
+       * @throws NullPointerException if the name is null
+       */
+      public Builder<N> keepNone(N name) throws NullPointerException
+      {
+         if (name == null)
+         {
+            throw new NullPointerException("No null name accepted");
+         }
+         projections.put(name, NONE);
+         return this;
+      }
+
+      /**
+       * Retains only the specified unqualified attributes of an element.
+       *
+       * @param name the element name
+       * @param attributes the attribute names
+       * @return this builder
+       * @throws NullPointerException if any argument is null
+       */
+      public Builder<N> keep(N name, String... attributes) throws NullPointerException
+      {
+         if (attributes == null)
+         {
+            throw new NullPointerException("No null attributes accepted");
+         }
+         QName[] qualified = new QName[attributes.length];
+         for (int i = 0;i < attributes.length;i++)
+         {
+            if (attributes[i] == null)
+            {
+               throw new NullPointerException("No null attribute name accepted");
+            }
+            qualified[i] = new QName(attributes[i]);
+         }
+         return keep(name, qualified);
+      }
+
+      /**
+       * Retains only the specified attributes of an element.
+       *
+       * @param name the element name
+       * @param attributes the attribute names
+       * @return this builder
+       * @throws NullPointerException if any argument is null
+       */
+      public Builder<N> keep(N name, QName... attributes) throws NullPointerException
+      {
+         if (name == null)
+         {
+            throw new NullPointerException("No null name accepted");
+         }
+         if (attributes == null)
+         {
+            throw new NullPointerException("No null attributes accepted");
+         }
+         for (QName attribute : attributes)
+         {
+            if (attribute == null)
+            {
+               throw new NullPointerException("No null attribute name accepted");
+            }
+         }
+         projections.put(name, attributes.length == 0 ? NONE : attributes.clone());
+         return this;
+      }
+
+      /**
+       * Builds the projection, it is not affected by the later modifications of this builder.
+       *
+       * @return the projection
+       */
+      public AttributeProjection<N> build()
+      {
+         return new AttributeProjection<N>(Collections.unmodifiableMap(new HashMap<N, QName[]>(projections)), keepAll);
+      }
+   }
+}
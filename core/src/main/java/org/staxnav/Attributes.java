@@ -0,0 +1,489 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamReader;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The attributes of an element stored in a single flat array, each attribute uses {@link #STRIDE} consecutive slots
+ * for its namespace URI, local name, prefix and value. Lookups are linear scans as elements have usually very few
+ * attributes. The {@link Map} returned by {@link #getAttributes()} and {@link #getQualifiedAttributes()} are read
+ * only views created once, their keys and entries are created the first time they are iterated and then reused.
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+class Attributes
+{
+
+   /** . */
+   static final Attributes EMPTY = new Attributes(new String[0], 0, 0);
+
+   static
+   {
+      // The empty attributes are shared by all the elements
+      EMPTY.freeze();
+   }
+
+   /** . */
+   private static final int STRIDE = 4;
+
+   /**
+    * Reads the attributes of the start tag the stream points to.
+    *
+    * @param stream the stream
+    * @param projection the retained attributes or null for all attributes
+    * @return the attributes
+    */
+   static Attributes create(XMLStreamReader stream, QName[] projection)
+   {
+      return create(stream, projection, null);
+   }
+
+   /**
+    * Reads the attributes of the start tag the stream points to into recycled attributes, the views of the
+    * recycled attributes show the new attributes.
+    *
+    * @param stream the stream
+    * @param projection the retained attributes or null for all attributes
+    * @param recycled the recycled attributes or null
+    * @return the attributes
+    */
+   static Attributes create(XMLStreamReader stream, QName[] projection, Attributes recycled)
+   {
+      int count = projection == null || projection.length > 0 ? stream.getAttributeCount() : 0;
+      if (count == 0)
+      {
+         return EMPTY;
+      }
+      String[] data = recycled != null && recycled.data.length >= count * STRIDE ? recycled.data : new String[count * STRIDE];
+      int size = 0;
+      int unqualified = 0;
+      for (int i = 0;i < count;i++)
+      {
+         String namespaceURI = stream.getAttributeNamespace(i);
+         if (namespaceURI == null)
+         {
+            namespaceURI = XMLConstants.NULL_NS_URI;
+         }
+         String localName = stream.getAttributeLocalName(i);
+         if (projection != null && !contains(projection, namespaceURI, localName))
+         {
+            continue;
+         }
+         String prefix = stream.getAttributePrefix(i);
+         int offset = size * STRIDE;
+         data[offset] = namespaceURI;
+         data[offset + 1] = localName;
+         data[offset + 2] = prefix != null ? prefix : XMLConstants.DEFAULT_NS_PREFIX;
+         data[offset + 3] = stream.getAttributeValue(i);
+         size++;
+         if (namespaceURI.length() == 0)
+         {
+            unqualified++;
+         }
+      }
+      if (size == 0)
+      {
+         return EMPTY;
+      }
+      else if (recycled != null)
+      {
+         recycled.data = data;
+         recycled.size = size;
+         recycled.unqualified = unqualified;
+         recycled.names = null;
+         if (recycled.attributes != null)
+         {
+            recycled.attributes.entries = null;
+         }
+         if (recycled.qualifiedAttributes != null)
+         {
+            recycled.qualifiedAttributes.entries = null;
+         }
+         return recycled;
+      }
+      else
+      {
+         return new Attributes(data, size, unqualified);
+      }
+   }
+
+   private static boolean contains(QName[] names, String namespaceURI, String localName)
+   {
+      for (QName name : names)
+      {
+         if (name.getLocalPart().equals(localName) && name.getNamespaceURI().equals(namespaceURI))
+         {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /** . */
+   private String[] data;
+
+   /** . */
+   private int size;
+
+   /** The number of attributes that have no namespace. */
+   private int unqualified;
+
+   /** The qualified names of the attributes, they are created when they are first needed. */
+   private QName[] names;
+
+   /** . */
+   private View<String> attributes;
+
+   /** . */
+   private View<QName> qualifiedAttributes;
+
+   private Attributes(String[] data, int size, int unqualified)
+   {
+      this.data = data;
+      this.size = size;
+      this.unqualified = unqualified;
+   }
+
+   /**
+    * Returns a copy of these attributes that is not modified when they are recycled.
+    *
+    * @return the copy
+    */
+   Attributes copy()
+   {
+      String[] copy = new String[size * STRIDE];
+      System.arraycopy(data, 0, copy, 0, copy.length);
+      return new Attributes(copy, size, unqualified);
+   }
+
+   /**
+    * Creates the views with their keys and their entries, so the attributes are not modified anymore when they are
+    * read by several threads.
+    */
+   void freeze()
+   {
+      getAttributes().entrySet().iterator();
+      getQualifiedAttributes().entrySet().iterator();
+   }
+
+   int getSize()
+   {
+      return size;
+   }
+
+   String getValue(String localName)
+   {
+      if (unqualified > 0)
+      {
+         int index = indexOf(XMLConstants.NULL_NS_URI, localName);
+         if (index >= 0)
+         {
+            return data[index * STRIDE + 3];
+         }
+      }
+      return null;
+   }
+
+   String getValue(QName name)
+   {
+      int index = indexOf(name.getNamespaceURI(), name.getLocalPart());
+      return index >= 0 ? data[index * STRIDE + 3] : null;
+   }
+
+   /**
+    * Returns a read only view of the attributes that have no namespace keyed by their local name.
+    *
+    * @return the attributes
+    */
+   Map<String, String> getAttributes()
+   {
+      if (attributes == null)
+      {
+         attributes = new AttributeMap();
+      }
+      return attributes;
+   }
+
+   /**
+    * Returns a read only view of all the attributes keyed by their qualified name.
+    *
+    * @return the attributes
+    */
+   Map<QName, String> getQualifiedAttributes()
+   {
+      if (qualifiedAttributes == null)
+      {
+         qualifiedAttributes = new QualifiedAttributeMap();
+      }
+      return qualifiedAttributes;
+   }
+
+   private int indexOf(String namespaceURI, String localName)
+   {
+      for (int i = 0, offset = 0;i < size;i++, offset += STRIDE)
+      {
+         if (data[offset + 1].equals(localName) && data[offset].equals(namespaceURI))
+         {
+            return i;
+         }
+      }
+      return -1;
+   }
+
+   private QName getName(int index)
+   {
+      if (names == null)
+      {
+         names = new QName[size];
+      }
+      QName name = names[index];
+      if (name == null)
+      {
+         int offset = index * STRIDE;
+         names[index] = name = new QName(data[offset], data[offset + 1], data[offset + 2]);
+      }
+      return name;
+   }
+
+   private class AttributeMap extends View<String>
+   {
+
+      private AttributeMap()
+      {
+         super(true);
+      }
+
+      @Override
+      public boolean containsKey(Object key)
+      {
+         return key instanceof String && getValue((String)key) != null;
+      }
+
+      @Override
+      public String get(Object key)
+      {
+         return key instanceof String ? getValue((String)key) : null;
+      }
+
+      @Override
+      protected String getKey(int index)
+      {
+         return data[index * STRIDE + 1];
+      }
+   }
+
+   private class QualifiedAttributeMap extends View<QName>
+   {
+
+      private QualifiedAttributeMap()
+      {
+         super(false);
+      }
+
+      @Override
+      public boolean containsKey(Object key)
+      {
+         return key instanceof QName && getValue((QName)key) != null;
+      }
+
+      @Override
+      public String get(Object key)
+      {
+         return key instanceof QName ? getValue((QName)key) : null;
+      }
+
+      @Override
+      protected QName getKey(int index)
+      {
+         return getName(index);
+      }
+   }
+
+   /**
+    * A read only view of the attributes, the entries are created when the view is first iterated.
+    *
+    * @param <K> the key type
+    */
+   private abstract class View<K> extends AbstractMap<K, String>
+   {
+
+      /** . */
+      private final boolean unqualifiedOnly;
+
+      /** . */
+      private Set<Map.Entry<K, String>> entrySet;
+
+      /** The entries or null when they are not created yet. */
+      private Map.Entry<K, String>[] entries;
+
+      private View(boolean unqualifiedOnly)
+      {
+         this.unqualifiedOnly = unqualifiedOnly;
+      }
+
+      protected abstract K getKey(int index);
+
+      @Override
+      public int size()
+      {
+         return unqualifiedOnly ? unqualified : size;
+      }
+
+      @Override
+      public Set<Map.Entry<K, String>> entrySet()
+      {
+         if (entrySet == null)
+         {
+            entrySet = new AbstractSet<Map.Entry<K, String>>()
+            {
+               @Override
+               public int size()
+               {
+                  return View.this.size();
+               }
+
+               @Override
+               public Iterator<Map.Entry<K, String>> iterator()
+               {
+                  return new EntryIterator<K>(getEntries());
+               }
+            };
+         }
+         return entrySet;
+      }
+
+      @SuppressWarnings("unchecked")
+      private Map.Entry<K, String>[] getEntries()
+      {
+         if (entries == null)
+         {
+            Map.Entry<K, String>[] entries = (Map.Entry<K, String>[])new Map.Entry<?, ?>[size()];
+            for (int i = 0, j = 0;i < size;i++)
+            {
+               if (!unqualifiedOnly || data[i * STRIDE].length() == 0)
+               {
+                  entries[j++] = new AttributeEntry<K>(getKey(i), data[i * STRIDE + 3]);
+               }
+            }
+            this.entries = entries;
+         }
+         return entries;
+      }
+   }
+
+   private static class EntryIterator<K> implements Iterator<Map.Entry<K, String>>
+   {
+
+      /** . */
+      private final Map.Entry<K, String>[] entries;
+
+      /** . */
+      private int index;
+
+      private EntryIterator(Map.Entry<K, String>[] entries)
+      {
+         this.entries = entries;
+         this.index = 0;
+      }
+
+      public boolean hasNext()
+      {
+         return index < entries.length;
+      }
+
+      public Map.Entry<K, String> next()
+      {
+         if (index >= entries.length)
+         {
+            throw new NoSuchElementException();
+         }
+         return entries[index++];
+      }
+
+      public void remove()
+      {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   private static class AttributeEntry<K> implements Map.Entry<K, String>
+   {
+
+      /** . */
+      private final K key;
+
+      /** . */
+      private final String value;
+
+      private AttributeEntry(K key, String value)
+      {
+         this.key = key;
+         this.value = value;
+      }
+
+      public K getKey()
+      {
+         return key;
+      }
+
+      public String getValue()
+      {
+         return value;
+      }
+
+      public String setValue(String value)
+      {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         if (obj instanceof Map.Entry<?, ?>)
+         {
+            Map.Entry<?, ?> that = (Map.Entry<?, ?>)obj;
+            return key.equals(that.getKey()) && value.equals(that.getValue());
+         }
+         return false;
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return key.hashCode() ^ value.hashCode();
+      }
+
+      @Override
+      public String toString()
+      {
+         return key + "=" + value;
+      }
+   }
+}
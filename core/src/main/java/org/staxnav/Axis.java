@@ -33,6 +33,19 @@ public enum Axis
 
    FOLLOWING_SIBLING,
 
-   FOLLOWING
+   FOLLOWING,
+
+   /**
+    * The parent element, it is found in memory. Navigating forward from the parent continues after the element
+    * it was reached from, the elements that were already read are not navigated again.
+    */
+   PARENT,
+
+   /**
+    * The ancestor elements from the parent to the root, they are found in memory. Navigating forward from an
+    * ancestor continues after the element it was reached from, the elements that were already read are not
+    * navigated again.
+    */
+   ANCESTOR
 
 }
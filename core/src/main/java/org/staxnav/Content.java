@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+/**
+ * The textual content of an element, it is a read only view over the captured characters. The string value and the
+ * trimmed value are computed once, when the string value is computed the characters are released and the view is
+ * then backed by the string.
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+class Content implements CharSequence
+{
+
+   /** . */
+   private char[] chars;
+
+   /** . */
+   private int offset;
+
+   /** . */
+   private int length;
+
+   /** . */
+   private String string;
+
+   /** . */
+   private Content trimmed;
+
+   Content(char[] chars, int offset, int length)
+   {
+      this.chars = chars;
+      this.offset = offset;
+      this.length = length;
+   }
+
+   /**
+    * Resets this content to other characters, it is used when the content of an element is recycled.
+    *
+    * @param chars the chars
+    * @param offset the offset
+    * @param length the length
+    */
+   void reset(char[] chars, int offset, int length)
+   {
+      this.chars = chars;
+      this.offset = offset;
+      this.length = length;
+      this.string = null;
+      this.trimmed = null;
+   }
+
+   /**
+    * Returns a frozen copy of this content that does not share its characters.
+    *
+    * @return the copy
+    */
+   Content copy()
+   {
+      Content copy = new Content(null, 0, length);
+      copy.string = toString();
+      copy.freeze();
+      return copy;
+   }
+
+   /**
+    * Returns a view of this content with leading and trailing white spaces removed as {@link String#trim()} does.
+    *
+    * @return the trimmed content
+    */
+   Content trim()
+   {
+      if (trimmed == null)
+      {
+         int from = ValueType.start(this);
+         int to = ValueType.end(this, from);
+         if (from == 0 && to == length)
+         {
+            trimmed = this;
+         }
+         else if (string != null)
+         {
+            trimmed = new Content(null, 0, to - from);
+            trimmed.string = string.substring(from, to);
+         }
+         else
+         {
+            trimmed = new Content(chars, offset + from, to - from);
+         }
+      }
+      return trimmed;
+   }
+
+   /**
+    * Computes the string value and the trimmed value, the content is not modified anymore after this call.
+    */
+   void freeze()
+   {
+      toString();
+      trim().toString();
+   }
+
+   public int length()
+   {
+      return length;
+   }
+
+   public char charAt(int index)
+   {
+      if (index < 0 || index >= length)
+      {
+         throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+      }
+      return string != null ? string.charAt(index) : chars[offset + index];
+   }
+
+   public CharSequence subSequence(int start, int end)
+   {
+      if (start < 0 || end > length || start > end)
+      {
+         throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of bounds for length " + length);
+      }
+      return string != null ? string.substring(start, end) : new Content(chars, offset + start, end - start);
+   }
+
+   @Override
+   public String toString()
+   {
+      if (string == null)
+      {
+         string = new String(chars, offset, length);
+         chars = null;
+      }
+      return string;
+   }
+}
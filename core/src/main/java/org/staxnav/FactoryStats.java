@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The stats aggregated by a factory, the documents read by several threads publish their stats concurrently.
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+class FactoryStats implements NavigatorStats
+{
+
+   /** The number of counters. */
+   static final int SIZE = 8;
+
+   /** The counters in the order of {@link Stats#values(long[])}. */
+   private final LongAdder[] counters;
+
+   FactoryStats()
+   {
+      LongAdder[] counters = new LongAdder[SIZE];
+      for (int i = 0;i < SIZE;i++)
+      {
+         counters[i] = new LongAdder();
+      }
+      this.counters = counters;
+   }
+
+   /**
+    * Adds the difference between two values.
+    *
+    * @param values the current values
+    * @param published the published values
+    */
+   void add(long[] values, long[] published)
+   {
+      for (int i = 0;i < SIZE;i++)
+      {
+         long delta = values[i] - published[i];
+         if (delta != 0)
+         {
+            counters[i].add(delta);
+         }
+      }
+   }
+
+   public long getElementsRead()
+   {
+      return counters[0].sum();
+   }
+
+   public long getElementsMaterialized()
+   {
+      return counters[1].sum();
+   }
+
+   public long getAttributeMapsAllocated()
+   {
+      return counters[2].sum();
+   }
+
+   public long getContentCharsCopied()
+   {
+      return counters[3].sum();
+   }
+
+   public long getNameResolutions()
+   {
+      return counters[4].sum();
+   }
+
+   public long getForksCreated()
+   {
+      return counters[5].sum();
+   }
+
+   public long getStreamNanos()
+   {
+      return counters[6].sum();
+   }
+
+   public long getNavigatorNanos()
+   {
+      return counters[7].sum();
+   }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.staxnav;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Feeds the input of a non blocking stream, for instance the input feeder of an Aalto
+ * <code>AsyncXMLStreamReader</code>.
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public interface InputFeeder
+{
+
+   /**
+    * Feeds bytes to the stream, the stream may retain the array until it has consumed the bytes.
+    *
+    * @param bytes the bytes
+    * @param offset the offset of the first byte
+    * @param length the number of bytes
+    * @throws XMLStreamException any stream exception
+    */
+   void feed(byte[] bytes, int offset, int length) throws XMLStreamException;
+
+   /**
+    * Signals the end of the input.
+    *
+    * @throws XMLStreamException any stream exception
+    */
+   void endOfInput() throws XMLStreamException;
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>An input stream reading a file through memory mapped windows, the bytes are read from the page cache
+ * and no copy of the file is retained in the heap. The file is mapped one window at a time.</p>
+ *
+ * <p>The JDK provides no way to unmap a buffer, a window is unmapped by the garbage collector once it becomes
+ * unreachable. Until then it keeps using address space and it keeps the file mapped, the window size bounds
+ * the size of each mapping but not the number of windows waiting for the collector.</p>
+ *
+ * <p>When the stream reads a path, the file is opened once and closed when the last window is mapped or
+ * when the stream is closed. When the stream reads a channel, the channel is read from its current position
+ * and it is not closed, its position is advanced to the bytes read when the end of the file is reached or
+ * when the stream is closed.</p>
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+class MappedInputStream extends InputStream
+{
+
+   /** . */
+   static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+   /** . */
+   private final FileChannel channel;
+
+   /** True when the channel was opened by this stream. */
+   private final boolean owned;
+
+   /** . */
+   private final long size;
+
+   /** . */
+   private final int windowSize;
+
+   /** The file position of the next window. */
+   private long position;
+
+   /** . */
+   private MappedByteBuffer window;
+
+   /** . */
+   private boolean closed;
+
+   MappedInputStream(Path path, int windowSize) throws IOException
+   {
+      this(FileChannel.open(path, StandardOpenOption.READ), true, windowSize);
+   }
+
+   MappedInputStream(FileChannel channel, int windowSize) throws IOException
+   {
+      this(channel, false, windowSize);
+   }
+
+   private MappedInputStream(FileChannel channel, boolean owned, int windowSize) throws IOException
+   {
+      if (windowSize < 1)
+      {
+         if (owned)
+         {
+            channel.close();
+         }
+         throw new IllegalArgumentException("Invalid window size " + windowSize);
+      }
+
+      //
+      long position;
+      long size;
+      try
+      {
+         position = channel.position();
+         size = channel.size();
+      }
+      catch (IOException e)
+      {
+         if (owned)
+         {
+            channel.close();
+         }
+         throw e;
+      }
+
+      //
+      this.channel = channel;
+      this.owned = owned;
+      this.position = position;
+      this.size = size;
+      this.windowSize = windowSize;
+      this.window = null;
+      this.closed = false;
+   }
+
+   @Override
+   public int read() throws IOException
+   {
+      return next() ? window.get() & 0xFF : -1;
+   }
+
+   @Override
+   public int read(byte[] b, int off, int len) throws IOException
+   {
+      if (off < 0 || len < 0 || len > b.length - off)
+      {
+         throw new IndexOutOfBoundsException();
+      }
+      if (len == 0)
+      {
+         return 0;
+      }
+      if (!next())
+      {
+         return -1;
+      }
+      int length = Math.min(len, window.remaining());
+      window.get(b, off, length);
+      return length;
+   }
+
+   @Override
+   public long skip(long n) throws IOException
+   {
+      if (n <= 0 || !next())
+      {
+         return 0;
+      }
+      long skipped = Math.min(n, window.remaining() + (size - position));
+
+      // Skip within the current window when possible, otherwise unmap it and move the next window
+      if (skipped <= window.remaining())
+      {
+         window.position(window.position() + (int)skipped);
+      }
+      else
+      {
+         position += skipped - window.remaining();
+         window = null;
+      }
+      return skipped;
+   }
+
+   @Override
+   public int available() throws IOException
+   {
+      if (closed)
+      {
+         throw new IOException("Stream closed");
+      }
+      return window != null ? window.remaining() : 0;
+   }
+
+   @Override
+   public void close() throws IOException
+   {
+      if (!closed)
+      {
+         closed = true;
+         release();
+         window = null;
+      }
+   }
+
+   /**
+    * Closes the channel when it is owned, otherwise moves its position after the bytes read.
+    *
+    * @throws IOException any io exception
+    */
+   private void release() throws IOException
+   {
+      if (owned)
+      {
+         channel.close();
+      }
+      else if (channel.isOpen())
+      {
+         channel.position(window != null ? position - window.remaining() : position);
+      }
+   }
+
+   /**
+    * Makes the current window readable, it maps the next window when the current one is fully read.
+    *
+    * @return false when the end of the file is reached
+    * @throws IOException any io exception
+    */
+   private boolean next() throws IOException
+   {
+      if (closed)
+      {
+         throw new IOException("Stream closed");
+      }
+      if (window != null && window.hasRemaining())
+      {
+         return true;
+      }
+      window = null;
+      if (position >= size)
+      {
+         if (channel.isOpen())
+         {
+            release();
+         }
+         return false;
+      }
+      int length = (int)Math.min(windowSize, size - position);
+      window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+      position += length;
+
+      // A mapping remains valid once the channel is closed
+      if (owned && position >= size)
+      {
+         channel.close();
+      }
+      return true;
+   }
+}
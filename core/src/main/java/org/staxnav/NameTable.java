@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.WeakHashMap;
+
+/**
+ * <p>An immutable table resolving the constants of an enum from their local name. The table is built with a
+ * multiplicative hash of {@link String#hashCode()} whose factor is searched so that no two names collide, a name
+ * is then resolved with a single string comparison. When no such factor can be found, which happens when two names
+ * have the same hash code, the table falls back to linear probing.</p>
+ *
+ * <p>When several constants have the same local name, the table resolves the name to the same constant than the
+ * naming it replaces: the last one for the simple naming and the first one for the mapped naming.</p>
+ *
+ * <p>Tables are cached per enum class and shared by all the namings of the same enum class.</p>
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ * @param <E> the enum type
+ */
+final class NameTable<E extends Enum<E>>
+{
+
+   /** The number of factors attempted for a table size. */
+   private static final int ATTEMPTS = 64;
+
+   /** . */
+   private static final Map<Class<?>, Reference<NameTable<?>>> simpleTables = Collections.synchronizedMap(new WeakHashMap<Class<?>, Reference<NameTable<?>>>());
+
+   /** . */
+   private static final Map<Class<?>, Reference<NameTable<?>>> mappedTables = Collections.synchronizedMap(new WeakHashMap<Class<?>, Reference<NameTable<?>>>());
+
+   /**
+    * Returns the table mapping enum constants to their lower cased name with underscores replaced by hyphens.
+    *
+    * @param enumType the enum class
+    * @param <E> the enum type
+    * @return the table
+    */
+   static <E extends Enum<E>> NameTable<E> getSimple(Class<E> enumType)
+   {
+      NameTable<E> table = get(simpleTables, enumType);
+      if (table == null)
+      {
+         E[] values = enumType.getEnumConstants();
+         String[] localParts = new String[values.length];
+         for (E value : values)
+         {
+            localParts[value.ordinal()] = value.name().toLowerCase().replace('_', '-');
+         }
+         table = put(simpleTables, enumType, new NameTable<E>(values, localParts, true));
+      }
+      return table;
+   }
+
+   /**
+    * Returns the table mapping enum constants to their {@link EnumElement#getLocalName()} value.
+    *
+    * @param enumType the enum class
+    * @param <E> the enum type
+    * @return the table
+    */
+   static <E extends Enum<E> & EnumElement<E>> NameTable<E> getMapped(Class<E> enumType)
+   {
+      NameTable<E> table = get(mappedTables, enumType);
+      if (table == null)
+      {
+         E[] values = enumType.getEnumConstants();
+         String[] localParts = new String[values.length];
+         for (E value : values)
+         {
+            localParts[value.ordinal()] = value.getLocalName();
+         }
+         table = put(mappedTables, enumType, new NameTable<E>(values, localParts, false));
+      }
+      return table;
+   }
+
+   @SuppressWarnings("unchecked")
+   private static <E extends Enum<E>> NameTable<E> get(Map<Class<?>, Reference<NameTable<?>>> tables, Class<E> enumType)
+   {
+      Reference<NameTable<?>> ref = tables.get(enumType);
+      return ref != null ? (NameTable<E>)ref.get() : null;
+   }
+
+   private static <E extends Enum<E>> NameTable<E> put(Map<Class<?>, Reference<NameTable<?>>> tables, Class<E> enumType, NameTable<E> table)
+   {
+      tables.put(enumType, new SoftReference<NameTable<?>>(table));
+      return table;
+   }
+
+   /** The local parts indexed by ordinal. */
+   private final String[] localParts;
+
+   /** . */
+   private final String[] keys;
+
+   /** . */
+   private final E[] values;
+
+   /** . */
+   private final int factor;
+
+   /** . */
+   private final int shift;
+
+   /** . */
+   private final boolean perfect;
+
+   /**
+    * Builds a table.
+    *
+    * @param constants the enum constants
+    * @param localParts the local parts indexed by ordinal, a null local part is not resolved
+    * @param last true when the last constant having a local part wins, false for the first one
+    */
+   private NameTable(E[] constants, String[] localParts, boolean last)
+   {
+      int size = 0;
+      for (String localPart : localParts)
+      {
+         if (localPart != null)
+         {
+            size++;
+         }
+      }
+
+      // Search a collision free factor, doubling the table size when none is found
+      Random random = new Random(size);
+      int bits = 1;
+      while ((1 << bits) < size * 2)
+      {
+         bits++;
+      }
+      int factor = 0;
+      boolean perfect = false;
+      for (int maxBits = bits + 3;!perfect && bits <= maxBits;bits++)
+      {
+         for (int attempt = 0;attempt < ATTEMPTS && !perfect;attempt++)
+         {
+            factor = random.nextInt() | 1;
+            perfect = isPerfect(localParts, factor, 32 - bits);
+         }
+      }
+      bits--;
+
+      //
+      int capacity = 1 << bits;
+      String[] keys = new String[capacity];
+      @SuppressWarnings("unchecked")
+      E[] values = (E[])Array.newInstance(constants.getClass().getComponentType(), capacity);
+      int shift = 32 - bits;
+      for (E constant : constants)
+      {
+         String localPart = localParts[constant.ordinal()];
+         if (localPart != null)
+         {
+            int index = (localPart.hashCode() * factor) >>> shift;
+            while (keys[index] != null && !keys[index].equals(localPart))
+            {
+               index = (index + 1) & (capacity - 1);
+            }
+
+            if (keys[index] == null || last)
+            {
+               keys[index] = localPart;
+               values[index] = constant;
+            }
+         }
+      }
+
+      //
+      this.localParts = localParts;
+      this.keys = keys;
+      this.values = values;
+      this.factor = factor;
+      this.shift = shift;
+      this.perfect = perfect;
+   }
+
+   private static boolean isPerfect(String[] localParts, int factor, int shift)
+   {
+      String[] slots = new String[1 << (32 - shift)];
+      for (String localPart : localParts)
+      {
+         if (localPart != null)
+         {
+            int index = (localPart.hashCode() * factor) >>> shift;
+            if (slots[index] != null && !slots[index].equals(localPart))
+            {
+               return false;
+            }
+            slots[index] = localPart;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Returns the constant having the specified local part or null if there is none.
+    *
+    * @param localPart the local part
+    * @return the constant
+    */
+   E get(String localPart)
+   {
+      if (localPart == null)
+      {
+         return null;
+      }
+      int index = (localPart.hashCode() * factor) >>> shift;
+      if (perfect)
+      {
+         String key = keys[index];
+         return key != null && (key == localPart || key.equals(localPart)) ? values[index] : null;
+      }
+      else
+      {
+         for (String key = keys[index];key != null;key = keys[index])
+         {
+            if (key == localPart || key.equals(localPart))
+            {
+               return values[index];
+            }
+            index = (index + 1) & (keys.length - 1);
+         }
+         return null;
+      }
+   }
+
+   /**
+    * Returns the local part of a constant.
+    *
+    * @param constant the constant
+    * @return the local part
+    */
+   String getLocalPart(E constant)
+   {
+      return localParts[constant.ordinal()];
+   }
+}
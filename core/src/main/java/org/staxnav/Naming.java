@@ -20,9 +20,6 @@
 package org.staxnav;
 
 import javax.xml.namespace.QName;
-import java.util.EnumMap;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
@@ -161,40 +158,26 @@ public abstract class Naming<N>
       {
 
          /** . */
-         private final Map<String, E> toName;
-
-         /** . */
-         private final Map<E, String> toLocalPart;
+         private final NameTable<E> table;
 
          public Simple(Class<E> enumType, E noSuchElement)
          {
             super(enumType, noSuchElement);
 
             //
-            Map<String, E> toName = new HashMap<String, E>();
-            Map<E, String> toLocalPart = new EnumMap<E, String>(enumType);
-            for (E value : enumType.getEnumConstants())
-            {
-               String localPart = value.name().toLowerCase().replace('_', '-');
-               toName.put(localPart, value);
-               toLocalPart.put(value, localPart);
-            }
-
-            //
-            this.toName = toName;
-            this.toLocalPart = toLocalPart;
+            this.table = NameTable.getSimple(enumType);
          }
 
          @Override
          public String getLocalPart(E name)
          {
-            return toLocalPart.get(name);
+            return name != null ? table.getLocalPart(name) : null;
          }
 
          @Override
          public E getName(String uri, String prefix, String localPart)
          {
-            E name = toName.get(localPart);
+            E name = table.get(localPart);
             return name != null ? name : noSuchElement;
          }
       }
@@ -203,14 +186,14 @@ public abstract class Naming<N>
       {
 
          /** . */
-         private final  E[] all;
+         private final NameTable<E> table;
 
          public Mapped(Class<E> enumType, E noSuchElement)
          {
             super(enumType, noSuchElement);
 
             //
-            this.all = enumType.getEnumConstants();
+            this.table = NameTable.getMapped(enumType);
          }
 
          @Override
@@ -222,14 +205,8 @@ public abstract class Naming<N>
          @Override
          public E getName(String uri, String prefix, String localPart)
          {
-            for (E e : all)
-            {
-               if (localPart.equals(e.getLocalName()))
-               {
-                  return e;
-               }
-            }
-            return noSuchElement;
+            E name = table.get(localPart);
+            return name != null ? name : noSuchElement;
          }
       }
    }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+/**
+ * The counters of the navigation of documents. The stats of a navigator are shared with its forks and cover the
+ * document, the stats of a factory aggregate the documents of its navigators. Navigators of snapshots and of
+ * forks processed in parallel do not count.
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public interface NavigatorStats
+{
+
+   /**
+    * Returns the number of elements read from the stream, including the skipped elements.
+    *
+    * @return the number of elements read
+    */
+   long getElementsRead();
+
+   /**
+    * Returns the number of elements created in memory.
+    *
+    * @return the number of elements materialized
+    */
+   long getElementsMaterialized();
+
+   /**
+    * Returns the number of elements having attributes allocated.
+    *
+    * @return the number of attribute maps
+    */
+   long getAttributeMapsAllocated();
+
+   /**
+    * Returns the number of content characters copied from the stream.
+    *
+    * @return the number of characters
+    */
+   long getContentCharsCopied();
+
+   /**
+    * Returns the number of element names resolved by a {@link Naming}.
+    *
+    * @return the number of naming resolutions
+    */
+   long getNameResolutions();
+
+   /**
+    * Returns the number of forks created.
+    *
+    * @return the number of forks
+    */
+   long getForksCreated();
+
+   /**
+    * Returns the time spent in the {@link javax.xml.stream.XMLStreamReader#next()} method, it is measured only when
+    * timing is enabled on the factory.
+    *
+    * @return the time in nanoseconds
+    */
+   long getStreamNanos();
+
+   /**
+    * Returns the time spent by the navigator reading the stream without the time spent in the stream, it is measured
+    * only when timing is enabled on the factory.
+    *
+    * @return the time in nanoseconds
+    */
+   long getNavigatorNanos();
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+/**
+ * Parses the subtree of a fork, it is called back by {@link StaxNavigator#fork(Axis, java.util.Map)} for each
+ * element it is registered for.
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ * @param <N> the name type
+ */
+public interface Parser<N>
+{
+
+   /**
+    * Parses the subtree of the navigator root. The navigator must not be used once this method returns, see
+    * {@link StaxNavigator#fork(Axis, java.util.Map)} for the forks created from it.
+    *
+    * @param navigator the navigator of the subtree
+    * @throws StaxNavException any StaxNavException
+    */
+   void parse(StaxNavigator<N> navigator) throws StaxNavException;
+
+}
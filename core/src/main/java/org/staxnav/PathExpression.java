@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>A compiled path expression selecting the descendants of an element, a path is evaluated by
+ * {@link StaxNavigator#select(PathExpression)} in a single forward pass over the descendants. The syntax is a
+ * subset of XPath location paths relative to the current element:</p>
+ *
+ * <ul>
+ *    <li><code>a/b</code> selects the <code>b</code> children of the <code>a</code> children.</li>
+ *    <li><code>a//b</code> selects the <code>b</code> descendants of the <code>a</code> children and
+ *    <code>//b</code> selects all the <code>b</code> descendants.</li>
+ *    <li><code>*</code> matches any element.</li>
+ *    <li><code>a[@b]</code> matches the <code>a</code> elements having a <code>b</code> attribute and
+ *    <code>a[@b='c']</code> the <code>a</code> elements whose <code>b</code> attribute value is <code>c</code>.</li>
+ * </ul>
+ *
+ * <p>Names are resolved with the naming from their local part. Predicates on child elements are not supported as
+ * they cannot be evaluated without buffering the element children. A path is immutable, it can be reused for
+ * several documents and shared by several threads.</p>
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ * @param <N> the name type
+ */
+public final class PathExpression<N>
+{
+
+   /** The maximum number of steps, the states of the evaluation are bits of a long. */
+   static final int MAX_STEPS = 63;
+
+   /**
+    * Compiles an expression.
+    *
+    * @param expression the expression
+    * @param naming the naming resolving the names
+    * @param <N> the name type
+    * @return the compiled path
+    * @throws NullPointerException if any argument is null
+    * @throws IllegalArgumentException if the expression is not valid or a name is not known by the naming
+    */
+   public static <N> PathExpression<N> compile(String expression, Naming<N> naming) throws NullPointerException, IllegalArgumentException
+   {
+      if (expression == null)
+      {
+         throw new NullPointerException("No null expression accepted");
+      }
+      if (naming == null)
+      {
+         throw new NullPointerException("No null naming accepted");
+      }
+
+      //
+      List<Step<N>> steps = new ArrayList<Step<N>>();
+      int length = expression.length();
+      int index = 0;
+      while (true)
+      {
+         // Separator
+         boolean descendant = false;
+         if (expression.startsWith("//", index))
+         {
+            descendant = true;
+            index += 2;
+         }
+         else if (index > 0)
+         {
+            if (index < length && expression.charAt(index) == '/')
+            {
+               index++;
+            }
+            else
+            {
+               throw invalid(expression, index);
+            }
+         }
+
+         // Name test
+         int from = index;
+         while (index < length && expression.charAt(index) != '/' && expression.charAt(index) != '[')
+         {
+            index++;
+         }
+         String test = expression.substring(from, index).trim();
+         if (test.length() == 0)
+         {
+            throw invalid(expression, from);
+         }
+         N name = null;
+         if (!"*".equals(test))
+         {
+            name = naming.getName(null, null, test);
+
+            // An enumerated naming resolves the unknown names to the same constant that would match any unknown element
+            if (name == null ||
+               (naming instanceof Naming.Enumerated<?> && name == ((Naming.Enumerated<?>)naming).noSuchElement))
+            {
+               throw new IllegalArgumentException("Unknown name " + test + " in " + expression);
+            }
+         }
+
+         // Predicate
+         String attribute = null;
+         String value = null;
+         if (index < length && expression.charAt(index) == '[')
+         {
+            // The closing bracket is the first one that is not quoted
+            int end = -1;
+            char quote = 0;
+            for (int i = index + 1;i < length && end == -1;i++)
+            {
+               char c = expression.charAt(i);
+               if (quote != 0)
+               {
+                  if (c == quote)
+                  {
+                     quote = 0;
+                  }
+               }
+               else if (c == '\'' || c == '"')
+               {
+                  quote = c;
+               }
+               else if (c == ']')
+               {
+                  end = i;
+               }
+            }
+            if (end == -1)
+            {
+               throw invalid(expression, index);
+            }
+            String predicate = expression.substring(index + 1, end).trim();
+            if (!predicate.startsWith("@"))
+            {
+               throw new IllegalArgumentException("Invalid predicate [" + predicate + "] in " + expression +
+                  ", only attribute predicates can be evaluated in a forward pass");
+            }
+            int eq = predicate.indexOf('=');
+            if (eq == -1)
+            {
+               attribute = predicate.substring(1).trim();
+            }
+            else
+            {
+               attribute = predicate.substring(1, eq).trim();
+               value = predicate.substring(eq + 1).trim();
+               if (value.length() < 2 || (value.charAt(0) != '\'' && value.charAt(0) != '"') || value.charAt(value.length() - 1) != value.charAt(0))
+               {
+                  throw invalid(expression, index);
+               }
+               value = value.substring(1, value.length() - 1);
+            }
+            if (attribute.length() == 0)
+            {
+               throw invalid(expression, index);
+            }
+            index = end + 1;
+         }
+
+         //
+         steps.add(new Step<N>(descendant, name, attribute, value));
+         if (index == length)
+         {
+            break;
+         }
+      }
+
+      //
+      if (steps.size() > MAX_STEPS)
+      {
+         throw new IllegalArgumentException("Too many steps in " + expression);
+      }
+
+      //
+      @SuppressWarnings("unchecked")
+      Step<N>[] array = steps.toArray((Step<N>[])Array.newInstance(Step.class, steps.size()));
+      return new PathExpression<N>(expression, array);
+   }
+
+   private static IllegalArgumentException invalid(String expression, int index)
+   {
+      return new IllegalArgumentException("Invalid path " + expression + " at index " + index);
+   }
+
+   /** . */
+   private final String expression;
+
+   /** . */
+   private final Step<N>[] steps;
+
+   private PathExpression(String expression, Step<N>[] steps)
+   {
+      this.expression = expression;
+      this.steps = steps;
+   }
+
+   /**
+    * Returns the number of steps.
+    *
+    * @return the number of steps
+    */
+   int getSize()
+   {
+      return steps.length;
+   }
+
+   /**
+    * Returns a step.
+    *
+    * @param index the step index
+    * @return the step
+    */
+   Step<N> getStep(int index)
+   {
+      return steps[index];
+   }
+
+   @Override
+   public String toString()
+   {
+      return expression;
+   }
+
+   /**
+    * A step of the path.
+    */
+   static class Step<N>
+   {
+
+      /** True when the step matches any descendant rather than a child. */
+      final boolean descendant;
+
+      /** The name or null for any name. */
+      final N name;
+
+      /** The attribute tested by the predicate or null. */
+      final String attribute;
+
+      /** The expected attribute value or null. */
+      final String value;
+
+      private Step(boolean descendant, N name, String attribute, String value)
+      {
+         this.descendant = descendant;
+         this.name = name;
+         this.attribute = attribute;
+         this.value = value;
+      }
+
+      /**
+       * Returns true when an element matches the step.
+       *
+       * @param elementName the element name
+       * @param attributes the element attributes
+       * @return true when the element matches
+       */
+      boolean matches(N elementName, Attributes attributes)
+      {
+         if (name != null && !name.equals(elementName))
+         {
+            return false;
+         }
+         if (attribute != null)
+         {
+            String attributeValue = attributes.getValue(attribute);
+            return attributeValue != null && (value == null || value.equals(attributeValue));
+         }
+         return true;
+      }
+   }
+}
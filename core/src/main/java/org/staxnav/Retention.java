@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+/**
+ * An amount of entries retained in memory by navigators, an entry is an element that was read from the stream.
+ * The size in bytes is an estimate of the memory used by the entries.
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public final class Retention
+{
+
+   /** No retention. */
+   public static final Retention NONE = new Retention(0, 0);
+
+   /** . */
+   private final long entries;
+
+   /** . */
+   private final long bytes;
+
+   /**
+    * Creates a retention.
+    *
+    * @param entries the number of entries
+    * @param bytes the estimated size in bytes
+    * @throws IllegalArgumentException if any argument is negative
+    */
+   public Retention(long entries, long bytes) throws IllegalArgumentException
+   {
+      if (entries < 0)
+      {
+         throw new IllegalArgumentException("Invalid negative number of entries " + entries);
+      }
+      if (bytes < 0)
+      {
+         throw new IllegalArgumentException("Invalid negative size " + bytes);
+      }
+
+      //
+      this.entries = entries;
+      this.bytes = bytes;
+   }
+
+   /**
+    * Returns the number of entries.
+    *
+    * @return the number of entries
+    */
+   public long getEntries()
+   {
+      return entries;
+   }
+
+   /**
+    * Returns the estimated size in bytes.
+    *
+    * @return the size in bytes
+    */
+   public long getBytes()
+   {
+      return bytes;
+   }
+
+   @Override
+   public boolean equals(Object obj)
+   {
+      if (obj == this)
+      {
+         return true;
+      }
+      if (obj instanceof Retention)
+      {
+         Retention that = (Retention)obj;
+         return entries == that.entries && bytes == that.bytes;
+      }
+      return false;
+   }
+
+   @Override
+   public int hashCode()
+   {
+      return (int)(entries ^ (entries >>> 32)) * 31 + (int)(bytes ^ (bytes >>> 32));
+   }
+
+   @Override
+   public String toString()
+   {
+      return "Retention[entries=" + entries + ",bytes=" + bytes + "]";
+   }
+}
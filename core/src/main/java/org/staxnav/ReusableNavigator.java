@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.staxnav;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * <p>A navigator reused for reading many small documents, for instance the messages consumed from a bus. Each
+ * <code>reset</code> method reads a new document and returns the same root navigator positioned on its root element,
+ * the navigator keeps its naming, its content buffers, its attribute projection and its retention limit, so reading a
+ * document allocates mostly the stream and the elements it reads.</p>
+ *
+ * <p>The stream of the previous document is closed on reset, which lets the stax implementation recycle its
+ * buffers, the underlying input stream or reader is not closed. The forks of the previous document must not be
+ * navigated after a reset, their snapshots remain valid. A reusable navigator is not thread safe.</p>
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ * @param <N> the name type
+ */
+public final class ReusableNavigator<N>
+{
+
+   /** . */
+   private final StaxNavigatorFactory factory;
+
+   /** . */
+   private final Naming<N> naming;
+
+   /** . */
+   private final BytesInputStream bytes;
+
+   /** . */
+   private StaxNavigatorImpl<N> navigator;
+
+   /** The stream of the current document. */
+   private XMLStreamReader stream;
+
+   ReusableNavigator(StaxNavigatorFactory factory, Naming<N> naming)
+   {
+      this.factory = factory;
+      this.naming = naming;
+      this.bytes = new BytesInputStream();
+      this.navigator = null;
+      this.stream = null;
+   }
+
+   /**
+    * Returns the naming of the navigator.
+    *
+    * @return the naming
+    */
+   public Naming<N> getNaming()
+   {
+      return naming;
+   }
+
+   /**
+    * Reads a new document from an input stream.
+    *
+    * @param is the input stream
+    * @return the navigator
+    * @throws NullPointerException if the input stream is null
+    * @throws StaxNavException any StaxNavException
+    */
+   public StaxNavigator<N> reset(InputStream is) throws NullPointerException, StaxNavException
+   {
+      if (is == null)
+      {
+         throw new NullPointerException("No null input stream accepted");
+      }
+      try
+      {
+         return reset(factory.getInputFactory().createXMLStreamReader(is));
+      }
+      catch (XMLStreamException e)
+      {
+         throw new StaxNavException(e);
+      }
+   }
+
+   /**
+    * Reads a new document from a reader.
+    *
+    * @param reader the reader
+    * @return the navigator
+    * @throws NullPointerException if the reader is null
+    * @throws StaxNavException any StaxNavException
+    */
+   public StaxNavigator<N> reset(Reader reader) throws NullPointerException, StaxNavException
+   {
+      if (reader == null)
+      {
+         throw new NullPointerException("No null reader accepted");
+      }
+      try
+      {
+         return reset(factory.getInputFactory().createXMLStreamReader(reader));
+      }
+      catch (XMLStreamException e)
+      {
+         throw new StaxNavException(e);
+      }
+   }
+
+   /**
+    * Reads a new document from bytes, the bytes are read in place and must not be modified until the next reset.
+    *
+    * @param bytes the bytes
+    * @return the navigator
+    * @throws NullPointerException if the bytes are null
+    * @throws StaxNavException any StaxNavException
+    */
+   public StaxNavigator<N> reset(byte[] bytes) throws NullPointerException, StaxNavException
+   {
+      if (bytes == null)
+      {
+         throw new NullPointerException("No null bytes accepted");
+      }
+      return reset(bytes, 0, bytes.length);
+   }
+
+   /**
+    * Reads a new document from a range of bytes, the bytes are read in place and must not be modified until the
+    * next reset.
+    *
+    * @param bytes the bytes
+    * @param offset the offset of the first byte
+    * @param length the number of bytes
+    * @return the navigator
+    * @throws NullPointerException if the bytes are null
+    * @throws IndexOutOfBoundsException if the range is not within the bytes
+    * @throws StaxNavException any StaxNavException
+    */
+   public StaxNavigator<N> reset(byte[] bytes, int offset, int length) throws NullPointerException, IndexOutOfBoundsException, StaxNavException
+   {
+      if (bytes == null)
+      {
+         throw new NullPointerException("No null bytes accepted");
+      }
+      if (offset < 0 || length < 0 || offset + length > bytes.length)
+      {
+         throw new IndexOutOfBoundsException("Range [" + offset + "," + (offset + length) + "[ is not within the bytes");
+      }
+      this.bytes.reset(bytes, offset, offset + length);
+      return reset(this.bytes);
+   }
+
+   /**
+    * Closes the stream of the current document.
+    *
+    * @throws StaxNavException any StaxNavException
+    */
+   public void close() throws StaxNavException
+   {
+      XMLStreamReader previous = stream;
+      if (previous != null)
+      {
+         stream = null;
+         try
+         {
+            previous.close();
+         }
+         catch (XMLStreamException e)
+         {
+            throw new StaxNavException(e);
+         }
+      }
+   }
+
+   private StaxNavigator<N> reset(XMLStreamReader stream) throws XMLStreamException
+   {
+      close();
+      this.stream = stream;
+      if (navigator == null)
+      {
+         navigator = factory.createNavigatorImpl(naming, stream);
+      }
+      else
+      {
+         navigator.reset(stream);
+      }
+      return navigator;
+   }
+
+   /**
+    * An input stream reading a byte array that can be reset to another array.
+    */
+   private static class BytesInputStream extends InputStream
+   {
+
+      /** . */
+      private byte[] bytes;
+
+      /** . */
+      private int position;
+
+      /** . */
+      private int end;
+
+      private void reset(byte[] bytes, int position, int end)
+      {
+         this.bytes = bytes;
+         this.position = position;
+         this.end = end;
+      }
+
+      @Override
+      public int read()
+      {
+         return position < end ? bytes[position++] & 0xFF : -1;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len)
+      {
+         if (len == 0)
+         {
+            return 0;
+         }
+         if (position >= end)
+         {
+            return -1;
+         }
+         int n = Math.min(len, end - position);
+         System.arraycopy(bytes, position, b, off, n);
+         position += n;
+         return n;
+      }
+
+      @Override
+      public long skip(long n)
+      {
+         int skipped = (int)Math.max(0, Math.min(n, end - position));
+         position += skipped;
+         return skipped;
+      }
+
+      @Override
+      public int available()
+      {
+         return end - position;
+      }
+   }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+/**
+ * An immutable snapshot of a subtree created by {@link StaxNavigator#snapshot()}. A snapshot is thread safe, it
+ * creates independent navigators rooted at the subtree root.
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ * @param <N> the name type
+ */
+public interface Snapshot<N>
+{
+
+   /**
+    * Returns the naming of the snapshot.
+    *
+    * @return the naming
+    */
+   Naming<N> getNaming();
+
+   /**
+    * Creates a navigator of the snapshot with the naming of the snapshot.
+    *
+    * @return a new navigator
+    */
+   StaxNavigator<N> navigator();
+
+   /**
+    * Creates a navigator of the snapshot with the specified naming.
+    *
+    * @param naming the naming
+    * @param <N1> the name type
+    * @return a new navigator
+    * @throws NullPointerException if the naming is null
+    */
+   <N1> StaxNavigator<N1> navigator(Naming<N1> naming) throws NullPointerException;
+}
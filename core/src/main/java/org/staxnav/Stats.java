@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+/**
+ * The stats of a document, they are confined to the thread reading the document and published to the stats of
+ * the factory every {@link #PUBLISH_INTERVAL} materialized elements and at the end of the document.
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+class Stats implements NavigatorStats
+{
+
+   /** The stats of the navigators that do not read a stream. */
+   static final NavigatorStats NONE = new Stats(null, false);
+
+   /** . */
+   static final int PUBLISH_INTERVAL = 4096;
+
+   /** . */
+   long elementsRead;
+
+   /** . */
+   long elementsMaterialized;
+
+   /** . */
+   long attributeMapsAllocated;
+
+   /** . */
+   long contentCharsCopied;
+
+   /** . */
+   long nameResolutions;
+
+   /** . */
+   long forksCreated;
+
+   /** . */
+   long streamNanos;
+
+   /** . */
+   long navigatorNanos;
+
+   /** . */
+   final boolean timed;
+
+   /** The factory stats or null. */
+   private final FactoryStats factory;
+
+   /** The values published to the factory stats. */
+   private long[] published;
+
+   /** The array receiving the values to publish, it is swapped with the published values. */
+   private long[] publishing;
+
+   Stats(FactoryStats factory, boolean timed)
+   {
+      this.factory = factory;
+      this.timed = timed;
+      this.published = new long[FactoryStats.SIZE];
+      this.publishing = new long[FactoryStats.SIZE];
+   }
+
+   /**
+    * Returns a mark for measuring the navigator time, the mark excludes the stream time.
+    *
+    * @return the mark
+    */
+   long begin()
+   {
+      return timed ? System.nanoTime() - streamNanos : 0;
+   }
+
+   /**
+    * Accounts the navigator time since a mark.
+    *
+    * @param mark the mark
+    */
+   void end(long mark)
+   {
+      if (timed)
+      {
+         navigatorNanos += System.nanoTime() - streamNanos - mark;
+      }
+   }
+
+   /**
+    * Publishes the values accumulated since the last publication to the factory stats.
+    */
+   void publish()
+   {
+      if (factory != null)
+      {
+         long[] values = publishing;
+         values(values);
+         factory.add(values, published);
+         publishing = published;
+         published = values;
+      }
+   }
+
+   void values(long[] values)
+   {
+      values[0] = elementsRead;
+      values[1] = elementsMaterialized;
+      values[2] = attributeMapsAllocated;
+      values[3] = contentCharsCopied;
+      values[4] = nameResolutions;
+      values[5] = forksCreated;
+      values[6] = streamNanos;
+      values[7] = navigatorNanos;
+   }
+
+   public long getElementsRead()
+   {
+      return elementsRead;
+   }
+
+   public long getElementsMaterialized()
+   {
+      return elementsMaterialized;
+   }
+
+   public long getAttributeMapsAllocated()
+   {
+      return attributeMapsAllocated;
+   }
+
+   public long getContentCharsCopied()
+   {
+      return contentCharsCopied;
+   }
+
+   public long getNameResolutions()
+   {
+      return nameResolutions;
+   }
+
+   public long getForksCreated()
+   {
+      return forksCreated;
+   }
+
+   public long getStreamNanos()
+   {
+      return streamNanos;
+   }
+
+   public long getNavigatorNanos()
+   {
+      return navigatorNanos;
+   }
+}
@@ -21,8 +21,14 @@ package org.staxnav;
 
 import javax.xml.namespace.QName;
 import javax.xml.stream.Location;
+import java.io.Reader;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * @author <a href="mailto:alain.defrance@exoplatform.com">Alain Defrance</a>
@@ -79,6 +85,15 @@ public interface StaxNavigator<N>
     */
    int getDepth() throws StaxNavException;
 
+   /**
+    * Returns the names of the ancestors of the current element within the navigation scope, from the parent to
+    * the navigation root. The names are found in memory, the input is not read.
+    *
+    * @return the ancestor names
+    * @throws StaxNavException any StaxNavException
+    */
+   List<N> getAncestorNames() throws StaxNavException;
+
    /**
     * Returns the current navigated element textual content. Note that this method is only valid when an element
     * content is not mixed, if an element has a mixed content then this method will return null instead.
@@ -88,6 +103,36 @@ public interface StaxNavigator<N>
     */
    String getContent() throws StaxNavException;
 
+   /**
+    * Returns the current navigated element textual content as a read only character sequence, the characters are not
+    * copied and the sequence string value is computed once. The trim content configuration applies to the returned
+    * sequence. Like {@link #getContent()} this method returns null when the element content is mixed.
+    *
+    * @return the element text content
+    * @throws IllegalStateException if the content was consumed by the reader returned by {@link #getContentReader()}
+    * @throws StaxNavException any StaxNavException
+    */
+   CharSequence getContentView() throws IllegalStateException, StaxNavException;
+
+   /**
+    * <p>Returns a reader for the current navigated element textual content. When the content of the element was not
+    * yet read from the stream, which is the case when the element is the last element the navigator read, the reader
+    * streams the content directly from the stream without buffering it. This is the preferred way to consume very
+    * large text content.</p>
+    *
+    * <p>A streamed content is not available anymore from the other content methods of the navigator and the
+    * reader returns the text preceding the first child element when the content is mixed. The reader is valid until
+    * the stream is moved by a navigation, the remaining content is then skipped.</p>
+    *
+    * <p>When the content was already read, the reader reads it from memory and the method returns null
+    * when the content is mixed.</p>
+    *
+    * @return the content reader
+    * @throws IllegalStateException if the content was already consumed by a reader
+    * @throws StaxNavException any StaxNavException
+    */
+   Reader getContentReader() throws IllegalStateException, StaxNavException;
+
    /**
     * Configures the content trimming when {@link #getContent()} method is invoked.
     *
@@ -102,6 +147,68 @@ public interface StaxNavigator<N>
     */
    boolean getTrimContent();
 
+   /**
+    * Returns the stats of the document navigated by this navigator, they are shared with the forks of the document.
+    * The stats are not thread safe and must be read by the thread reading the document.
+    *
+    * @return the stats
+    */
+   NavigatorStats getStats();
+
+   /**
+    * Returns the entries retained in memory by this navigator, from its current element to the last element read
+    * from the stream. A navigator that does not read a stream retains nothing.
+    *
+    * @return the retention of this navigator
+    */
+   Retention getRetention();
+
+   /**
+    * Returns the entries retained in memory by the navigators of the document, from the current element of the
+    * oldest navigator to the last element read from the stream. The navigators taken in account are the navigator
+    * created by the factory, the forks created by the {@link #fork(Axis)} and {@link #fork(Axis, Object)} methods
+    * that are still referenced and this navigator.
+    *
+    * @return the retention of the document
+    */
+   Retention getDocumentRetention();
+
+   /**
+    * Configures the maximum retention of the document, reading an element from the stream fails with a
+    * {@link StaxNavException} naming the oldest navigator when the document retention exceeds the limit.
+    * A null limit removes the limit.
+    *
+    * @param limit the retention limit
+    */
+   void setRetentionLimit(Retention limit);
+
+   /**
+    * Returns the retention limit of the document or null when there is no limit.
+    *
+    * @return the retention limit
+    */
+   Retention getRetentionLimit();
+
+   /**
+    * Configures the attributes retained for the elements this navigator reads from the stream from now on, the
+    * element names of the projection are resolved with the naming of this navigator. The projection of a navigator
+    * is inherited by the forks created afterwards and is not changed by the projection of its forks. The elements
+    * are shared by all the navigators of a stream, so an element keeps the attributes retained by the projection
+    * of the navigator that read it, the elements that were already read are not affected. A null projection
+    * retains all attributes, which is the default.
+    *
+    * @param attributeProjection the attribute projection
+    */
+   void setAttributeProjection(AttributeProjection<N> attributeProjection);
+
+   /**
+    * Returns the attribute projection configured on this navigator or inherited from the navigator it was forked
+    * from with the same naming, or null when it has none.
+    *
+    * @return the attribute projection
+    */
+   AttributeProjection<N> getAttributeProjection();
+
    /**
     * Parses the content of the currently navigated element and return the parsed value.
     *
@@ -115,6 +222,51 @@ public interface StaxNavigator<N>
     */
    <V> V parseContent(ValueType<V> valueType) throws IllegalStateException, NullPointerException, StaxNavException, TypeConversionException;
 
+   /**
+    * Parses the content of the currently navigated element as a decimal int, the content is parsed directly from
+    * the characters of the element without creating an intermediate string.
+    *
+    * @return the parsed content value
+    * @throws IllegalStateException if the current element does not point to a content
+    * @throws StaxNavException any StaxNavException
+    * @throws TypeConversionException when the content is not a valid int
+    */
+   int parseInt() throws IllegalStateException, StaxNavException, TypeConversionException;
+
+   /**
+    * Parses the content of the currently navigated element as a decimal long, the content is parsed directly from
+    * the characters of the element without creating an intermediate string.
+    *
+    * @return the parsed content value
+    * @throws IllegalStateException if the current element does not point to a content
+    * @throws StaxNavException any StaxNavException
+    * @throws TypeConversionException when the content is not a valid long
+    */
+   long parseLong() throws IllegalStateException, StaxNavException, TypeConversionException;
+
+   /**
+    * Parses the content of the currently navigated element as a double, plain decimal values are parsed directly from
+    * the characters of the element without creating an intermediate string.
+    *
+    * @return the parsed content value
+    * @throws IllegalStateException if the current element does not point to a content
+    * @throws StaxNavException any StaxNavException
+    * @throws TypeConversionException when the content is not a valid double
+    */
+   double parseDouble() throws IllegalStateException, StaxNavException, TypeConversionException;
+
+   /**
+    * Parses the content of the currently navigated element as a boolean with the same rules than
+    * {@link Boolean#parseBoolean(String)}, the content is parsed directly from the characters of the element
+    * without creating an intermediate string.
+    *
+    * @return the parsed content value
+    * @throws IllegalStateException if the current element does not point to a content
+    * @throws StaxNavException any StaxNavException
+    * @throws TypeConversionException when the content is not a valid boolean
+    */
+   boolean parseBoolean() throws IllegalStateException, StaxNavException, TypeConversionException;
+
    /**
     * Creates a navigator scoped around the currently navigated element. The returned navigator will uses the current
     * element as navigation root and the navigation scope is the set of descendants of its root. The forked navigator
@@ -191,6 +343,160 @@ public interface StaxNavigator<N>
     */
    Iterable<StaxNavigator<N>> fork(Axis axis, N name) throws NullPointerException;
 
+   /**
+    * Calls back a parser for each fork built according to the rules of {@link #fork(Object)}, see
+    * {@link #fork(Axis, Map)}.
+    *
+    * @param name the name of the root elements of the forked navigator
+    * @param parser the parser
+    * @return the number of parsed forks
+    * @throws NullPointerException if any argument is null
+    * @throws StaxNavException any StaxNavException
+    */
+   int fork(N name, Parser<N> parser) throws NullPointerException, StaxNavException;
+
+   /**
+    * Navigates the elements of the provided axis once and calls back the parser registered for the name of each
+    * element as soon as it is reached, the current element is parsed first. The parser receives a fork rooted at
+    * the element, nothing is retained once the parser returns. When the names are enum constants, the parsers
+    * are looked up by ordinal. This navigator is left on the last element of the axis. On the following sibling axis,
+    * the descendants that a parser did not read are skipped without being parsed.
+    *
+    * <p>The fork received by the parser must not be used after the parser returns. The forks the parser creates
+    * from it with {@link #fork(Axis)} hold the elements of the subtree while the parser runs. Once the parser
+    * returns they can still be used when the subtree was fully read, otherwise they throw an
+    * {@link IllegalStateException} as the descendants were skipped.</p>
+    *
+    * @param axis the axis of navigation
+    * @param parsers the parsers by element name
+    * @return the number of parsed forks
+    * @throws NullPointerException if any argument is null
+    * @throws StaxNavException any StaxNavException
+    */
+   int fork(Axis axis, Map<N, ? extends Parser<N>> parsers) throws NullPointerException, StaxNavException;
+
+   /**
+    * Returns an iterable of stax navigator that is built according to the same rules than {@link #fork(Object)}
+    * but lazily: this navigator is moved to the next matching element only when the iterator is asked for it,
+    * previous forks are therefore not retained and become garbage as soon as they are not used anymore.
+    * The iterable can be iterated once. See {@link #forkStreaming(Axis, Object)} for the skipped descendants.
+    *
+    * @param name the name of the root elements of the forked navigator
+    * @return an iterable of the forks
+    * @throws NullPointerException if the name argument is null
+    */
+   Iterable<StaxNavigator<N>> forkStreaming(N name) throws NullPointerException;
+
+   /**
+    * Returns an iterable of stax navigator that is built according to the same rules than
+    * {@link #fork(Axis, Object)} but lazily: this navigator is moved to the next matching element only when the
+    * iterator is asked for it, previous forks are therefore not retained and become garbage as soon as they are not
+    * used anymore. The iterable can be iterated once. On the following sibling axis, the descendants that a fork
+    * did not read are skipped without being parsed when the iterator moves to the next fork unless another fork of
+    * this navigator created with {@link #fork(Axis)} may still navigate them, such a fork holds the descendants of
+    * its root until the end of the root is read or the fork is not referenced anymore. A fork whose descendants were
+    * skipped throws an {@link IllegalStateException} when it is used afterwards, so the forks should not be collected.
+    *
+    * @param axis the axis of navigation for the forks
+    * @param name the name of the root elements of the forked navigator
+    * @return an iterable of the forks
+    * @throws NullPointerException if any argument is null
+    */
+   Iterable<StaxNavigator<N>> forkStreaming(Axis axis, N name) throws NullPointerException;
+
+   /**
+    * Returns a lazy stream of the forks built according to the same rules than {@link #forkStreaming(Object)}.
+    * This navigator is moved to the next matching element only when the stream pulls it, so short-circuiting
+    * operations stop the parsing as soon as they complete. The stream is ordered and sequential.
+    *
+    * @param name the name of the root elements of the forked navigator
+    * @return the stream of the forks
+    * @throws NullPointerException if the name argument is null
+    */
+   Stream<StaxNavigator<N>> stream(N name) throws NullPointerException;
+
+   /**
+    * Returns a lazy stream of the forks built according to the same rules than
+    * {@link #forkStreaming(Axis, Object)}. This navigator is moved to the next matching element only when the
+    * stream pulls it, so short-circuiting operations stop the parsing as soon as they complete. The stream is
+    * ordered and sequential.
+    *
+    * @param axis the axis of navigation for the forks
+    * @param name the name of the root elements of the forked navigator
+    * @return the stream of the forks
+    * @throws NullPointerException if any argument is null
+    */
+   Stream<StaxNavigator<N>> stream(Axis axis, N name) throws NullPointerException;
+
+   /**
+    * Processes the forks built according to the same rules than {@link #forkStreaming(Object)} on the threads of
+    * an executor, the forks are processed in any order. See
+    * {@link #forkParallel(Axis, Object, ExecutorService, int, boolean, Function, Consumer)}.
+    *
+    * @param name the name of the root elements of the forked navigator
+    * @param executor the executor processing the forks
+    * @param consumer the fork consumer
+    * @throws NullPointerException if any argument is null
+    * @throws StaxNavException any StaxNavException
+    */
+   void forkParallel(N name, ExecutorService executor, Consumer<? super StaxNavigator<N>> consumer)
+      throws NullPointerException, StaxNavException;
+
+   /**
+    * <p>Processes the forks built according to the same rules than {@link #forkStreaming(Axis, Object)} on the
+    * threads of an executor while the current thread keeps on parsing. Before it is handed to the executor, a fork
+    * is detached from the stream: its subtree is fully read and copied into immutable elements so it can be
+    * navigated from another thread, and it cannot navigate beyond its subtree.</p>
+    *
+    * <p>The results of the processor are delivered to the results consumer on the current thread, in the document
+    * order when <code>ordered</code> is true or in completion order otherwise. At most <code>maxInFlight</code>
+    * forks are pending at once, parsing blocks until a fork is processed when this limit is reached. The method
+    * returns when all the forks are processed. When a processor fails, the pending forks are cancelled and its
+    * exception is rethrown.</p>
+    *
+    * @param axis the axis of navigation for the forks
+    * @param name the name of the root elements of the forked navigator
+    * @param executor the executor processing the forks
+    * @param maxInFlight the maximum number of pending forks
+    * @param ordered true to deliver the results in the document order
+    * @param processor the fork processor
+    * @param results the results consumer
+    * @param <R> the result type
+    * @throws NullPointerException if any argument is null
+    * @throws IllegalArgumentException if the max in flight value is not positive
+    * @throws StaxNavException any StaxNavException
+    */
+   <R> void forkParallel(
+      Axis axis,
+      N name,
+      ExecutorService executor,
+      int maxInFlight,
+      boolean ordered,
+      Function<? super StaxNavigator<N>, ? extends R> processor,
+      Consumer<? super R> results) throws NullPointerException, IllegalArgumentException, StaxNavException;
+
+   /**
+    * Returns the descendants of the current element selected by a path, they are found lazily in a single
+    * forward pass. This navigator is moved to each selected element when the iterator returns it. The iterable
+    * can be iterated once.
+    *
+    * @param path the path
+    * @return an iterable of the forks of the selected elements
+    * @throws NullPointerException if the path is null
+    * @throws StaxNavException any StaxNavException
+    */
+   Iterable<StaxNavigator<N>> select(PathExpression<N> path) throws NullPointerException, StaxNavException;
+
+   /**
+    * Reads the subtree of the current element and returns an immutable snapshot of it. The snapshot can be shared
+    * by several threads, each thread navigates it with its own navigator. The navigators of the snapshot cannot
+    * navigate outside of the subtree. This navigator is not moved.
+    *
+    * @return the snapshot
+    * @throws StaxNavException any StaxNavException
+    */
+   Snapshot<N> snapshot() throws StaxNavException;
+
    /**
     * Attempts to navigate to an element following the current one when it has the specified name.
     * If the navigation occurs, the navigator now points to that element and the method returns true.
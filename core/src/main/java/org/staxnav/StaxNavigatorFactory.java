@@ -16,22 +16,215 @@
 * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
 * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
 */
+
 package org.staxnav;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 /**
+ * <p>Creates navigators. A factory instance is configured once with its {@link Builder} and can then be shared by
+ * several threads to create the navigators of many documents, it retains its own {@link XMLInputFactory} so
+ * the input factory lookup happens only when the factory is built.</p>
+ *
+ * <p>The static <code>create</code> methods use a default factory created on first use, the navigators it creates
+ * do not publish their stats to any factory.</p>
+ *
  * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
  * @version $Revision$
  */
 public class StaxNavigatorFactory
 {
 
+   /**
+    * Returns a builder for configuring a factory.
+    *
+    * @return a new builder
+    */
+   public static Builder builder()
+   {
+      return new Builder();
+   }
+
    public static <N> StaxNavigator<N> create(Naming<N> naming, XMLStreamReader stream) throws NullPointerException, StaxNavException
+   {
+      return DefaultFactory.INSTANCE.createNavigator(naming, stream);
+   }
+
+   public static <N> StaxNavigator<N> create(Naming<N> naming, InputStream is) throws NullPointerException, StaxNavException
+   {
+      return DefaultFactory.INSTANCE.createNavigator(naming, is);
+   }
+
+   public static <N> StaxNavigator<N> create(Naming<N> naming, Reader reader) throws NullPointerException, StaxNavException
+   {
+      return DefaultFactory.INSTANCE.createNavigator(naming, reader);
+   }
+
+   public static <N> StaxNavigator<N> create(Naming<N> naming, Path path) throws NullPointerException, StaxNavException
+   {
+      return DefaultFactory.INSTANCE.createNavigator(naming, path);
+   }
+
+   public static <N> StaxNavigator<N> create(Naming<N> naming, FileChannel channel) throws NullPointerException, StaxNavException
+   {
+      return DefaultFactory.INSTANCE.createNavigator(naming, channel);
+   }
+
+   /** The size up to which {@link #processAll} reads a document in a buffer instead of mapping it. */
+   static final int BUFFERED_FILE_SIZE = 1024 * 1024;
+
+   /** . */
+   private final XMLInputFactory inputFactory;
+
+   /** . */
+   private final boolean trimContent;
+
+   /** . */
+   private final Retention retentionLimit;
+
+   /** . */
+   private final boolean timing;
+
+   /** . */
+   private final boolean singleCursor;
+
+   /** . */
+   private final FactoryStats stats;
+
+   /** False when the created navigators do not publish their stats to this factory. */
+   private final boolean publishing;
+
+   /**
+    * Creates a factory with the default configuration.
+    */
+   public StaxNavigatorFactory()
+   {
+      this(XMLInputFactory.newInstance(), false, null, false, false, true);
+   }
+
+   private StaxNavigatorFactory(
+      XMLInputFactory inputFactory,
+      boolean trimContent,
+      Retention retentionLimit,
+      boolean timing,
+      boolean singleCursor,
+      boolean publishing)
+   {
+      this.inputFactory = inputFactory;
+      this.trimContent = trimContent;
+      this.retentionLimit = retentionLimit;
+      this.timing = timing;
+      this.singleCursor = singleCursor;
+      this.stats = new FactoryStats();
+      this.publishing = publishing;
+   }
+
+   /**
+    * Returns the input factory used to create the streams of the navigators.
+    *
+    * @return the input factory
+    */
+   public XMLInputFactory getInputFactory()
+   {
+      return inputFactory;
+   }
+
+   /**
+    * Returns the trim mode of the created navigators.
+    *
+    * @return the trim mode
+    */
+   public boolean getTrimContent()
+   {
+      return trimContent;
+   }
+
+   /**
+    * Returns the retention limit of the created navigators or null when there is no limit.
+    *
+    * @return the retention limit
+    */
+   public Retention getRetentionLimit()
+   {
+      return retentionLimit;
+   }
+
+   /**
+    * Returns true when the created navigators measure the time spent reading the stream.
+    *
+    * @return the timing mode
+    */
+   public boolean getTiming()
+   {
+      return timing;
+   }
+
+   /**
+    * Returns true when the created navigators are single cursors.
+    *
+    * @return the single cursor mode
+    */
+   public boolean getSingleCursor()
+   {
+      return singleCursor;
+   }
+
+   /**
+    * Returns the stats aggregated from the documents of the created navigators. A document publishes its stats
+    * every few thousands elements and when its end is reached.
+    *
+    * @return the stats
+    */
+   public NavigatorStats getStats()
+   {
+      return stats;
+   }
+
+   /**
+    * Registers the stats of this factory as an MBean exposing the {@link NavigatorStats} attributes.
+    *
+    * @param server the MBean server
+    * @param name the MBean name
+    * @throws NullPointerException if any argument is null
+    * @throws JMException any exception thrown by the server
+    */
+   public void registerMBean(MBeanServer server, ObjectName name) throws NullPointerException, JMException
+   {
+      if (server == null)
+      {
+         throw new NullPointerException("No null server accepted");
+      }
+      if (name == null)
+      {
+         throw new NullPointerException("No null name accepted");
+      }
+      server.registerMBean(new StandardMBean(stats, NavigatorStats.class), name);
+   }
+
+   public <N> StaxNavigator<N> createNavigator(Naming<N> naming, XMLStreamReader stream) throws NullPointerException, StaxNavException
    {
       if (naming == null)
       {
@@ -43,7 +236,7 @@ public class StaxNavigatorFactory
       }
       try
       {
-         return new StaxNavigatorImpl<N>(naming, stream);
+         return createNavigatorImpl(naming, stream);
       }
       catch (XMLStreamException e)
       {
@@ -51,7 +244,7 @@ public class StaxNavigatorFactory
       }
    }
 
-   public static <N> StaxNavigator<N> create(Naming<N> naming, InputStream is) throws NullPointerException, StaxNavException
+   public <N> StaxNavigator<N> createNavigator(Naming<N> naming, InputStream is) throws NullPointerException, StaxNavException
    {
       if (naming == null)
       {
@@ -63,9 +256,7 @@ public class StaxNavigatorFactory
       }
       try
       {
-         XMLInputFactory factory = XMLInputFactory.newInstance();
-         XMLStreamReader stream = factory.createXMLStreamReader(is);
-         return new StaxNavigatorImpl<N>(naming, stream);
+         return createNavigatorImpl(naming, inputFactory.createXMLStreamReader(is));
       }
       catch (XMLStreamException e)
       {
@@ -73,7 +264,7 @@ public class StaxNavigatorFactory
       }
    }
 
-   public static <N> StaxNavigator<N> create(Naming<N> naming, Reader reader) throws NullPointerException, StaxNavException
+   public <N> StaxNavigator<N> createNavigator(Naming<N> naming, Reader reader) throws NullPointerException, StaxNavException
    {
       if (naming == null)
       {
@@ -85,13 +276,517 @@ public class StaxNavigatorFactory
       }
       try
       {
-         XMLInputFactory factory = XMLInputFactory.newInstance();
-         XMLStreamReader stream = factory.createXMLStreamReader(reader);
-         return new StaxNavigatorImpl<N>(naming, stream);
+         return createNavigatorImpl(naming, inputFactory.createXMLStreamReader(reader));
       }
       catch (XMLStreamException e)
       {
          throw new StaxNavException(e);
       }
    }
+
+   /**
+    * Creates a navigator reading a file through memory mapped windows, the file content is not copied in the heap.
+    * The windows are unmapped by the garbage collector once they are read.
+    *
+    * @param naming the naming
+    * @param path the file path
+    * @param <N> the name type
+    * @return the navigator
+    * @throws NullPointerException if any argument is null
+    * @throws StaxNavException if the file cannot be read or parsed
+    */
+   public <N> StaxNavigator<N> createNavigator(Naming<N> naming, Path path) throws NullPointerException, StaxNavException
+   {
+      if (naming == null)
+      {
+         throw new NullPointerException("No null naming accepted");
+      }
+      if (path == null)
+      {
+         throw new NullPointerException("No null path accepted");
+      }
+      try
+      {
+         return createNavigator(naming, new MappedInputStream(path, MappedInputStream.DEFAULT_WINDOW_SIZE));
+      }
+      catch (IOException e)
+      {
+         throw new StaxNavException(null, e);
+      }
+   }
+
+   /**
+    * Creates a navigator reading a channel through memory mapped windows from its current position, the channel
+    * content is not copied in the heap. The channel is not closed by the navigator, its position is advanced to the
+    * bytes consumed by the parser once the end of the channel is reached.
+    *
+    * @param naming the naming
+    * @param channel the file channel
+    * @param <N> the name type
+    * @return the navigator
+    * @throws NullPointerException if any argument is null
+    * @throws StaxNavException if the channel cannot be read or parsed
+    */
+   public <N> StaxNavigator<N> createNavigator(Naming<N> naming, FileChannel channel) throws NullPointerException, StaxNavException
+   {
+      if (naming == null)
+      {
+         throw new NullPointerException("No null naming accepted");
+      }
+      if (channel == null)
+      {
+         throw new NullPointerException("No null channel accepted");
+      }
+      try
+      {
+         return createNavigator(naming, new MappedInputStream(channel, MappedInputStream.DEFAULT_WINDOW_SIZE));
+      }
+      catch (IOException e)
+      {
+         throw new StaxNavException(null, e);
+      }
+   }
+
+   /**
+    * Creates a navigator reused for reading many documents, see {@link ReusableNavigator}.
+    *
+    * @param naming the naming
+    * @param <N> the name type
+    * @return the reusable navigator
+    * @throws NullPointerException if the naming is null
+    */
+   public <N> ReusableNavigator<N> createReusableNavigator(Naming<N> naming) throws NullPointerException
+   {
+      if (naming == null)
+      {
+         throw new NullPointerException("No null naming accepted");
+      }
+      return new ReusableNavigator<N>(this, naming);
+   }
+
+   /**
+    * Creates a navigator reading a non blocking stream fed with the input feeder, the stream returns the
+    * {@link AsyncStaxNavigator#EVENT_INCOMPLETE} event when it needs more input. The content reader of the
+    * navigator blocks the caller and should not be used with a non blocking stream.
+    *
+    * @param naming the naming
+    * @param stream the non blocking stream
+    * @param feeder the feeder of the stream
+    * @param <N> the name type
+    * @return the async navigator
+    * @throws NullPointerException if any argument is null
+    * @throws StaxNavException any StaxNavException
+    */
+   public <N> AsyncStaxNavigator<N> createAsyncNavigator(Naming<N> naming, XMLStreamReader stream, InputFeeder feeder) throws NullPointerException, StaxNavException
+   {
+      if (naming == null)
+      {
+         throw new NullPointerException("No null naming accepted");
+      }
+      if (stream == null)
+      {
+         throw new NullPointerException("No null stream accepted");
+      }
+      if (feeder == null)
+      {
+         throw new NullPointerException("No null feeder accepted");
+      }
+      try
+      {
+         return new AsyncStaxNavigatorImpl<N>(createNavigatorImpl(naming, AsyncStaxNavigatorImpl.wrap(stream)), feeder);
+      }
+      catch (XMLStreamException e)
+      {
+         throw new StaxNavException(e);
+      }
+   }
+
+   /**
+    * Processes documents in parallel with the common fork join pool, see
+    * {@link #processAll(Collection, Naming, Function, ExecutorService)}.
+    *
+    * @param paths the document paths
+    * @param naming the naming
+    * @param function the function processing a document
+    * @param <N> the name type
+    * @param <R> the result type
+    * @return the results in the order of the paths
+    * @throws NullPointerException if any argument is null
+    * @throws StaxNavException if a document cannot be read or parsed
+    */
+   public <N, R> List<R> processAll(Collection<Path> paths, Naming<N> naming, Function<? super StaxNavigator<N>, ? extends R> function) throws NullPointerException, StaxNavException
+   {
+      return processAll(paths, naming, function, ForkJoinPool.commonPool());
+   }
+
+   /**
+    * Processes documents in parallel: each document is read by a navigator created by this factory and processed
+    * by the function on a thread of the executor. The navigators share the input factory and the naming, the
+    * naming must therefore be thread safe as the provided namings are. A failure cancels the processing of the
+    * documents not processed yet and is rethrown, a runtime exception as is and a checked exception wrapped in a
+    * {@link StaxNavException}.
+    *
+    * <p>The threads reuse a {@link ReusableNavigator} from one document to the next, a document smaller than one
+    * megabyte is read in a buffer reused as well and a larger one is memory mapped. The document is closed when the
+    * function returns, so the function must not return the navigator or its forks, their snapshots remain valid.</p>
+    *
+    * @param paths the document paths
+    * @param naming the naming
+    * @param function the function processing a document
+    * @param executor the executor
+    * @param <N> the name type
+    * @param <R> the result type
+    * @return the results in the order of the paths
+    * @throws NullPointerException if any argument is null
+    * @throws StaxNavException if a document cannot be read or parsed
+    */
+   public <N, R> List<R> processAll(Collection<Path> paths, final Naming<N> naming, final Function<? super StaxNavigator<N>, ? extends R> function, ExecutorService executor) throws NullPointerException, StaxNavException
+   {
+      if (paths == null)
+      {
+         throw new NullPointerException("No null paths accepted");
+      }
+      if (naming == null)
+      {
+         throw new NullPointerException("No null naming accepted");
+      }
+      if (function == null)
+      {
+         throw new NullPointerException("No null function accepted");
+      }
+      if (executor == null)
+      {
+         throw new NullPointerException("No null executor accepted");
+      }
+      final Queue<Worker<N>> workers = new ConcurrentLinkedQueue<Worker<N>>();
+      List<Future<R>> futures = new ArrayList<Future<R>>(paths.size());
+      try
+      {
+         for (final Path path : paths)
+         {
+            if (path == null)
+            {
+               throw new NullPointerException("No null path accepted");
+            }
+
+            // A task takes an idle worker, so there are no more workers than threads processing documents
+            futures.add(executor.submit(() ->
+            {
+               Worker<N> worker = workers.poll();
+               if (worker == null)
+               {
+                  worker = new Worker<N>(createReusableNavigator(naming));
+               }
+               try
+               {
+                  return worker.process(path, function);
+               }
+               finally
+               {
+                  workers.offer(worker);
+               }
+            }));
+         }
+         List<R> results = new ArrayList<R>(futures.size());
+         for (Future<R> future : futures)
+         {
+            results.add(future.get());
+         }
+         futures.clear();
+         return results;
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new StaxNavException(null, e);
+      }
+      catch (ExecutionException e)
+      {
+         Throwable cause = e.getCause();
+         if (cause instanceof RuntimeException)
+         {
+            throw (RuntimeException)cause;
+         }
+         if (cause instanceof Error)
+         {
+            throw (Error)cause;
+         }
+         throw new StaxNavException(null, cause);
+      }
+      finally
+      {
+         for (Future<R> future : futures)
+         {
+            future.cancel(true);
+         }
+      }
+   }
+
+   <N> StaxNavigatorImpl<N> createNavigatorImpl(Naming<N> naming, XMLStreamReader stream) throws XMLStreamException
+   {
+      StaxNavigatorImpl<N> navigator = new StaxNavigatorImpl<N>(naming, stream, publishing ? stats : null, timing);
+      navigator.setTrimContent(trimContent);
+      navigator.setRetentionLimit(retentionLimit);
+      if (singleCursor)
+      {
+         navigator.setSingleCursor();
+      }
+      return navigator;
+   }
+
+   /**
+    * The navigator and the buffer a thread reuses for processing documents.
+    */
+   private static class Worker<N>
+   {
+
+      /** . */
+      private final ReusableNavigator<N> navigator;
+
+      /** . */
+      private byte[] buffer;
+
+      private Worker(ReusableNavigator<N> navigator)
+      {
+         this.navigator = navigator;
+         this.buffer = new byte[4096];
+      }
+
+      /**
+       * Processes a document, the document is read in the buffer when it is smaller than
+       * {@link StaxNavigatorFactory#BUFFERED_FILE_SIZE} otherwise it is mapped. The stream and the channel are closed
+       * when the function returns.
+       *
+       * @param path the document path
+       * @param function the function processing the document
+       * @param <R> the result type
+       * @return the result
+       * @throws IOException any io exception
+       */
+      private <R> R process(Path path, Function<? super StaxNavigator<N>, ? extends R> function) throws IOException
+      {
+         FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+         try
+         {
+            StaxNavigator<N> nav;
+            long size = channel.size();
+            if (size <= BUFFERED_FILE_SIZE)
+            {
+               if (size > buffer.length)
+               {
+                  buffer = new byte[(int)Math.min(BUFFERED_FILE_SIZE, Math.max(size, buffer.length * 2L))];
+               }
+               ByteBuffer dst = ByteBuffer.wrap(buffer, 0, (int)size);
+               while (dst.hasRemaining() && channel.read(dst) != -1)
+               {
+                  // Read until the buffer is full or the end of the file
+               }
+               nav = navigator.reset(buffer, 0, dst.position());
+            }
+            else
+            {
+               nav = navigator.reset(new MappedInputStream(channel, MappedInputStream.DEFAULT_WINDOW_SIZE));
+            }
+            return function.apply(nav);
+         }
+         finally
+         {
+            try
+            {
+               navigator.close();
+            }
+            finally
+            {
+               channel.close();
+            }
+         }
+      }
+   }
+
+   /**
+    * Lazily creates the default factory.
+    */
+   private static class DefaultFactory
+   {
+
+      /** The default factory does not aggregate the stats of the navigators created by the static methods. */
+      private static final StaxNavigatorFactory INSTANCE = new StaxNavigatorFactory(XMLInputFactory.newInstance(), false, null, false, false, false);
+
+   }
+
+   /**
+    * <p>Configures a factory. Properties that are not configured keep the value of the input factory.</p>
+    *
+    * <p>When an input factory is provided, the builder configures it with the properties, the input factory
+    * should not be modified anymore once the navigator factory is built.</p>
+    */
+   public static class Builder
+   {
+
+      /** . */
+      private XMLInputFactory inputFactory;
+
+      /** . */
+      private Boolean coalescing;
+
+      /** . */
+      private Boolean namespaceAware;
+
+      /** . */
+      private Boolean supportDTD;
+
+      /** . */
+      private boolean trimContent;
+
+      /** . */
+      private Retention retentionLimit;
+
+      /** . */
+      private boolean timing;
+
+      /** . */
+      private boolean singleCursor;
+
+      private Builder()
+      {
+         this.inputFactory = null;
+         this.coalescing = null;
+         this.namespaceAware = null;
+         this.supportDTD = null;
+         this.trimContent = false;
+         this.retentionLimit = null;
+         this.timing = false;
+         this.singleCursor = false;
+      }
+
+      /**
+       * Sets the input factory, when no input factory is set a new one is obtained with
+       * {@link XMLInputFactory#newInstance()}.
+       *
+       * @param inputFactory the input factory
+       * @return this builder
+       */
+      public Builder inputFactory(XMLInputFactory inputFactory)
+      {
+         this.inputFactory = inputFactory;
+         return this;
+      }
+
+      /**
+       * Configures the {@link XMLInputFactory#IS_COALESCING} property.
+       *
+       * @param coalescing the coalescing property
+       * @return this builder
+       */
+      public Builder coalescing(boolean coalescing)
+      {
+         this.coalescing = coalescing;
+         return this;
+      }
+
+      /**
+       * Configures the {@link XMLInputFactory#IS_NAMESPACE_AWARE} property.
+       *
+       * @param namespaceAware the namespace awareness property
+       * @return this builder
+       */
+      public Builder namespaceAware(boolean namespaceAware)
+      {
+         this.namespaceAware = namespaceAware;
+         return this;
+      }
+
+      /**
+       * Configures the {@link XMLInputFactory#SUPPORT_DTD} property.
+       *
+       * @param supportDTD the DTD support property
+       * @return this builder
+       */
+      public Builder supportDTD(boolean supportDTD)
+      {
+         this.supportDTD = supportDTD;
+         return this;
+      }
+
+      /**
+       * Configures the default trim mode of the created navigators.
+       *
+       * @param trimContent true to trim content
+       * @return this builder
+       */
+      public Builder trimContent(boolean trimContent)
+      {
+         this.trimContent = trimContent;
+         return this;
+      }
+
+      /**
+       * Configures the retention limit of the created navigators, see {@link StaxNavigator#setRetentionLimit(Retention)}.
+       *
+       * @param retentionLimit the retention limit or null for no limit
+       * @return this builder
+       */
+      public Builder retentionLimit(Retention retentionLimit)
+      {
+         this.retentionLimit = retentionLimit;
+         return this;
+      }
+
+      /**
+       * Configures the measure of the time spent reading the stream by the created navigators, see
+       * {@link NavigatorStats#getStreamNanos()} and {@link NavigatorStats#getNavigatorNanos()}.
+       *
+       * @param timing true to measure the time
+       * @return this builder
+       */
+      public Builder timing(boolean timing)
+      {
+         this.timing = timing;
+         return this;
+      }
+
+      /**
+       * Configures the created navigators as single cursors. A single cursor cannot be forked, the fork, stream and
+       * select methods throw an <code>IllegalStateException</code>, in exchange the elements it navigated past are
+       * recycled with their attributes and content chars for reading the next elements, so navigating a document
+       * allocates almost nothing once the cursor is warmed up. The content views and the attribute maps of an element
+       * are valid until the cursor moves past it, the content strings and the snapshots remain valid.
+       *
+       * @param singleCursor true for single cursors
+       * @return this builder
+       */
+      public Builder singleCursor(boolean singleCursor)
+      {
+         this.singleCursor = singleCursor;
+         return this;
+      }
+
+      /**
+       * Builds the factory.
+       *
+       * @return the factory
+       * @throws IllegalArgumentException if the input factory does not support a configured property
+       */
+      public StaxNavigatorFactory build() throws IllegalArgumentException
+      {
+         XMLInputFactory inputFactory = this.inputFactory;
+         if (inputFactory == null)
+         {
+            inputFactory = XMLInputFactory.newInstance();
+         }
+         if (coalescing != null)
+         {
+            inputFactory.setProperty(XMLInputFactory.IS_COALESCING, coalescing);
+         }
+         if (namespaceAware != null)
+         {
+            inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, namespaceAware);
+         }
+         if (supportDTD != null)
+         {
+            inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, supportDTD);
+         }
+         return new StaxNavigatorFactory(inputFactory, trimContent, retentionLimit, timing, singleCursor, true);
+      }
+   }
 }
@@ -25,14 +25,35 @@ import javax.xml.stream.Location;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
@@ -41,6 +62,9 @@ import java.util.Set;
 class StaxNavigatorImpl<N> implements StaxNavigator<N>
 {
 
+   /** The default number of forks processed at once by a parallel fork. */
+   private static final int DEFAULT_MAX_IN_FLIGHT = Runtime.getRuntime().availableProcessors() * 2;
+
    /** . */
    private final Naming<N> naming;
 
@@ -50,10 +74,27 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
    /** . */
    private final int depth;
 
+   /** The root element of a fork or null, the fork is invalid once the unread descendants of its root are skipped. */
+   private Element root;
+
+   /**
+    * The depth of the root of the streamed fork this navigator derives from or -1, the streaming may skip that root
+    * once it moved past it even when this navigator is a holder.
+    */
+   private final int bound;
+
    /** . */
    private boolean trimContent;
 
+   /** The attribute projection of the elements read by this navigator or null. */
+   private Projection<?> projection;
+
    StaxNavigatorImpl(Naming<N> naming, XMLStreamReader stream) throws XMLStreamException
+   {
+      this(naming, stream, null, false);
+   }
+
+   StaxNavigatorImpl(Naming<N> naming, XMLStreamReader stream, FactoryStats factoryStats, boolean timed) throws XMLStreamException
    {
       if (naming == null)
       {
@@ -66,22 +107,55 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
 
       //
       this.naming = naming;
-      this.current = new HeadEntry(stream);
+      this.current = new HeadEntry(new Document(stream, new Stats(factoryStats, timed)));
       this.depth = 0;
+      this.root = null;
+      this.bound = -1;
       this.trimContent = false;
+      this.projection = null;
+
+      //
+      current.getDocument().register(this);
    }
 
-   private StaxNavigatorImpl(Naming<N> naming, Entry current, boolean trimContent)
+   private StaxNavigatorImpl(Naming<N> naming, Entry current, boolean trimContent, Projection<?> projection, int bound)
    {
       this.naming = naming;
       this.current = current;
-      this.depth = current.getElement().getDepth();
+      this.root = current.getElement();
+      this.depth = root.getDepth();
+      this.bound = bound;
       this.trimContent = trimContent;
+      this.projection = projection;
+   }
+
+   /**
+    * Makes this root navigator a single cursor, it must be invoked before the stream is read.
+    */
+   void setSingleCursor()
+   {
+      current.getDocument().setCursor();
+   }
+
+   /**
+    * Resets this root navigator to the root of another stream. The document and its buffers are reused, so the forks
+    * of the previous stream must not be navigated anymore.
+    *
+    * @param stream the stream
+    */
+   void reset(XMLStreamReader stream)
+   {
+      Document document = current.getDocument();
+      document.reset(stream);
+      this.current = new HeadEntry(document);
+
+      //
+      document.register(this);
    }
 
    public N getName() throws StaxNavException
    {
-      return current.getElement().getName(naming);
+      return enter().getElement().getName(naming);
    }
 
    public Naming<N> getNaming()
@@ -91,22 +165,32 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
 
    public String getLocalName() throws StaxNavException
    {
-      return current.getElement().getName().getLocalPart();
+      return enter().getElement().getName().getLocalPart();
    }
 
    public QName getQName() throws StaxNavException
    {
-      return current.getElement().getName();
+      return enter().getElement().getName();
    }
 
    public Location getLocation() throws StaxNavException
    {
-      return current.getElement().getLocation();
+      return enter().getElement().getLocation();
    }
 
    public int getDepth() throws StaxNavException
    {
-      return current.getElement().getDepth();
+      return enter().getElement().getDepth();
+   }
+
+   public List<N> getAncestorNames() throws StaxNavException
+   {
+      List<N> names = new ArrayList<N>();
+      for (Element ancestor = enter().getElement().getParent();ancestor != null && ancestor.getDepth() >= depth;ancestor = ancestor.getParent())
+      {
+         names.add(ancestor.getName(naming));
+      }
+      return Collections.unmodifiableList(names);
    }
 
    public void setTrimContent(boolean trimContent)
@@ -119,9 +203,99 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
       return trimContent;
    }
 
+   public NavigatorStats getStats()
+   {
+      Stats stats = current.getDocument().stats;
+      return stats != null ? stats : Stats.NONE;
+   }
+
+   public Retention getRetention()
+   {
+      return current.getDocument().getRetention(current);
+   }
+
+   public Retention getDocumentRetention()
+   {
+      StaxNavigatorImpl<?> oldest = current.getDocument().getOldest(this);
+      return oldest.getRetention();
+   }
+
+   public void setRetentionLimit(Retention limit)
+   {
+      current.getDocument().setRetentionLimit(limit);
+   }
+
+   public Retention getRetentionLimit()
+   {
+      return current.getDocument().limit;
+   }
+
    public String getContent() throws StaxNavException
    {
-      return current.getElement().getContent(trimContent);
+      return getCapturedElement().getContent(trimContent);
+   }
+
+   public CharSequence getContentView() throws IllegalStateException, StaxNavException
+   {
+      return getCapturedElement().getContentView(trimContent);
+   }
+
+   public Reader getContentReader() throws IllegalStateException, StaxNavException
+   {
+      Element element = enter().getElement();
+      Reader reader = current.getDocument().stream(element);
+      if (reader == null)
+      {
+         Content content = element.getContentView(trimContent);
+         reader = content != null ? new StringReader(content.toString()) : null;
+      }
+      return reader;
+   }
+
+   /**
+    * Returns the current element after its content was read.
+    *
+    * @return the current element
+    * @throws StaxNavException any StaxNavException
+    */
+   private Element getCapturedElement() throws StaxNavException
+   {
+      Element element = enter().getElement();
+      current.getDocument().complete(element);
+      return element;
+   }
+
+   public void setAttributeProjection(AttributeProjection<N> attributeProjection)
+   {
+      this.projection = attributeProjection != null ? new Projection<N>(naming, attributeProjection) : null;
+   }
+
+   @SuppressWarnings("unchecked")
+   public AttributeProjection<N> getAttributeProjection()
+   {
+      // A projection inherited from a navigator using another naming is not typed by the naming of this navigator
+      return projection != null && projection.naming == naming ? (AttributeProjection<N>)projection.projection : null;
+   }
+
+   /**
+    * Returns the current entry, the elements read from the stream from now on are projected with the attribute
+    * projection of this navigator.
+    *
+    * @return the current entry
+    */
+   private Entry enter() throws IllegalStateException
+   {
+      if (root != null && root.truncated)
+      {
+         throw new IllegalStateException("The descendants of the fork root " + root.getName() + " were skipped by " +
+            "the navigator it was forked from");
+      }
+      Document document = current.getDocument();
+      if (document.stream != null)
+      {
+         document.projection = projection;
+      }
+      return current;
    }
 
    public <V> V parseContent(ValueType<V> valueType) throws IllegalStateException, NullPointerException, StaxNavException
@@ -130,40 +304,104 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
       {
          throw new NullPointerException();
       }
-      Entry element = current;
-      String content = element.getElement().getContent(true);
-      if (content == null)
+      Element element = getCapturedElement();
+      CharSequence content = getParsableContent(element);
+      try
       {
-         throw new IllegalStateException("No content available for parsing");
+         return valueType.parse(content);
+      }
+      catch (Exception e)
+      {
+         throw createConversionException(element, content, e);
       }
+   }
+
+   public int parseInt() throws IllegalStateException, StaxNavException, TypeConversionException
+   {
+      Element element = getCapturedElement();
+      CharSequence content = getParsableContent(element);
       try
       {
-         return valueType.parse(content);
+         return ValueType.INTEGER_TYPE.parseInt(content);
       }
       catch (Exception e)
       {
-         if (e instanceof TypeConversionException)
-         {
-            throw (TypeConversionException)e;
-         }
-         else
-         {
-            throw new TypeConversionException(element.getElement().getLocation(), e, "Could not parse string value " + content);
-         }
+         throw createConversionException(element, content, e);
       }
    }
 
-   public String getAttribute(String name) throws NullPointerException, IllegalStateException, StaxNavException
+   public long parseLong() throws IllegalStateException, StaxNavException, TypeConversionException
    {
-      Map<String, String> attributes = current.getElement().getAttributes();
-      if (attributes.isEmpty())
+      Element element = getCapturedElement();
+      CharSequence content = getParsableContent(element);
+      try
       {
-         return null;
+         return ValueType.LONG_TYPE.parseLong(content);
+      }
+      catch (Exception e)
+      {
+         throw createConversionException(element, content, e);
+      }
+   }
+
+   public double parseDouble() throws IllegalStateException, StaxNavException, TypeConversionException
+   {
+      Element element = getCapturedElement();
+      CharSequence content = getParsableContent(element);
+      try
+      {
+         return ValueType.DOUBLE_TYPE.parseDouble(content);
+      }
+      catch (Exception e)
+      {
+         throw createConversionException(element, content, e);
+      }
+   }
+
+   public boolean parseBoolean() throws IllegalStateException, StaxNavException, TypeConversionException
+   {
+      Element element = getCapturedElement();
+      CharSequence content = getParsableContent(element);
+      try
+      {
+         return ValueType.BOOLEAN_TYPE.parseBoolean(content);
+      }
+      catch (Exception e)
+      {
+         throw createConversionException(element, content, e);
+      }
+   }
+
+   private static CharSequence getParsableContent(Element element) throws IllegalStateException
+   {
+      CharSequence content = element.getContentChars();
+      if (content == null)
+      {
+         throw new IllegalStateException("No content available for parsing");
+      }
+      return content;
+   }
+
+   private static TypeConversionException createConversionException(Element element, CharSequence content, Exception e)
+   {
+      if (e instanceof TypeConversionException)
+      {
+         return (TypeConversionException)e;
       }
       else
       {
-         return attributes.get(name);
+         String s = content.toString().trim();
+         return new TypeConversionException(element.getLocation(), e, "Could not parse string value " + s);
+      }
+   }
+
+   public String getAttribute(String name) throws NullPointerException, IllegalStateException, StaxNavException
+   {
+      if (name == null)
+      {
+         throw new NullPointerException("No null attribute name expected");
       }
+      return enter().getElement().getAttributes().getValue(name);
    }
 
    public <N1> StaxNavigator<N1> fork(Naming<N1> naming) throws StaxNavException {
@@ -175,7 +413,10 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
       {
          throw new NullPointerException("No null axis accepted");
       }
-      StaxNavigatorImpl<N1> fork = new StaxNavigatorImpl<N1>(naming, current, trimContent);
+      checkFork();
+      StaxNavigatorImpl<N1> fork = new StaxNavigatorImpl<N1>(naming, enter(), trimContent, projection, bound);
+      current.getDocument().forked();
+      current.getDocument().hold(fork, fork.root, bound);
       Entry next = _navigate(current, axis, null);
       if (next != null)
       {
@@ -209,6 +450,11 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
       {
          throw new NullPointerException("No null name accepted");
       }
+      checkFork();
+
+      // The returned iterable holds entries, the anchor accounts for them until the iterable is not referenced
+      final StaxNavigatorImpl<N> anchor = new StaxNavigatorImpl<N>(naming, enter(), trimContent, projection, bound);
+      Document document = current.getDocument();
 
       //
       List<Entry> elements;
@@ -232,13 +478,35 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
          elements.add(current);
       }
 
+      // The descendants of the open elements are not read yet, the outermost one is held until it ends
+      Entry outermost = null;
+      for (Entry entry : elements)
+      {
+         Element element = entry.getElement();
+         if (document.isOpen(element) && (outermost == null || element.getDepth() <= outermost.getElement().getDepth()))
+         {
+            outermost = entry;
+         }
+      }
+      if (outermost != null)
+      {
+         document.hold(anchor, outermost.getElement(), bound);
+      }
+      else
+      {
+         document.register(anchor);
+      }
+
       // Freeze what we need
       final List<Entry> a = elements;
       final boolean trimContent = this.trimContent;
+      final Projection<?> projection = this.projection;
+      final int bound = this.bound;
 
       //
       return new Iterable<StaxNavigator<N>>()
       {
+         final StaxNavigatorImpl<N> retained = anchor;
          public Iterator<StaxNavigator<N>> iterator()
          {
             return new Iterator<StaxNavigator<N>>()
@@ -251,7 +519,8 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
                public StaxNavigator<N> next()
                {
                   Entry next = i.next();
-                  return new StaxNavigatorImpl<N>(naming, next, trimContent);
+                  next.getDocument().forked();
+                  return new StaxNavigatorImpl<N>(naming, next, trimContent, projection, bound);
                }
                public void remove()
                {
@@ -262,151 +531,357 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
       };
    }
 
-   public String getAttribute(QName name) throws NullPointerException, IllegalStateException, StaxNavException
+   public int fork(N name, Parser<N> parser) throws NullPointerException, StaxNavException
    {
       if (name == null)
       {
-         throw new NullPointerException("No null attribute name expected");
-      }
-      if (XMLConstants.NULL_NS_URI.equals(name.getNamespaceURI()))
-      {
-         return getAttribute(name.getLocalPart());
-      }
-      else
-      {
-         Map<QName, String> qualifiedAttributes = current.getElement().getQualifiedAttributes();
-         if (qualifiedAttributes.isEmpty())
-         {
-            return null;
-         }
-         else
-         {
-            return qualifiedAttributes.get(name);
-         }
-      }
-   }
-
-   public Map<String, String> getAttributes() throws NullPointerException, IllegalStateException, StaxNavException
-   {
-      Map<String, String> attributes = current.getElement().getAttributes();
-      if (attributes.isEmpty())
-      {
-         return Collections.emptyMap();
+         throw new NullPointerException("No null name accepted");
       }
-      else
+      if (parser == null)
       {
-         return attributes;
+         throw new NullPointerException("No null parser accepted");
       }
+      return fork(Axis.FOLLOWING_SIBLING, Collections.singletonMap(name, parser));
    }
 
-   public Map<QName, String> getQualifiedAttributes() throws NullPointerException, IllegalStateException, StaxNavException
+   public int fork(Axis axis, Map<N, ? extends Parser<N>> parsers) throws NullPointerException, StaxNavException
    {
-      Map<QName, String> qualifiedAttributes = current.getElement().getQualifiedAttributes();
-      Map<String, String> attributes = getAttributes();
-      if (!attributes.isEmpty()) {
-        if (qualifiedAttributes.isEmpty()) {
-          qualifiedAttributes = new HashMap<QName, String>(qualifiedAttributes);
-        }
-        for (String key : attributes.keySet()) {
-           qualifiedAttributes.put(new QName(key), attributes.get(key));
-        }
-      }
-      if (qualifiedAttributes.isEmpty())
+      if (axis == null)
       {
-         return Collections.emptyMap();
+         throw new NullPointerException("No null axis accepted");
       }
-      else
+      if (parsers == null)
       {
-         return qualifiedAttributes;
+         throw new NullPointerException("No null parsers accepted");
       }
-   }
+      checkFork();
 
-  public String getNamespaceByPrefix(String prefix) throws NullPointerException, StaxNavException
-   {
-      if (prefix == null)
+      //
+      Router<N> router = new Router<N>(parsers);
+      Document document = enter().getDocument();
+      int count = 0;
+      for (Entry entry = current;entry != null;entry = _advance(enter(), axis, null))
       {
-         throw new NullPointerException();
+         current = entry;
+         Parser<N> parser = router.get(entry.getElement().getName(naming));
+         if (parser != null)
+         {
+            // The forks created during the callback do not hold the entry once this navigator moves past it
+            document.forked();
+            parser.parse(new StaxNavigatorImpl<N>(naming, entry, trimContent, projection, entry.getElement().getDepth()));
+            count++;
+         }
       }
-      return current.getElement().getNamespaceByPrefix(prefix);
+      return count;
    }
 
-   // Axis methods
-
-   public N next() throws StaxNavException
+   public Iterable<StaxNavigator<N>> forkStreaming(N name)
    {
-      return navigate(Axis.NEXT);
+      return forkStreaming(Axis.FOLLOWING_SIBLING, name);
    }
 
-   public boolean next(N name) throws StaxNavException
+   public Iterable<StaxNavigator<N>> forkStreaming(final Axis axis, final N name)
    {
-      return navigate(Axis.NEXT, name);
-   }
-
-   public StaxNavigator<N> assertNext(N expectedName) throws NullPointerException, StaxNavException {
-      if (expectedName == null) {
-         throw new NullPointerException("No null expected name argument allowed");
+      if (axis == null)
+      {
+         throw new NullPointerException("No null axis accepted");
       }
-      if (next(expectedName)) {
-         return this;
-      } else {
-         throw new StaxNavException(current.getElement().getLocation(), "Was expecting the element " + expectedName + " to be the next one");
+      if (name == null)
+      {
+         throw new NullPointerException("No null name accepted");
       }
-   }
-
-   public N child() throws StaxNavException
-   {
-      return navigate(Axis.CHILD);
-   }
+      checkFork();
 
-   public boolean child(N name) throws NullPointerException, StaxNavException
-   {
-      return navigate(Axis.CHILD, name);
+      //
+      return new Iterable<StaxNavigator<N>>()
+      {
+         boolean iterated = false;
+         public Iterator<StaxNavigator<N>> iterator()
+         {
+            if (iterated)
+            {
+               throw new IllegalStateException("A streaming fork can be iterated once");
+            }
+            iterated = true;
+            return new ForkIterator(axis, name);
+         }
+      };
    }
 
-   public N sibling() throws StaxNavException
+   public Stream<StaxNavigator<N>> stream(N name)
    {
-      return navigate(Axis.FOLLOWING_SIBLING);
+      return stream(Axis.FOLLOWING_SIBLING, name);
    }
 
-   public boolean sibling(N name) throws NullPointerException, StaxNavException
+   public Stream<StaxNavigator<N>> stream(Axis axis, N name)
    {
-      return navigate(Axis.FOLLOWING_SIBLING, name);
+      if (axis == null)
+      {
+         throw new NullPointerException("No null axis accepted");
+      }
+      if (name == null)
+      {
+         throw new NullPointerException("No null name accepted");
+      }
+      checkFork();
+      return StreamSupport.stream(new ForkSpliterator(new ForkIterator(axis, name)), false);
    }
 
-   public N navigate(Axis axis) throws StaxNavException
+   public void forkParallel(N name, ExecutorService executor, final Consumer<? super StaxNavigator<N>> consumer)
    {
-      Entry entry = _navigate(current, axis, null);
-      if (entry != null)
-      {
-         current = entry;
-         return getName();
-      }
-      else
+      if (consumer == null)
       {
-         return null;
+         throw new NullPointerException("No null consumer accepted");
       }
+      forkParallel(
+         Axis.FOLLOWING_SIBLING,
+         name,
+         executor,
+         DEFAULT_MAX_IN_FLIGHT,
+         false,
+         fork ->
+         {
+            consumer.accept(fork);
+            return null;
+         },
+         result -> {});
    }
 
-   public boolean navigate(Axis axis, N name) throws StaxNavException
+   public <R> void forkParallel(
+      Axis axis,
+      N name,
+      ExecutorService executor,
+      int maxInFlight,
+      boolean ordered,
+      final Function<? super StaxNavigator<N>, ? extends R> processor,
+      Consumer<? super R> results) throws NullPointerException, IllegalArgumentException, StaxNavException
    {
+      if (axis == null)
+      {
+         throw new NullPointerException("No null axis accepted");
+      }
       if (name == null)
       {
          throw new NullPointerException("No null name accepted");
       }
-      Entry entry = _navigate(current, axis, name);
-      if (entry != null)
+      if (executor == null)
       {
-         current = entry;
-         return true;
+         throw new NullPointerException("No null executor accepted");
       }
-      else
+      if (processor == null)
       {
-         return false;
+         throw new NullPointerException("No null processor accepted");
       }
-   }
-
-   private Entry _navigate(Entry current, Axis axis, N name)
-   {
+      if (results == null)
+      {
+         throw new NullPointerException("No null results consumer accepted");
+      }
+      if (maxInFlight < 1)
+      {
+         throw new IllegalArgumentException("Invalid max in flight value " + maxInFlight);
+      }
+      checkFork();
+
+      //
+      ForkIterator forks = new ForkIterator(axis, name);
+      Pipeline<R> pipeline = new Pipeline<R>(executor, maxInFlight, ordered, results);
+      try
+      {
+         while (forks.hasNext())
+         {
+            final StaxNavigator<N> fork = new StaxNavigatorImpl<N>(naming, freeze(forks.nextEntry(), naming), trimContent, null, -1);
+            pipeline.submit(() -> processor.apply(fork));
+         }
+         pipeline.drain();
+      }
+      finally
+      {
+         pipeline.cancel();
+      }
+   }
+
+   public Iterable<StaxNavigator<N>> select(final PathExpression<N> path) throws NullPointerException, StaxNavException
+   {
+      if (path == null)
+      {
+         throw new NullPointerException("No null path accepted");
+      }
+      checkFork();
+      return new Iterable<StaxNavigator<N>>()
+      {
+         boolean iterated = false;
+         public Iterator<StaxNavigator<N>> iterator()
+         {
+            if (iterated)
+            {
+               throw new IllegalStateException("A selection can be iterated once");
+            }
+            iterated = true;
+            return new PathIterator(path);
+         }
+      };
+   }
+
+   public Snapshot<N> snapshot() throws StaxNavException
+   {
+      return new SnapshotImpl<N>(naming, freeze(enter(), naming), trimContent);
+   }
+
+   public String getAttribute(QName name) throws NullPointerException, IllegalStateException, StaxNavException
+   {
+      if (name == null)
+      {
+         throw new NullPointerException("No null attribute name expected");
+      }
+      return enter().getElement().getAttributes().getValue(name);
+   }
+
+   public Map<String, String> getAttributes() throws NullPointerException, IllegalStateException, StaxNavException
+   {
+      return enter().getElement().getAttributes().getAttributes();
+   }
+
+   public Map<QName, String> getQualifiedAttributes() throws NullPointerException, IllegalStateException, StaxNavException
+   {
+      return enter().getElement().getAttributes().getQualifiedAttributes();
+   }
+
+  public String getNamespaceByPrefix(String prefix) throws NullPointerException, StaxNavException
+   {
+      if (prefix == null)
+      {
+         throw new NullPointerException();
+      }
+      return enter().getElement().getNamespaceByPrefix(prefix);
+   }
+
+   // Axis methods
+
+   public N next() throws StaxNavException
+   {
+      return navigate(Axis.NEXT);
+   }
+
+   public boolean next(N name) throws StaxNavException
+   {
+      return navigate(Axis.NEXT, name);
+   }
+
+   public StaxNavigator<N> assertNext(N expectedName) throws NullPointerException, StaxNavException {
+      if (expectedName == null) {
+         throw new NullPointerException("No null expected name argument allowed");
+      }
+      if (next(expectedName)) {
+         return this;
+      } else {
+         throw new StaxNavException(current.getElement().getLocation(), "Was expecting the element " + expectedName + " to be the next one");
+      }
+   }
+
+   public N child() throws StaxNavException
+   {
+      return navigate(Axis.CHILD);
+   }
+
+   public boolean child(N name) throws NullPointerException, StaxNavException
+   {
+      return navigate(Axis.CHILD, name);
+   }
+
+   public N sibling() throws StaxNavException
+   {
+      return navigate(Axis.FOLLOWING_SIBLING);
+   }
+
+   public boolean sibling(N name) throws NullPointerException, StaxNavException
+   {
+      return navigate(Axis.FOLLOWING_SIBLING, name);
+   }
+
+   public N navigate(Axis axis) throws StaxNavException
+   {
+      Entry entry = _navigate(enter(), axis, null);
+      if (entry != null)
+      {
+         moveTo(entry);
+         return getName();
+      }
+      else
+      {
+         return null;
+      }
+   }
+
+   public boolean navigate(Axis axis, N name) throws StaxNavException
+   {
+      if (name == null)
+      {
+         throw new NullPointerException("No null name accepted");
+      }
+      Entry entry = _navigate(enter(), axis, name);
+      if (entry != null)
+      {
+         moveTo(entry);
+         return true;
+      }
+      else
+      {
+         return false;
+      }
+   }
+
+   /**
+    * Moves this navigator to an entry, a single cursor recycles the entries it moved past.
+    *
+    * @param entry the entry
+    */
+   private void moveTo(Entry entry)
+   {
+      current = entry;
+      Document document = entry.getDocument();
+      if (document.cursor && entry instanceof StreamEntry)
+      {
+         document.release((StreamEntry)entry);
+      }
+   }
+
+   /**
+    * Checks that this navigator can be forked.
+    *
+    * @throws IllegalStateException if the navigator is a single cursor
+    */
+   private void checkFork() throws IllegalStateException
+   {
+      if (current.getDocument().cursor)
+      {
+         throw new IllegalStateException("A single cursor navigator cannot be forked");
+      }
+   }
+
+   /**
+    * Creates the exception thrown when this navigator retains more entries than the limit.
+    *
+    * @param retention the retention of this navigator
+    * @param limit the limit
+    * @return the exception
+    * @throws StaxNavException any StaxNavException
+    */
+   private StaxNavException createRetentionException(Retention retention, Retention limit) throws StaxNavException
+   {
+      Element root = current.getElement();
+      while (root.getDepth() > depth && root.getParent() != null)
+      {
+         root = root.getParent();
+      }
+      return new StaxNavException(
+         root.getLocation(),
+         "The navigator rooted at the element " + root.getName() + " retains " + retention.getEntries() +
+         " entries and approximately " + retention.getBytes() + " bytes over the limit of " + limit.getEntries() +
+         " entries and " + limit.getBytes() + " bytes");
+   }
+
+   private Entry _navigate(Entry current, Axis axis, N name)
+   {
       switch (axis)
       {
          case SELF:
@@ -419,6 +894,10 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
             return _sibling(current, name);
          case FOLLOWING:
             return _following(current, name);
+         case PARENT:
+            return _parent(current, name);
+         case ANCESTOR:
+            return _ancestor(current, name);
          default:
             throw new AssertionError();
       }
@@ -428,7 +907,7 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
    {
       if (current != null)
       {
-         if (name == null ||name.equals(naming.getName(current.getElement().getName())))
+         if (name == null ||name.equals(current.getElement().getName(naming)))
          {
             return current;
          }
@@ -441,7 +920,7 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
       if (current != null)
       {
          Entry next = current.next(depth);
-         if (next != null && (name == null || name.equals(naming.getName(next.getElement().getName()))))
+         if (next != null && (name == null || name.equals(next.getElement().getName(naming))))
          {
             current = next;
             return current;
@@ -462,7 +941,7 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
             {
                if (next.getElement().getDepth() == current.getElement().getDepth() + 1)
                {
-                  N nextName = naming.getName(next.getElement().getName());
+                  N nextName = next.getElement().getName(naming);
                   if (name == null)
                   {
                      current = next;
@@ -493,13 +972,44 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
    }
 
    private Entry _sibling(Entry current, N name) throws StaxNavException
+   {
+      return _sibling(current, name, false);
+   }
+
+   /**
+    * Moves from the root of a fork that has been processed to the next fork root, the subtree of the processed root
+    * is skipped when the axis is the following sibling axis.
+    *
+    * @param current the processed fork root
+    * @param axis the axis
+    * @param name the name
+    * @return the next fork root or null
+    * @throws StaxNavException any StaxNavException
+    */
+   private Entry _advance(Entry current, Axis axis, N name) throws StaxNavException
+   {
+      if (axis != Axis.FOLLOWING_SIBLING)
+      {
+         return _navigate(current, axis, name);
+      }
+      Entry next = _sibling(current, name, true);
+
+      // A fork skipping the descendants of its own root remains valid
+      if (root != null && root.truncated)
+      {
+         root = null;
+      }
+      return next;
+   }
+
+   private Entry _sibling(Entry current, N name, boolean skip) throws StaxNavException
    {
       if (current != null)
       {
          Entry element = current;
          while (true)
          {
-            Entry next = element.next();
+            Entry next = skip && element == current ? element.skip() : element.next();
             if (next != null && next.getElement().getDepth() >= current.getElement().getDepth())
             {
                if (next.getElement().getDepth() == current.getElement().getDepth())
@@ -511,7 +1021,7 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
                   }
                   else
                   {
-                     N siblingName = naming.getName(next.getElement().getName());
+                     N siblingName = next.getElement().getName(naming);
                      if (name.equals(siblingName))
                      {
                         current = next;
@@ -539,16 +1049,16 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
 
    private Entry _following(Entry current, N name) throws StaxNavException
    {
-      if (name == null)
-      {
-         throw new UnsupportedOperationException("todo");
-      }
       if (current != null)
       {
          Entry entry = current.next();
+         if (name == null)
+         {
+            return entry;
+         }
          while (entry != null)
          {
-            N findName = naming.getName(entry.getElement().getName());
+            N findName = entry.getElement().getName(naming);
             if (name.equals(findName))
             {
                current = entry;
@@ -563,6 +1073,34 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
       return null;
    }
 
+   private Entry _parent(Entry current, N name) throws StaxNavException
+   {
+      if (current != null)
+      {
+         Element parent = current.getElement().getParent();
+         if (parent != null && parent.getDepth() >= depth && (name == null || name.equals(parent.getName(naming))))
+         {
+            return new AncestorEntry(parent, current);
+         }
+      }
+      return null;
+   }
+
+   private Entry _ancestor(Entry current, N name) throws StaxNavException
+   {
+      if (current != null)
+      {
+         for (Element ancestor = current.getElement().getParent();ancestor != null && ancestor.getDepth() >= depth;ancestor = ancestor.getParent())
+         {
+            if (name == null || name.equals(ancestor.getName(naming)))
+            {
+               return new AncestorEntry(ancestor, current);
+            }
+         }
+      }
+      return null;
+   }
+
    // Other methods
 
    public boolean find(N name) throws StaxNavException
@@ -571,7 +1109,7 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
       {
          throw new NullPointerException("No null name accepted");
       }
-      if (name.equals(naming.getName(current.getElement().getName())))
+      if (name.equals(enter().getElement().getName(naming)))
       {
          return true;
       }
@@ -587,13 +1125,13 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
       {
          throw new NullPointerException();
       }
-      Entry next = current.next(depth);
+      Entry next = enter().next(depth);
       if (next != null)
       {
-         N name = naming.getName(next.getElement().getName());
+         N name = next.getElement().getName(naming);
          if (names.contains(name))
          {
-            current = next;
+            moveTo(next);
             return name;
          }
       }
@@ -611,17 +1149,17 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
 
    private int _descendant(N name) throws StaxNavException
    {
-      Entry element = current;
+      Entry element = enter();
       while (true)
       {
          Entry next = element.next();
          if (next != null && next.getElement().getDepth() >= current.getElement().getDepth())
          {
-            N descendantName = naming.getName(next.getElement().getName());
+            N descendantName = next.getElement().getName(naming);
             if (name.equals(descendantName))
             {
                int diff = next.getElement().getDepth() - current.getElement().getDepth();
-               current = next;
+               moveTo(next);
                return diff;
             }
             else
@@ -638,137 +1176,1726 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
    }
 
    /**
-    * Entry objects are a linked list Element.
-    *
-    * For instance for the XML stream:
-    *
-    * &lt;foo&gt;
-    *  &lt;bar&gt;
-    *  &lt;/bar&gt;
-    *  &lt;juu&gt;
-    *  &lt;/juu&gt;
-    * &lt;/foo&gt;
-    *
-    * will be modeled
-    *
-    *  Entry -> Element foo  <-
-    *    |         /|\        |
-    *   \|/         |         |
-    *  Entry -> Element bar   |
-    *    |                    |
-    *   \|/                   |
-    *  Entry -> Element juu --|
-    *
-    * When the navigator points on the juu Element, the bar Entry, the foo Entry and the bar Element are not referenced
-    * anymore and are available for the garbage collector.
+    * Navigates to the next fork when it is requested.
     */
-   private static abstract class Entry
+   private class ForkIterator implements Iterator<StaxNavigator<N>>
    {
 
-      protected abstract Element getElement() throws StaxNavException;
-
-      protected abstract boolean hasNext(int depth) throws StaxNavException;
-
-      protected abstract Entry next(int depth) throws StaxNavException;
+      /** . */
+      private final Axis axis;
 
-      protected abstract Entry next() throws StaxNavException;
+      /** . */
+      private final N name;
 
-   }
+      /** . */
+      private final boolean trimContent;
 
-   private static class HeadEntry extends Entry
-   {
+      /** The root of the next fork. */
+      private Entry next;
 
       /** . */
-      private final XMLStreamReader stream;
+      private boolean started;
 
       /** . */
-      private Entry root;
+      private boolean done;
 
-      private HeadEntry(XMLStreamReader stream)
+      private ForkIterator(Axis axis, N name)
       {
-         this.stream = stream;
-         this.root = null;
+         this.axis = axis;
+         this.name = name;
+         this.trimContent = StaxNavigatorImpl.this.trimContent;
+         this.next = null;
+         this.started = false;
+         this.done = false;
       }
 
-      private Entry get()
+      public boolean hasNext()
       {
-         if (root == null)
+         if (next == null && !done)
          {
-            try
+            // The current element is the first fork when it matches
+            Entry entry;
+            if (started)
             {
-               while (stream.hasNext())
-               {
-                  int type = stream.getEventType();
-                  if (type == XMLStreamConstants.START_ELEMENT)
-                  {
-                     root = new StreamEntry(stream, new Element(stream, null));
-                     break;
-                  }
-                  else
-                  {
-                     stream.next();
-                  }
-               }
+               entry = _advance(enter(), axis, name);
             }
-            catch (XMLStreamException e)
+            else
             {
-               throw new StaxNavException(e);
+               entry = name.equals(getName()) ? current : _navigate(enter(), axis, name);
             }
+            if (entry != null)
+            {
+               current = entry;
+               next = entry;
+            }
+            else
+            {
+               done = true;
+            }
+            started = true;
          }
-         if (root == null)
-         {
-            throw new StaxNavException(stream.getLocation(), "No head!!!!");
+         return next != null;
+      }
+
+      public StaxNavigator<N> next()
+      {
+         Entry entry = nextEntry();
+         return new StaxNavigatorImpl<N>(naming, entry, trimContent, projection, entry.getElement().getDepth());
+      }
+
+      private Entry nextEntry()
+      {
+         if (!hasNext())
+         {
+            throw new NoSuchElementException();
+         }
+         Entry entry = next;
+         next = null;
+         entry.getDocument().forked();
+         return entry;
+      }
+
+      public void remove()
+      {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   /**
+    * Finds the parser of a name, names that are enum constants are looked up by ordinal.
+    */
+   private static class Router<N>
+   {
+
+      /** The parsers indexed by ordinal when the names are enum constants. */
+      private final Parser<N>[] byOrdinal;
+
+      /** . */
+      private final Class<?> enumType;
+
+      /** . */
+      private final Map<N, Parser<N>> byName;
+
+      @SuppressWarnings("unchecked")
+      private Router(Map<N, ? extends Parser<N>> parsers)
+      {
+         Class<?> enumType = null;
+         for (N name : parsers.keySet())
+         {
+            if (!(name instanceof Enum<?>))
+            {
+               enumType = null;
+               break;
+            }
+            Class<?> type = ((Enum<?>)name).getDeclaringClass();
+            if (enumType == null)
+            {
+               enumType = type;
+            }
+            else if (enumType != type)
+            {
+               enumType = null;
+               break;
+            }
+         }
+
+         //
+         Parser<N>[] byOrdinal = null;
+         Map<N, Parser<N>> byName = null;
+         if (enumType != null)
+         {
+            byOrdinal = (Parser<N>[])Array.newInstance(Parser.class, enumType.getEnumConstants().length);
+            for (Map.Entry<N, ? extends Parser<N>> entry : parsers.entrySet())
+            {
+               byOrdinal[((Enum<?>)entry.getKey()).ordinal()] = entry.getValue();
+            }
+         }
+         else
+         {
+            byName = new HashMap<N, Parser<N>>(parsers);
+         }
+
+         //
+         this.enumType = enumType;
+         this.byOrdinal = byOrdinal;
+         this.byName = byName;
+      }
+
+      private Parser<N> get(N name)
+      {
+         if (byOrdinal != null)
+         {
+            if (name instanceof Enum<?> && ((Enum<?>)name).getDeclaringClass() == enumType)
+            {
+               return byOrdinal[((Enum<?>)name).ordinal()];
+            }
+            return null;
+         }
+         return byName.get(name);
+      }
+   }
+
+   /**
+    * Evaluates a path over the descendants of the current element in document order. The states of the path
+    * automaton are tracked for each level of the walk, the state <code>i</code> means that the <code>i</code>
+    * first steps are matched by the ancestors.
+    */
+   private class PathIterator implements Iterator<StaxNavigator<N>>
+   {
+
+      /** . */
+      private final PathExpression<N> path;
+
+      /** The depth of the walk root. */
+      private final int depth;
+
+      /** . */
+      private final boolean trimContent;
+
+      /** The states by level relative to the walk root. */
+      private long[] states;
+
+      /** The last walked entry. */
+      private Entry entry;
+
+      /** The next matching entry. */
+      private Entry next;
+
+      private PathIterator(PathExpression<N> path)
+      {
+         this.path = path;
+         this.depth = current.getElement().getDepth();
+         this.trimContent = StaxNavigatorImpl.this.trimContent;
+         this.states = new long[8];
+         this.states[0] = 1;
+         this.entry = current;
+         this.next = null;
+
+         // The walk holds the entries of its root until it ends
+         current.getDocument().hold(this, current.getElement(), bound);
+      }
+
+      public boolean hasNext()
+      {
+         while (next == null && entry != null)
+         {
+            enter();
+            entry = entry.next(depth);
+            if (entry != null)
+            {
+               Element element = entry.getElement();
+               int level = element.getDepth() - depth;
+               if (level == states.length)
+               {
+                  long[] tmp = new long[states.length * 2];
+                  System.arraycopy(states, 0, tmp, 0, states.length);
+                  states = tmp;
+               }
+               long parentStates = states[level - 1];
+               long elementStates = 0;
+               boolean matched = false;
+               if (parentStates != 0)
+               {
+                  N name = element.getName(naming);
+                  for (int state = 0;state < path.getSize();state++)
+                  {
+                     if ((parentStates & (1L << state)) != 0)
+                     {
+                        PathExpression.Step<N> step = path.getStep(state);
+                        if (step.descendant)
+                        {
+                           elementStates |= 1L << state;
+                        }
+                        if (step.matches(name, element.getAttributes()))
+                        {
+                           if (state + 1 == path.getSize())
+                           {
+                              matched = true;
+                           }
+                           else
+                           {
+                              elementStates |= 1L << (state + 1);
+                           }
+                        }
+                     }
+                  }
+               }
+               states[level] = elementStates;
+               if (matched)
+               {
+                  next = entry;
+               }
+            }
+         }
+         return next != null;
+      }
+
+      public StaxNavigator<N> next()
+      {
+         if (!hasNext())
+         {
+            throw new NoSuchElementException();
+         }
+         current = next;
+         next = null;
+         current.getDocument().forked();
+         return new StaxNavigatorImpl<N>(naming, current, trimContent, projection, bound);
+      }
+
+      public void remove()
+      {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   /**
+    * Adapts a fork iterator to a spliterator, it does not split since forks must be pulled one after the other
+    * from the stream.
+    */
+   private class ForkSpliterator extends Spliterators.AbstractSpliterator<StaxNavigator<N>>
+   {
+
+      /** . */
+      private final ForkIterator iterator;
+
+      private ForkSpliterator(ForkIterator iterator)
+      {
+         super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+
+         //
+         this.iterator = iterator;
+      }
+
+      public boolean tryAdvance(Consumer<? super StaxNavigator<N>> action)
+      {
+         if (iterator.hasNext())
+         {
+            action.accept(iterator.next());
+            return true;
+         }
+         return false;
+      }
+
+      @Override
+      public Spliterator<StaxNavigator<N>> trySplit()
+      {
+         return null;
+      }
+   }
+
+   /**
+    * Copies the subtree of an entry into immutable elements, the copy ends with the subtree.
+    *
+    * @param root the subtree root
+    * @param naming the naming resolving the names of the copy
+    * @return the entry of the root copy
+    * @throws StaxNavException any StaxNavException
+    */
+   private static Entry freeze(Entry root, Naming<?> naming) throws StaxNavException
+   {
+      // Read the whole subtree first so the content of all the elements is captured
+      Element rootElement = root.getElement();
+      int depth = rootElement.getDepth();
+      root.getDocument().complete(rootElement);
+      List<Element> elements = new ArrayList<Element>();
+      for (Entry next = root.next(depth);next != null;next = next.next(depth))
+      {
+         elements.add(next.getElement());
+      }
+
+      //
+      Document document = new Document(null, null);
+      DetachedEntry frozen = new DetachedEntry(document, new Element(rootElement, null, naming));
+      DetachedEntry last = frozen;
+      for (Element element : elements)
+      {
+         Element parent = last.element;
+         while (parent.getDepth() >= element.getDepth())
+         {
+            parent = parent.getParent();
+         }
+         last.next = new DetachedEntry(document, new Element(element, parent, naming));
+         last = last.next;
+      }
+      return frozen;
+   }
+
+   /**
+    * An immutable snapshot, the entries are reachable from a final field and are not modified after the snapshot
+    * is created so they can be safely navigated by several threads.
+    */
+   private static class SnapshotImpl<N> implements Snapshot<N>
+   {
+
+      /** . */
+      private final Naming<N> naming;
+
+      /** . */
+      private final Entry root;
+
+      /** . */
+      private final boolean trimContent;
+
+      private SnapshotImpl(Naming<N> naming, Entry root, boolean trimContent)
+      {
+         this.naming = naming;
+         this.root = root;
+         this.trimContent = trimContent;
+      }
+
+      public Naming<N> getNaming()
+      {
+         return naming;
+      }
+
+      public StaxNavigator<N> navigator()
+      {
+         return new StaxNavigatorImpl<N>(naming, root, trimContent, null, -1);
+      }
+
+      public <N1> StaxNavigator<N1> navigator(Naming<N1> naming) throws NullPointerException
+      {
+         if (naming == null)
+         {
+            throw new NullPointerException("No null naming accepted");
+         }
+         return new StaxNavigatorImpl<N1>(naming, root, trimContent, null, -1);
+      }
+   }
+
+   /**
+    * Submits tasks to an executor and delivers their results to a consumer on the submitting thread, the number of
+    * tasks running at once is bounded.
+    *
+    * @param <R> the result type
+    */
+   private static class Pipeline<R>
+   {
+
+      /** . */
+      private final ExecutorService executor;
+
+      /** . */
+      private final int maxInFlight;
+
+      /** . */
+      private final boolean ordered;
+
+      /** . */
+      private final Consumer<? super R> results;
+
+      /** The tasks in submission order. */
+      private final LinkedList<Future<R>> inFlight;
+
+      /** The completed tasks in completion order. */
+      private final BlockingQueue<Future<R>> completed;
+
+      private Pipeline(ExecutorService executor, int maxInFlight, boolean ordered, Consumer<? super R> results)
+      {
+         this.executor = executor;
+         this.maxInFlight = maxInFlight;
+         this.ordered = ordered;
+         this.results = results;
+         this.inFlight = new LinkedList<Future<R>>();
+         this.completed = new LinkedBlockingQueue<Future<R>>();
+      }
+
+      /**
+       * Submits a task, it blocks until a task completes when too many tasks are in flight.
+       *
+       * @param task the task
+       * @throws StaxNavException if a task failed or the thread was interrupted
+       */
+      private void submit(Callable<R> task) throws StaxNavException
+      {
+         while (inFlight.size() >= maxInFlight)
+         {
+            deliver(true);
+         }
+         FutureTask<R> future = new FutureTask<R>(task)
+         {
+            @Override
+            protected void done()
+            {
+               if (!ordered)
+               {
+                  completed.add(this);
+               }
+            }
+         };
+         inFlight.add(future);
+         executor.execute(future);
+
+         // Deliver what is already done
+         while (deliver(false))
+         {
+         }
+      }
+
+      /**
+       * Waits for all the tasks.
+       *
+       * @throws StaxNavException if a task failed or the thread was interrupted
+       */
+      private void drain() throws StaxNavException
+      {
+         while (!inFlight.isEmpty())
+         {
+            deliver(true);
+         }
+      }
+
+      /**
+       * Cancels the tasks that are still in flight.
+       */
+      private void cancel()
+      {
+         for (Future<R> future : inFlight)
+         {
+            future.cancel(true);
+         }
+         inFlight.clear();
+      }
+
+      /**
+       * Delivers the result of a task.
+       *
+       * @param wait true to wait for a task to complete
+       * @return true if a result was delivered
+       * @throws StaxNavException if the task failed or the thread was interrupted
+       */
+      private boolean deliver(boolean wait) throws StaxNavException
+      {
+         try
+         {
+            Future<R> future;
+            if (ordered)
+            {
+               future = inFlight.peek();
+               if (future == null || (!wait && !future.isDone()))
+               {
+                  return false;
+               }
+            }
+            else
+            {
+               if (inFlight.isEmpty())
+               {
+                  return false;
+               }
+               future = wait ? completed.take() : completed.poll();
+               if (future == null)
+               {
+                  return false;
+               }
+            }
+            R result = future.get();
+            inFlight.remove(future);
+            results.accept(result);
+            return true;
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+            throw new StaxNavException(null, e);
+         }
+         catch (ExecutionException e)
+         {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+               throw (RuntimeException)cause;
+            }
+            else if (cause instanceof Error)
+            {
+               throw (Error)cause;
+            }
+            else
+            {
+               throw new StaxNavException(null, cause);
+            }
+         }
+      }
+   }
+
+   /**
+    * Entry objects are a linked list Element.
+    *
+    * For instance for the XML stream:
+    *
+    * &lt;foo&gt;
+    *  &lt;bar&gt;
+    *  &lt;/bar&gt;
+    *  &lt;juu&gt;
+    *  &lt;/juu&gt;
+    * &lt;/foo&gt;
+    *
+    * will be modeled
+    *
+    *  Entry -> Element foo  <-
+    *    |         /|\        |
+    *   \|/         |         |
+    *  Entry -> Element bar   |
+    *    |                    |
+    *   \|/                   |
+    *  Entry -> Element juu --|
+    *
+    * When the navigator points on the juu Element, the bar Entry, the foo Entry and the bar Element are not referenced
+    * anymore and are available for the garbage collector.
+    */
+   private static abstract class Entry
+   {
+
+      protected abstract Document getDocument();
+
+      protected abstract Element getElement() throws StaxNavException;
+
+      protected abstract boolean hasNext(int depth) throws StaxNavException;
+
+      protected abstract Entry next(int depth) throws StaxNavException;
+
+      protected abstract Entry next() throws StaxNavException;
+
+      /**
+       * Returns the stream entry from which the entries are retained by this entry.
+       *
+       * @return the stream entry or null when no stream entry is retained
+       */
+      protected StreamEntry getPosition()
+      {
+         return null;
+      }
+
+      /**
+       * Returns the entry following the subtree of this entry, the descendants that are not read yet may be skipped
+       * on the stream without creating their elements. It must only be called when the descendants will not be
+       * navigated anymore.
+       *
+       * @return the entry following the subtree or null
+       * @throws StaxNavException any StaxNavException
+       */
+      protected final Entry skip() throws StaxNavException
+      {
+         return skip(getElement().getDepth());
+      }
+
+      /**
+       * Returns the first entry following this entry whose depth is lower or equals to the specified depth.
+       *
+       * @param depth the depth
+       * @return the entry or null
+       * @throws StaxNavException any StaxNavException
+       */
+      protected Entry skip(int depth) throws StaxNavException
+      {
+         Entry next = next();
+         while (next != null && next.getElement().getDepth() > depth)
+         {
+            next = next.next();
+         }
+         return next;
+      }
+
+   }
+
+   /**
+    * The state shared by all the entries of a stream.
+    */
+   private static class Document
+   {
+
+      /** The estimated size of an element without its attributes and its content. */
+      private static final int ELEMENT_SIZE = 160;
+
+      /** The estimated size of an attribute. */
+      private static final int ATTRIBUTE_SIZE = 96;
+
+      /** The estimated size of a content without its chars. */
+      private static final int CONTENT_SIZE = 48;
+
+      /** . */
+      private XMLStreamReader stream;
+
+      /** The stats or null when the document does not have a stream. */
+      private final Stats stats;
+
+      /** The attribute projection of the navigator reading the stream, it is set by the navigator. */
+      private Projection<?> projection;
+
+      /** The last element read from the stream when its content has not been read yet. */
+      private Element pending;
+
+      /** The reader consuming the content of the pending element. */
+      private ContentReader reader;
+
+      /** The buffer used to capture content. */
+      private char[] buffer;
+
+      /** The number of chars captured in the buffer for the pending element. */
+      private int captured;
+
+      /** True when text was captured for the pending element. */
+      private boolean text;
+
+      /** The innermost element whose end was not read yet, it is the parent of the next element. */
+      private Element open;
+
+      /** The depth of the element whose descendants are skipped or -1 when no element is skipped. */
+      private int skipDepth;
+
+      /** The number of skipped elements whose end was not read yet. */
+      private int skipped;
+
+      /** True when the navigator is a single cursor that recycles the entries it does not navigate anymore. */
+      private boolean cursor;
+
+      /** The entries of a single cursor that are not recycled in document order, it is a ring starting at the head. */
+      private StreamEntry[] ring;
+
+      /** . */
+      private int ringHead;
+
+      /** . */
+      private int ringSize;
+
+      /** The recycled entries linked by their next entry. */
+      private StreamEntry recycled;
+
+      /** The names read by a single cursor indexed by the hash of their local name. */
+      private QName[] names;
+
+      /** The navigators accounted for the retention, the cleared ones are compacted when it is full. */
+      private Tracked[] tracked;
+
+      /** . */
+      private int trackedSize;
+
+      /** The holders that may navigate the unread descendants of their element, the released ones are removed. */
+      private Tracked[] holders;
+
+      /** . */
+      private int holderSize;
+
+      /** The number of entries read from the stream. */
+      private long count;
+
+      /** The estimated size of the entries read from the stream. */
+      private long size;
+
+      /** . */
+      private Retention limit;
+
+      /** The position of the oldest navigator found by the last check, navigators never move backward. */
+      private long checkedCount;
+
+      /** . */
+      private long checkedSize;
+
+      private Document(XMLStreamReader stream, Stats stats)
+      {
+         if (stats != null && stats.timed)
+         {
+            stream = new TimedStream(stream, stats);
+         }
+
+         //
+         this.stats = stats;
+         this.tracked = stream != null ? new Tracked[16] : null;
+         this.trackedSize = 0;
+         this.holders = stream != null ? new Tracked[4] : null;
+         this.holderSize = 0;
+         this.count = 0;
+         this.size = 0;
+         this.limit = null;
+         this.checkedCount = 0;
+         this.checkedSize = 0;
+         this.stream = stream;
+         this.projection = null;
+         this.pending = null;
+         this.reader = null;
+         this.buffer = new char[256];
+         this.captured = 0;
+         this.text = false;
+         this.open = null;
+         this.skipDepth = -1;
+         this.skipped = 0;
+         this.cursor = false;
+         this.ring = null;
+         this.ringHead = 0;
+         this.ringSize = 0;
+         this.recycled = null;
+         this.names = null;
+      }
+
+      /**
+       * Resets the document to read another stream, the buffers and the retention limit are kept and the stats
+       * accumulate over the streams.
+       *
+       * @param stream the new stream
+       */
+      private void reset(XMLStreamReader stream)
+      {
+         if (stats.timed)
+         {
+            ((TimedStream)this.stream).setParent(stream);
+         }
+         else
+         {
+            this.stream = stream;
+         }
+         stats.publish();
+
+         //
+         Arrays.fill(tracked, 0, trackedSize, null);
+         Arrays.fill(holders, 0, holderSize, null);
+         this.trackedSize = 0;
+         this.holderSize = 0;
+         this.count = 0;
+         this.size = 0;
+         this.checkedCount = 0;
+         this.checkedSize = 0;
+         this.pending = null;
+         this.reader = null;
+         this.captured = 0;
+         this.text = false;
+         this.open = null;
+         this.skipDepth = -1;
+         this.skipped = 0;
+
+         // The entries of the previous stream are all recycled
+         while (ringSize > 0)
+         {
+            recycle(ring[ringHead]);
+            ringHead = (ringHead + 1) % ring.length;
+            ringSize--;
+         }
+         this.ringHead = 0;
+      }
+
+      /**
+       * Makes the navigator of this document a single cursor, the entries are recycled once the cursor navigated
+       * past them.
+       */
+      private void setCursor()
+      {
+         this.cursor = true;
+         this.ring = new StreamEntry[16];
+         this.names = new QName[64];
+      }
+
+      /**
+       * Returns the name of the element the stream points to, the names are reused as a document has usually few
+       * distinct names.
+       *
+       * @return the name
+       */
+      private QName readName()
+      {
+         String localName = stream.getLocalName();
+         String namespaceURI = stream.getNamespaceURI();
+         String prefix = stream.getPrefix();
+         int index = localName.hashCode() & (names.length - 1);
+         QName name = names[index];
+         if (name == null ||
+            !name.getLocalPart().equals(localName) ||
+            !name.getNamespaceURI().equals(namespaceURI != null ? namespaceURI : XMLConstants.NULL_NS_URI) ||
+            !name.getPrefix().equals(prefix != null ? prefix : XMLConstants.DEFAULT_NS_PREFIX))
+         {
+            names[index] = name = stream.getName();
+         }
+         return name;
+      }
+
+      /**
+       * Recycles the entries of a single cursor that precede the entry the cursor moved to, except the ancestors
+       * of the entry. The entries that follow it were read ahead and are kept.
+       *
+       * @param entry the entry the cursor moved to
+       */
+      private void release(StreamEntry entry)
+      {
+         int length = ring.length;
+         int position = 0;
+         while (position < ringSize && ring[(ringHead + position) % length] != entry)
+         {
+            position++;
+         }
+         if (position == 0 || position == ringSize)
+         {
+            return;
+         }
+
+         // The ancestors precede the entry in the reverse order of the parent chain
+         Element ancestor = entry.element.getParent();
+         int kept = position;
+         for (int i = position - 1;i >= 0;i--)
+         {
+            StreamEntry preceding = ring[(ringHead + i) % length];
+            if (preceding.element == ancestor)
+            {
+               ring[(ringHead + --kept) % length] = preceding;
+               ancestor = ancestor.getParent();
+            }
+            else
+            {
+               recycle(preceding);
+            }
+         }
+         for (int i = 0;i < kept;i++)
+         {
+            ring[(ringHead + i) % length] = null;
+         }
+         ringHead = (ringHead + kept) % length;
+         ringSize -= kept;
+      }
+
+      private void recycle(StreamEntry entry)
+      {
+         entry.element.recycle();
+         entry.next = recycled;
+         recycled = entry;
+      }
+
+      /**
+       * Reads the content of the element when it is pending.
+       *
+       * @param element the element
+       * @throws StaxNavException any StaxNavException
+       */
+      private void complete(Element element) throws StaxNavException
+      {
+         if (pending == element)
+         {
+            long mark = stats.begin();
+            try
+            {
+               complete();
+            }
+            catch (XMLStreamException e)
+            {
+               throw new StaxNavException(e);
+            }
+            finally
+            {
+               stats.end(mark);
+            }
+         }
+      }
+
+      /**
+       * Reads the content of the pending element, when it returns the stream points to the end of the element,
+       * the start of the first child element or the end of the document.
+       *
+       * @throws XMLStreamException any stream exception
+       */
+      private void complete() throws XMLStreamException
+      {
+         Element element = pending;
+         if (element != null)
+         {
+            if (reader != null)
+            {
+               reader.skip();
+               reader = null;
+            }
+            else
+            {
+               element.capture(this);
+            }
+            pending = null;
+         }
+      }
+
+      /**
+       * Returns a reader streaming the content of the element from the stream when it is pending.
+       *
+       * @param element the element
+       * @return the reader or null if the element is not pending
+       */
+      private ContentReader stream(Element element)
+      {
+         if (pending == element && reader == null)
+         {
+            element.streamed = true;
+            reader = new ContentReader(this, element);
+            return reader;
+         }
+         return null;
+      }
+
+      /**
+       * Accounts a fork.
+       */
+      private void forked()
+      {
+         if (stats != null)
+         {
+            stats.forksCreated++;
+         }
+      }
+
+      /**
+       * Records an owner that may navigate the descendants of an element, they are not skipped until the element ends
+       * or the owner is not referenced anymore. An owner that is a navigator is accounted for the retention as well.
+       * A document without stream does not record it as it may be shared by several threads and does not skip.
+       *
+       * @param owner the owner
+       * @param root the held element
+       * @param bound the depth of the root of the streamed fork the owner derives from or -1
+       */
+      private void hold(Object owner, Element root, int bound)
+      {
+         if (stream != null)
+         {
+            Tracked holder = new Tracked(owner, root, bound);
+            if (owner instanceof StaxNavigatorImpl<?>)
+            {
+               track(holder);
+            }
+            if (holderSize == holders.length)
+            {
+               holders = Arrays.copyOf(holders, holders.length * 2);
+            }
+            holders[holderSize++] = holder;
+         }
+      }
+
+      /**
+       * Returns true when a holder may navigate the unread descendants of the element at the specified depth. A
+       * holder derived from a streamed fork does not hold an element that is not deeper than that fork root. The
+       * holders whose element ended or whose owner is not referenced anymore are released.
+       *
+       * @param depth the depth of the element
+       * @return true when the descendants cannot be skipped
+       */
+      private boolean isHeld(int depth)
+      {
+         for (int i = 0;i < holderSize;)
+         {
+            Tracked holder = holders[i];
+            if (holder.get() == null || !isOpen(holder.root))
+            {
+               holders[i] = holders[--holderSize];
+               holders[holderSize] = null;
+            }
+            else if (holder.bound < depth)
+            {
+               return true;
+            }
+            else
+            {
+               i++;
+            }
+         }
+         return false;
+      }
+
+      /**
+       * Returns true when the end of an element was not read yet.
+       *
+       * @param element the element
+       * @return true if the element is open
+       */
+      private boolean isOpen(Element element)
+      {
+         for (Element ancestor = open;ancestor != null && ancestor.getDepth() >= element.getDepth();ancestor = ancestor.getParent())
+         {
+            if (ancestor == element)
+            {
+               return true;
+            }
+         }
+         return false;
+      }
+
+      /**
+       * Accounts a navigator for the retention of the document until it is not referenced anymore.
+       *
+       * @param navigator the navigator
+       */
+      private void register(StaxNavigatorImpl<?> navigator)
+      {
+         if (stream != null)
+         {
+            track(new Tracked(navigator, null, -1));
+         }
+      }
+
+      /**
+       * Adds a navigator to the accounted ones, the cleared references are compacted before the array grows.
+       *
+       * @param t the reference to the navigator
+       */
+      private void track(Tracked t)
+      {
+         if (trackedSize == tracked.length)
+         {
+            int size = 0;
+            for (int i = 0;i < trackedSize;i++)
+            {
+               Tracked other = tracked[i];
+               if (other.get() != null)
+               {
+                  tracked[size++] = other;
+               }
+            }
+            Arrays.fill(tracked, size, trackedSize, null);
+            trackedSize = size;
+
+            // Grow when the compaction leaves less than half of the array free
+            if (size * 2 > tracked.length)
+            {
+               tracked = Arrays.copyOf(tracked, tracked.length * 2);
+            }
+         }
+         tracked[trackedSize++] = t;
+      }
+
+      private void setRetentionLimit(Retention limit)
+      {
+         if (stream != null)
+         {
+            this.limit = limit;
+         }
+      }
+
+      /**
+       * Returns the retention of an entry.
+       *
+       * @param entry the entry
+       * @return the retention
+       */
+      private Retention getRetention(Entry entry)
+      {
+         StreamEntry position = entry.getPosition();
+         if (position != null)
+         {
+            return new Retention(count - position.index, size - position.offset);
+         }
+         else
+         {
+            return Retention.NONE;
+         }
+      }
+
+      /**
+       * Returns the accounted navigator retaining the most entries or the specified navigator.
+       *
+       * @param navigator the navigator
+       * @return the oldest navigator
+       */
+      private StaxNavigatorImpl<?> getOldest(StaxNavigatorImpl<?> navigator)
+      {
+         StaxNavigatorImpl<?> oldest = navigator;
+         if (stream != null)
+         {
+            long index = getIndex(navigator);
+            for (int i = 0;i < trackedSize;i++)
+            {
+               StaxNavigatorImpl<?> other = (StaxNavigatorImpl<?>)tracked[i].get();
+               if (other != null)
+               {
+                  long otherIndex = getIndex(other);
+                  if (otherIndex < index)
+                  {
+                     oldest = other;
+                     index = otherIndex;
+                  }
+               }
+            }
+         }
+         return oldest;
+      }
+
+      private long getIndex(StaxNavigatorImpl<?> navigator)
+      {
+         StreamEntry position = navigator.current.getPosition();
+         return position != null ? position.index : count;
+      }
+
+      /**
+       * Checks the retention of the document against the limit, it is called only when the retention from the
+       * oldest position found by the previous check exceeds the limit.
+       *
+       * @throws StaxNavException when the limit is exceeded
+       */
+      private void checkRetention() throws StaxNavException
+      {
+         StaxNavigatorImpl<?> oldest = null;
+         StreamEntry position = null;
+         for (int i = 0;i < trackedSize;i++)
+         {
+            StaxNavigatorImpl<?> navigator = (StaxNavigatorImpl<?>)tracked[i].get();
+            if (navigator != null)
+            {
+               StreamEntry other = navigator.current.getPosition();
+               if (other != null && (position == null || other.index < position.index))
+               {
+                  oldest = navigator;
+                  position = other;
+               }
+            }
+         }
+         if (position != null)
+         {
+            checkedCount = position.index;
+            checkedSize = position.offset;
+            if (count - checkedCount > limit.getEntries() || size - checkedSize > limit.getBytes())
+            {
+               throw oldest.createRetentionException(new Retention(count - checkedCount, size - checkedSize), limit);
+            }
+         }
+         else
+         {
+            checkedCount = count;
+            checkedSize = size;
+         }
+      }
+
+      /**
+       * Creates the element the stream currently points to.
+       *
+       * @param parent the parent element
+       * @return the element
+       * @throws XMLStreamException any stream exception
+       */
+      private Element createElement(Element parent) throws XMLStreamException
+      {
+         Element element = new Element(stream, parent, projection, stats);
+         pending = element;
+         return element;
+      }
+
+      /**
+       * Reads the next entry on the stream. The state of the reading is kept by the document, so when the stream
+       * throws an {@link IncompleteInputException} the reading resumes where it stopped the next time it is invoked.
+       *
+       * @return the next entry or null at the end of the document
+       * @throws XMLStreamException any stream exception
+       * @throws StaxNavException any StaxNavException
+       */
+      private StreamEntry readNext() throws XMLStreamException, StaxNavException
+      {
+         long mark = stats.begin();
+         try
+         {
+            complete();
+            while (true)
+            {
+               int type = stream.getEventType();
+               if (type == XMLStreamConstants.START_ELEMENT)
+               {
+                  if (skipDepth < 0)
+                  {
+                     return createEntry();
+                  }
+                  if (skipped == 0)
+                  {
+                     truncate();
+                  }
+                  stats.elementsRead++;
+                  skipped++;
+               }
+               else if (type == XMLStreamConstants.END_ELEMENT)
+               {
+                  if (skipped > 0)
+                  {
+                     skipped--;
+                  }
+                  else
+                  {
+                     if (open.getDepth() == skipDepth)
+                     {
+                        skipDepth = -1;
+                     }
+                     open = open.getParent();
+                  }
+               }
+               else if (type == XMLStreamConstants.END_DOCUMENT)
+               {
+                  stats.publish();
+                  return null;
+               }
+
+               // The state is updated before the stream moves
+               stream.next();
+            }
+         }
+         finally
+         {
+            stats.end(mark);
+         }
+      }
+
+      /**
+       * Marks the open elements whose descendants are skipped, the forks rooted at them are not valid anymore.
+       */
+      private void truncate()
+      {
+         for (Element element = open;element != null && element.getDepth() >= skipDepth && !element.truncated;element = element.getParent())
+         {
+            element.truncated = true;
+         }
+      }
+
+      /**
+       * Skips the descendants of the element at the specified depth that are not read yet and reads the next entry.
+       *
+       * @param depth the depth of the skipped element
+       * @return the next entry or null at the end of the document
+       * @throws XMLStreamException any stream exception
+       * @throws StaxNavException any StaxNavException
+       */
+      private StreamEntry skipNext(int depth) throws XMLStreamException, StaxNavException
+      {
+         skipDepth = skipDepth < 0 ? depth : Math.min(skipDepth, depth);
+         return readNext();
+      }
+
+      /**
+       * Creates the entry of the element the stream currently points to and accounts it.
+       *
+       * @return the entry
+       * @throws XMLStreamException any stream exception
+       * @throws StaxNavException when the retention limit is exceeded
+       */
+      private StreamEntry createEntry() throws XMLStreamException, StaxNavException
+      {
+         int attributeCount = stream.getAttributeCount();
+         StreamEntry entry;
+         if (cursor)
+         {
+            entry = createCursorEntry();
+         }
+         else
+         {
+            entry = new StreamEntry(this, createElement(open), count++, size);
+            if (entry.element.getAttributes() != Attributes.EMPTY)
+            {
+               stats.attributeMapsAllocated++;
+            }
+         }
+         open = entry.element;
+         size += ELEMENT_SIZE + attributeCount * ATTRIBUTE_SIZE;
+         stats.elementsRead++;
+         if (++stats.elementsMaterialized % Stats.PUBLISH_INTERVAL == 0)
+         {
+            stats.publish();
+         }
+         if (limit != null && (count - checkedCount > limit.getEntries() || size - checkedSize > limit.getBytes()))
+         {
+            checkRetention();
+         }
+         return entry;
+      }
+
+      /**
+       * Creates the entry of a single cursor from a recycled entry when there is one and adds it to the ring.
+       *
+       * @return the entry
+       * @throws XMLStreamException any stream exception
+       */
+      private StreamEntry createCursorEntry() throws XMLStreamException
+      {
+         StreamEntry entry = recycled;
+         if (entry != null)
+         {
+            Attributes storage = entry.element.recycledAttributes;
+            recycled = entry.next;
+            entry.next = null;
+            entry.index = count++;
+            entry.offset = size;
+            entry.element.init(stream, readName(), open, projection);
+            pending = entry.element;
+            if (entry.element.getAttributes() != Attributes.EMPTY && entry.element.getAttributes() != storage)
+            {
+               stats.attributeMapsAllocated++;
+            }
+         }
+         else
+         {
+            entry = new StreamEntry(this, createElement(open), count++, size);
+            entry.element.recyclable = true;
+            if (entry.element.getAttributes() != Attributes.EMPTY)
+            {
+               stats.attributeMapsAllocated++;
+            }
+         }
+
+         //
+         if (ringSize == ring.length)
+         {
+            StreamEntry[] tmp = new StreamEntry[ring.length * 2];
+            for (int i = 0;i < ringSize;i++)
+            {
+               tmp[i] = ring[(ringHead + i) % ring.length];
+            }
+            ring = tmp;
+            ringHead = 0;
+         }
+         ring[(ringHead + ringSize++) % ring.length] = entry;
+         return entry;
+      }
+   }
+
+   /**
+    * Measures the time spent in the stream.
+    */
+   /**
+    * A weak reference to a navigator accounted for the retention or to the owner of a held element, only the
+    * navigators are accounted for the retention.
+    */
+   private static class Tracked extends WeakReference<Object>
+   {
+
+      /** The held element or null when it is not a holder. */
+      private final Element root;
+
+      /** . */
+      private final int bound;
+
+      private Tracked(Object owner, Element root, int bound)
+      {
+         super(owner);
+         this.root = root;
+         this.bound = bound;
+      }
+   }
+
+   private static class TimedStream extends StreamReaderDelegate
+   {
+
+      /** . */
+      private final Stats stats;
+
+      private TimedStream(XMLStreamReader stream, Stats stats)
+      {
+         super(stream);
+
+         //
+         this.stats = stats;
+      }
+
+      @Override
+      public int next() throws XMLStreamException
+      {
+         long time = System.nanoTime();
+         try
+         {
+            return super.next();
+         }
+         finally
+         {
+            stats.streamNanos += System.nanoTime() - time;
+         }
+      }
+   }
+
+   /**
+    * An attribute projection bound to the naming used to resolve element names.
+    */
+   private static class Projection<N>
+   {
+
+      /** . */
+      private final Naming<N> naming;
+
+      /** . */
+      private final AttributeProjection<N> projection;
+
+      private Projection(Naming<N> naming, AttributeProjection<N> projection)
+      {
+         this.naming = naming;
+         this.projection = projection;
+      }
+
+      private QName[] getAttributes(Element element)
+      {
+         return projection.getAttributes(element.getName(naming));
+      }
+   }
+
+   private static class HeadEntry extends Entry
+   {
+
+      /** . */
+      private final Document document;
+
+      /** . */
+      private Entry root;
+
+      private HeadEntry(Document document)
+      {
+         this.document = document;
+         this.root = null;
+      }
+
+      private Entry get()
+      {
+         if (root == null)
+         {
+            try
+            {
+               root = document.readNext();
+            }
+            catch (XMLStreamException e)
+            {
+               throw new StaxNavException(e);
+            }
+         }
+         if (root == null)
+         {
+            throw new StaxNavException(document.stream.getLocation(), "No head!!!!");
+         }
+         return root;
+      }
+
+      @Override
+      protected Document getDocument()
+      {
+         return document;
+      }
+
+      protected boolean hasNext(int depth) throws StaxNavException
+      {
+         return get().hasNext(depth);
+      }
+
+      protected Entry next(int depth) throws StaxNavException
+      {
+         return get().next(depth);
+      }
+
+      protected Entry next() throws StaxNavException
+      {
+         return get().next();
+      }
+
+      @Override
+      protected Entry skip(int depth) throws StaxNavException
+      {
+         return get().skip(depth);
+      }
+
+      @Override
+      protected StreamEntry getPosition()
+      {
+         return root != null ? root.getPosition() : null;
+      }
+
+      @Override
+      protected Element getElement() throws StaxNavException
+      {
+         return get().getElement();
+      }
+
+      @Override
+      public String toString()
+      {
+         return "HeadEntry";
+      }
+   }
+
+   private static class StreamEntry extends Entry
+   {
+
+      /** . */
+      private final Document document;
+
+      /** . */
+      private final Element element;
+
+      /** . */
+      private StreamEntry next;
+
+      /** The number of entries read before this entry. */
+      private long index;
+
+      /** The estimated size of the entries read before this entry. */
+      private long offset;
+
+      private StreamEntry(Document document, Element element, long index, long offset)
+      {
+         this.document = document;
+         this.next = null;
+         this.element = element;
+         this.index = index;
+         this.offset = offset;
+      }
+
+      @Override
+      protected StreamEntry getPosition()
+      {
+         return this;
+      }
+
+      @Override
+      protected Document getDocument()
+      {
+         return document;
+      }
+
+      protected Element getElement() throws StaxNavException
+      {
+         return element;
+      }
+
+      protected boolean hasNext(int depth) throws StaxNavException
+      {
+         return next(depth) != null;
+      }
+
+      protected Entry next(int depth) throws StaxNavException
+      {
+         Entry next = next();
+         if (next != null && next.getElement().getDepth() > depth)
+         {
+            return next;
+         }
+         else
+         {
+            return null;
+         }
+      }
+
+      protected Entry next() throws StaxNavException
+      {
+         try
+         {
+            if (next == null)
+            {
+               next = document.readNext();
+            }
+            return next;
+         }
+         catch (XMLStreamException e)
+         {
+            throw new StaxNavException(e);
+         }
+      }
+
+      @Override
+      protected Entry skip(int depth) throws StaxNavException
+      {
+         // When no other navigator holds entries, the entries that are not read yet can be skipped
+         if (document.isHeld(depth))
+         {
+            return super.skip(depth);
+         }
+         StreamEntry entry = this;
+         while (entry.next != null)
+         {
+            entry = entry.next;
+            if (entry.element.getDepth() <= depth)
+            {
+               return entry;
+            }
+         }
+         try
+         {
+            entry.next = document.skipNext(depth);
+            return entry.next;
          }
-         return root;
+         catch (XMLStreamException e)
+         {
+            throw new StaxNavException(e);
+         }
+      }
+
+      @Override
+      public String toString()
+      {
+         return "StreamEntry[element=" + element + "]";
+      }
+   }
+
+   /**
+    * An entry of an ancestor element, the navigation continues after the entry the ancestor was reached from.
+    */
+   private static class AncestorEntry extends Entry
+   {
+
+      /** . */
+      private final Element element;
+
+      /** The entry the navigation continues from. */
+      private final Entry from;
+
+      private AncestorEntry(Element element, Entry from)
+      {
+         this.element = element;
+         this.from = from instanceof AncestorEntry ? ((AncestorEntry)from).from : from;
+      }
+
+      @Override
+      protected Document getDocument()
+      {
+         return from.getDocument();
+      }
+
+      @Override
+      protected Element getElement() throws StaxNavException
+      {
+         return element;
       }
 
       protected boolean hasNext(int depth) throws StaxNavException
       {
-         return get().hasNext(depth);
+         return from.hasNext(depth);
       }
 
       protected Entry next(int depth) throws StaxNavException
       {
-         return get().next(depth);
+         return from.next(depth);
       }
 
       protected Entry next() throws StaxNavException
       {
-         return get().next();
+         return from.next();
       }
 
       @Override
-      protected Element getElement() throws StaxNavException
+      protected StreamEntry getPosition()
       {
-         return get().getElement();
+         return from.getPosition();
       }
 
       @Override
       public String toString()
       {
-         return "HeadEntry";
+         return "AncestorEntry[element=" + element + "]";
       }
    }
 
-   private static class StreamEntry extends Entry
+   /**
+    * An entry of a subtree that was detached from the stream.
+    */
+   private static class DetachedEntry extends Entry
    {
 
       /** . */
-      private final XMLStreamReader stream;
+      private final Document document;
 
       /** . */
       private final Element element;
 
       /** . */
-      private StreamEntry next;
+      private DetachedEntry next;
 
-      private StreamEntry(XMLStreamReader stream, Element element)
+      private DetachedEntry(Document document, Element element)
       {
-         this.stream = stream;
-         this.next = null;
+         this.document = document;
          this.element = element;
+         this.next = null;
+      }
+
+      @Override
+      protected Document getDocument()
+      {
+         return document;
       }
 
+      @Override
       protected Element getElement() throws StaxNavException
       {
          return element;
@@ -781,59 +2908,132 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
 
       protected Entry next(int depth) throws StaxNavException
       {
-         Entry next = next();
-         if (next != null && next.getElement().getDepth() > depth)
-         {
-            return next;
-         }
-         else
-         {
-            return null;
-         }
+         return next != null && next.element.getDepth() > depth ? next : null;
       }
 
       protected Entry next() throws StaxNavException
       {
+         return next;
+      }
+
+      @Override
+      public String toString()
+      {
+         return "DetachedEntry[element=" + element + "]";
+      }
+   }
+
+   /**
+    * Reads the content of the pending element directly from the stream.
+    */
+   private static class ContentReader extends Reader
+   {
+
+      /** . */
+      private final Document document;
+
+      /** . */
+      private final Element element;
+
+      /** True once the stream was moved after the start of the element. */
+      private boolean started;
+
+      /** The offset in the current text event. */
+      private int offset;
+
+      private ContentReader(Document document, Element element)
+      {
+         this.document = document;
+         this.element = element;
+         this.started = false;
+         this.offset = 0;
+      }
+
+      @Override
+      public int read(char[] cbuf, int off, int len) throws IOException
+      {
+         if (off < 0 || len < 0 || off + len > cbuf.length)
+         {
+            throw new IndexOutOfBoundsException();
+         }
          try
          {
-            if (next == null)
+            while (document.reader == this)
             {
-               Element parent = element;
-               while (true)
+               XMLStreamReader stream = document.stream;
+               if (!started)
                {
-                  int type = stream.getEventType();
-                  if (type == XMLStreamConstants.START_ELEMENT)
-                  {
-                     next = new StreamEntry(stream, new Element(stream, parent));
-                     break;
-                  }
-                  else if (type == XMLStreamConstants.END_ELEMENT)
-                  {
-                     parent = parent.getParent();
-                     stream.next();
-                  }
-                  else if (type == XMLStreamConstants.END_DOCUMENT)
+                  started = true;
+                  stream.next();
+               }
+               int type = stream.getEventType();
+               if (type == XMLStreamConstants.CHARACTERS)
+               {
+                  int remaining = stream.getTextLength() - offset;
+                  if (remaining > 0)
                   {
-                     break;
+                     if (len == 0)
+                     {
+                        return 0;
+                     }
+                     int count = stream.getTextCharacters(offset, cbuf, off, Math.min(len, remaining));
+                     offset += count;
+                     return count;
                   }
                   else
                   {
                      stream.next();
+                     offset = 0;
                   }
                }
+               else if (type == XMLStreamConstants.START_ELEMENT || type == XMLStreamConstants.END_ELEMENT || type == XMLStreamConstants.END_DOCUMENT)
+               {
+                  // The stream is where the content capture would leave it
+                  document.pending = null;
+                  document.reader = null;
+               }
+               else
+               {
+                  stream.next();
+               }
             }
-            return next;
+            return -1;
          }
          catch (XMLStreamException e)
          {
-            throw new StaxNavException(e);
+            IOException ioe = new IOException("Could not read the content of " + element.getName());
+            ioe.initCause(e);
+            throw ioe;
+         }
+      }
+
+      /**
+       * Skips the remaining content.
+       *
+       * @throws XMLStreamException any stream exception
+       */
+      private void skip() throws XMLStreamException
+      {
+         XMLStreamReader stream = document.stream;
+         if (!started)
+         {
+            started = true;
+            stream.next();
+         }
+         while (true)
+         {
+            int type = stream.getEventType();
+            if (type == XMLStreamConstants.START_ELEMENT || type == XMLStreamConstants.END_ELEMENT || type == XMLStreamConstants.END_DOCUMENT)
+            {
+               break;
+            }
+            stream.next();
          }
       }
 
       @Override
-      public String toString()
+      public void close()
       {
-         return "StreamEntry[element=" + element + "]";
       }
    }
 
@@ -841,30 +3041,88 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
    {
 
       /** . */
-      private final Element parent;
+      private static final String[] NO_NAMESPACES = new String[0];
 
       /** . */
-      private final QName name;
+      private Element parent;
 
       /** . */
-      private final int depth;
-
-      /** The content is not null. */
-      private final Object content;
+      private QName name;
 
       /** . */
-      private final Location location;
+      private int depth;
 
-      /** . */
-      private final Map<String, String> attributes;
+      /** The content or null when the element has no content or it was not read yet. */
+      private Content content;
+
+      /** True when the content was consumed by a reader. */
+      private boolean streamed;
+
+      /** True when descendants of the element were skipped without being read. */
+      private boolean truncated;
 
       /** . */
-      private final Map<QName, String> qualifiedAttributes;
+      private Location location;
 
       /** . */
-      private final Map<String, String> namespaces;
+      private Attributes attributes;
 
-      private Element(XMLStreamReader stream, Element parent) throws XMLStreamException
+      /** The namespace declarations as prefix and URI pairs. */
+      private String[] namespaces;
+
+      /** True when the element is recycled by a single cursor, a copy does not share its attributes and content. */
+      private boolean recyclable;
+
+      /** The attributes reused when the element is recycled or null. */
+      private Attributes recycledAttributes;
+
+      /** The content reused when the element is recycled or null. */
+      private Content recycledContent;
+
+      /** The chars of the recycled content. */
+      private char[] recycledChars;
+
+      /** True when the element is immutable. */
+      private final boolean frozen;
+
+      /** The naming that resolved the cached name. */
+      private Naming<?> cachedNaming;
+
+      /** The name resolved by the cached naming. */
+      private Object cachedName;
+
+      /** The stats of the document or null for a copy. */
+      private final Stats stats;
+
+      /**
+       * Creates an element from the start tag the stream points to.
+       *
+       * @param stream the stream
+       * @param parent the parent element
+       * @param projection the attribute projection or null for all attributes
+       * @param stats the stats of the document
+       * @throws XMLStreamException any stream exception
+       */
+      private Element(XMLStreamReader stream, Element parent, Projection<?> projection, Stats stats) throws XMLStreamException
+      {
+         this.stats = stats;
+         this.frozen = false;
+
+         //
+         init(stream, null, parent, projection);
+      }
+
+      /**
+       * Initializes the element from the start tag the stream points to, a recycled element reuses its attributes
+       * and its content chars.
+       *
+       * @param stream the stream
+       * @param name the element name or null to obtain it from the stream
+       * @param parent the parent element
+       * @param projection the attribute projection or null for all attributes
+       * @throws XMLStreamException any stream exception
+       */
+      private void init(XMLStreamReader stream, QName name, Element parent, Projection<?> projection) throws XMLStreamException
       {
          // We assume that the stream points to the start of the modelled element
          if (stream.getEventType() != XMLStreamConstants.START_ELEMENT)
@@ -873,41 +3131,30 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
          }
 
          //
-         QName name = stream.getName();
+         if (name == null)
+         {
+            name = stream.getName();
+         }
          Location location = stream.getLocation();
 
-         //
-         Map<String, String> attributes = Collections.emptyMap();
-         Map<QName, String> qualifiedAttributes = Collections.emptyMap();
-         int attributeCount = stream.getAttributeCount();
-         for (int i = 0;i < attributeCount;i++)
+         // The name is needed to resolve the projected attributes, a recycled element with the same name keeps
+         // its resolved name
+         if (this.name != name)
          {
-            String attributeValue = stream.getAttributeValue(i);
-            QName attributeName = stream.getAttributeName(i);
-            if (XMLConstants.NULL_NS_URI.equals(attributeName.getNamespaceURI()))
-            {
-               if (attributes.isEmpty())
-               {
-                  attributes = new HashMap<String, String>();
-               }
-               attributes.put(attributeName.getLocalPart(), attributeValue);
-            }
-            else
-            {
-               if (qualifiedAttributes.isEmpty())
-               {
-                  qualifiedAttributes = new HashMap<QName, String>();
-               }
-               qualifiedAttributes.put(attributeName, attributeValue);
-            }
+            this.name = name;
+            this.cachedNaming = null;
+            this.cachedName = null;
          }
 
          //
-         Map<String, String> namespaces;
+         Attributes attributes = Attributes.create(stream, projection != null ? projection.getAttributes(this) : null, recycledAttributes);
+
+         //
+         String[] namespaces;
          int namespaceCount = stream.getNamespaceCount();
          if (namespaceCount > 0)
          {
-            namespaces = new HashMap<String, String>();
+            namespaces = new String[namespaceCount * 2];
             for (int i = 0;i < namespaceCount;i++)
             {
                String namespacePrefix = stream.getNamespacePrefix(i);
@@ -915,68 +3162,177 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
                {
                   namespacePrefix = "";
                }
-               String namespaceURI = stream.getNamespaceURI(i);
-               namespaces.put(namespacePrefix, namespaceURI);
+               namespaces[i * 2] = namespacePrefix;
+               namespaces[i * 2 + 1] = stream.getNamespaceURI(i);
             }
          }
          else
          {
-            namespaces = Collections.emptyMap();
+            namespaces = NO_NAMESPACES;
+         }
+
+         //
+         int depth = 1 + (parent != null ? parent.getDepth() : 0);
+
+         //
+         this.parent = parent;
+         this.depth = depth;
+         this.content = null;
+         this.streamed = false;
+         this.truncated = false;
+         this.attributes = attributes;
+         this.namespaces = namespaces;
+         this.location = location;
+      }
+
+      /**
+       * Marks the element as recycled, its attributes and its content chars are reused the next time it is
+       * initialized.
+       */
+      private void recycle()
+      {
+         if (attributes != Attributes.EMPTY)
+         {
+            recycledAttributes = attributes;
+         }
+         this.parent = null;
+         this.content = null;
+      }
+
+      /**
+       * Creates an immutable copy of an element whose content was read. The name resolved by the naming and the
+       * lazily computed values are computed by the copy so it is not modified anymore.
+       *
+       * @param element the copied element
+       * @param parent the parent of the copy, when it is null the copy retains the namespaces of the ancestors
+       * @param naming the naming
+       */
+      private Element(Element element, Element parent, Naming<?> naming)
+      {
+         String[] namespaces = element.namespaces;
+         if (parent == null)
+         {
+            for (Element ancestor = element.getParent();ancestor != null;ancestor = ancestor.getParent())
+            {
+               if (ancestor.namespaces.length > 0)
+               {
+                  String[] tmp = new String[namespaces.length + ancestor.namespaces.length];
+                  System.arraycopy(namespaces, 0, tmp, 0, namespaces.length);
+                  System.arraycopy(ancestor.namespaces, 0, tmp, namespaces.length, ancestor.namespaces.length);
+                  namespaces = tmp;
+               }
+            }
+         }
+
+         //
+         Content content = element.content;
+         if (content != null)
+         {
+            if (element.recyclable)
+            {
+               content = content.copy();
+            }
+            else
+            {
+               content.freeze();
+            }
+         }
+
+         //
+         Attributes attributes = element.attributes;
+         if (element.recyclable && attributes != Attributes.EMPTY)
+         {
+            attributes = attributes.copy();
          }
+         attributes.freeze();
 
-         // When we leave we assume that we are positionned on the next element start or the document end
-         StringBuilder sb = null;
-         String chunk = null;
-         Object content = null;
+         //
+         this.parent = parent;
+         this.name = element.name;
+         this.depth = element.depth;
+         this.content = content;
+         this.streamed = element.streamed;
+         this.truncated = false;
+         this.attributes = attributes;
+         this.namespaces = namespaces;
+         this.location = element.location;
+         this.cachedNaming = naming;
+         this.cachedName = element.getName(naming);
+         this.frozen = true;
+         this.stats = null;
+      }
+
+      /**
+       * Reads the content of the element from the stream, the stream is expected to point to the start of the
+       * element. When we leave the stream points to the end of the element, the start of the first child element
+       * or the end of the document. Mixed content is not retained.
+       *
+       * @param document the document
+       * @throws XMLStreamException any stream exception
+       */
+      private void capture(Document document) throws XMLStreamException
+      {
+         // The captured chars are kept by the document so the capture resumes after an incomplete input
+         XMLStreamReader stream = document.stream;
          while (true)
          {
-            stream.next();
-            int type = stream.getEventType();
+            int type = stream.next();
             if (type == XMLStreamConstants.END_DOCUMENT || type == XMLStreamConstants.START_ELEMENT)
             {
                break;
             }
             else if (type == XMLStreamConstants.CHARACTERS)
             {
-               if (chunk == null)
-               {
-                  chunk = stream.getText();
-               }
-               else
+               int length = document.captured;
+               int textLength = stream.getTextLength();
+               char[] buffer = document.buffer;
+               if (length + textLength > buffer.length)
                {
-                  if (sb == null)
-                  {
-                     sb = new StringBuilder(chunk);
-                  }
-                  sb.append(stream.getText());
+                  char[] tmp = new char[Math.max(buffer.length * 2, length + textLength)];
+                  System.arraycopy(buffer, 0, tmp, 0, length);
+                  document.buffer = buffer = tmp;
                }
+               System.arraycopy(stream.getTextCharacters(), stream.getTextStart(), buffer, length, textLength);
+               document.captured = length + textLength;
+               document.text = true;
             }
             else if (type == XMLStreamConstants.END_ELEMENT)
             {
-               if (sb != null)
+               if (document.text)
                {
-                  content = sb;
-               }
-               else
-               {
-                  content = chunk;
+                  int length = document.captured;
+                  if (document.cursor)
+                  {
+                     // The content is captured in the chars of the element recycled by a single cursor
+                     if (recycledChars == null || recycledChars.length < length)
+                     {
+                        recycledChars = new char[Math.max(length, 16)];
+                     }
+                     System.arraycopy(document.buffer, 0, recycledChars, 0, length);
+                     if (recycledContent == null)
+                     {
+                        recycledContent = new Content(recycledChars, 0, length);
+                     }
+                     else
+                     {
+                        recycledContent.reset(recycledChars, 0, length);
+                     }
+                     content = recycledContent;
+                  }
+                  else
+                  {
+                     char[] chars = new char[length];
+                     System.arraycopy(document.buffer, 0, chars, 0, length);
+                     content = new Content(chars, 0, length);
+                  }
+                  document.size += Document.CONTENT_SIZE + length * 2;
+                  document.stats.contentCharsCopied += length;
                }
                break;
             }
          }
-
-         //
-         int depth = 1 + (parent != null ? parent.getDepth() : 0);
-
-         //
-         this.parent = parent;
-         this.name = name;
-         this.depth = depth;
-         this.content = content;
-         this.attributes = attributes;
-         this.qualifiedAttributes = qualifiedAttributes;
-         this.namespaces = namespaces;
-         this.location = location;
+         document.captured = 0;
+         document.text = false;
       }
 
       protected Element getParent()
@@ -984,39 +3340,77 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
          return parent;
       }
 
+      /**
+       * Returns the name of the element resolved by the naming, the last resolved name is retained so an element
+       * is resolved once by the naming of the navigator however many times it is visited.
+       *
+       * @param naming the naming
+       * @param <N> the name type
+       * @return the name
+       */
+      @SuppressWarnings("unchecked")
       protected <N> N getName(Naming<N> naming)
       {
-         return naming.getName(getName());
+         if (cachedNaming != naming)
+         {
+            if (frozen)
+            {
+               return naming.getName(name);
+            }
+            stats.nameResolutions++;
+            cachedName = naming.getName(name);
+            cachedNaming = naming;
+         }
+         return (N)cachedName;
       }
 
       protected String getNamespaceByPrefix(String namespacePrefix)
       {
          for (Element current = this;current != null;current = current.getParent())
          {
-            String namespaceURI = current.getNamespaces().get(namespacePrefix);
-            if (namespaceURI != null)
+            String[] namespaces = current.namespaces;
+            for (int i = 0;i < namespaces.length;i += 2)
             {
-               return namespaceURI;
+               if (namespaces[i].equals(namespacePrefix))
+               {
+                  return namespaces[i + 1];
+               }
             }
          }
          return null;
       }
 
-      protected String getContent(boolean trim)
+      /**
+       * Returns the characters of the content without trimming them or null when the element has no content.
+       *
+       * @return the content
+       */
+      protected CharSequence getContentChars() throws IllegalStateException
       {
-         if (content != null)
+         if (streamed)
          {
-            String s = content.toString();
-            if (trim)
-            {
-               s = s.trim();
-            }
-            return s;
+            throw new IllegalStateException("The element content was consumed by a reader");
          }
-         else
+         return content;
+      }
+
+      protected Content getContentView(boolean trim) throws IllegalStateException
+      {
+         if (streamed)
          {
-            return null;
+            throw new IllegalStateException("The element content was consumed by a reader");
+         }
+         if (content != null && trim)
+         {
+            return content.trim();
          }
+         return content;
+      }
+
+      protected String getContent(boolean trim) throws IllegalStateException
+      {
+         Content view = getContentView(trim);
+         return view != null ? view.toString() : null;
       }
 
       protected QName getName()
@@ -1034,21 +3428,11 @@ class StaxNavigatorImpl<N> implements StaxNavigator<N>
          return location;
       }
 
-      protected Map<String, String> getAttributes()
+      protected Attributes getAttributes()
       {
          return attributes;
       }
 
-      protected Map<QName, String> getQualifiedAttributes()
-      {
-         return qualifiedAttributes;
-      }
-
-      protected Map<String, String> getNamespaces()
-      {
-         return namespaces;
-      }
-
       @Override
       public String toString()
       {
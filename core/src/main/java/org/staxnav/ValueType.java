@@ -19,7 +19,8 @@
 
 package org.staxnav;
 
-import javax.xml.bind.DatatypeConverter;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
 import java.util.Date;
 
 /**
@@ -60,30 +61,47 @@ public abstract class ValueType<V>
       }
    };
 
-   public static final ValueType<Boolean> BOOLEAN = new ValueType<Boolean>()
+   /** . */
+   static final BooleanType BOOLEAN_TYPE = new BooleanType();
+
+   /** . */
+   static final IntegerType INTEGER_TYPE = new IntegerType();
+
+   /** . */
+   static final LongType LONG_TYPE = new LongType();
+
+   /** . */
+   static final DoubleType DOUBLE_TYPE = new DoubleType();
+
+   public static final ValueType<Boolean> BOOLEAN = BOOLEAN_TYPE;
+
+   public static final ValueType<Integer> INTEGER = INTEGER_TYPE;
+
+   public static final ValueType<Long> LONG = LONG_TYPE;
+
+   public static final ValueType<Double> DOUBLE = DOUBLE_TYPE;
+
+   /** The factory parsing the dates, it is part of the JDK unlike the javax.xml.bind API removed by Java 11. */
+   private static final DatatypeFactory DATATYPE_FACTORY;
+
+   static
    {
-      @Override
-      protected Boolean parse(String s) throws Exception
+      try
       {
-         return Boolean.parseBoolean(s.trim());
+         DATATYPE_FACTORY = DatatypeFactory.newInstance();
       }
-   };
-
-   public static final ValueType<Integer> INTEGER = new ValueType<Integer>()
-   {
-      @Override
-      protected Integer parse(String s) throws Exception
+      catch (DatatypeConfigurationException e)
       {
-         return Integer.parseInt(s.trim());
+         throw new Error(e);
       }
-   };
+   }
 
    public static final ValueType<Date> DATE = new ValueType<Date>()
    {
       @Override
       protected Date parse(String s) throws Exception
       {
-         return DatatypeConverter.parseDate(s).getTime();
+         return DATATYPE_FACTORY.newXMLGregorianCalendar(s.trim()).toGregorianCalendar().getTime();
       }
    };
 
@@ -92,7 +110,7 @@ public abstract class ValueType<V>
       @Override
       protected Date parse(String s) throws Exception
       {
-         return DatatypeConverter.parseDateTime(s).getTime();
+         return DATATYPE_FACTORY.newXMLGregorianCalendar(s.trim()).toGregorianCalendar().getTime();
       }
    };
 
@@ -114,6 +132,244 @@ public abstract class ValueType<V>
       }
    }
 
+   /**
+    * Parses a boolean the same way {@link Boolean#parseBoolean(String)} does after trimming.
+    */
+   protected static class BooleanType extends ValueType<Boolean>
+   {
+
+      @Override
+      protected Boolean parse(String s) throws Exception
+      {
+         return parseBoolean(s);
+      }
+
+      @Override
+      protected Boolean parse(CharSequence s) throws Exception
+      {
+         return parseBoolean(s);
+      }
+
+      protected boolean parseBoolean(CharSequence s)
+      {
+         int from = start(s);
+         int to = end(s, from);
+         if (to - from != 4)
+         {
+            return false;
+         }
+         return Character.toLowerCase(s.charAt(from)) == 't' &&
+            Character.toLowerCase(s.charAt(from + 1)) == 'r' &&
+            Character.toLowerCase(s.charAt(from + 2)) == 'u' &&
+            Character.toLowerCase(s.charAt(from + 3)) == 'e';
+      }
+   }
+
+   /**
+    * Parses a decimal integer the same way {@link Integer#parseInt(String)} does after trimming.
+    */
+   protected static class IntegerType extends ValueType<Integer>
+   {
+
+      @Override
+      protected Integer parse(String s) throws Exception
+      {
+         return parseInt(s);
+      }
+
+      @Override
+      protected Integer parse(CharSequence s) throws Exception
+      {
+         return parseInt(s);
+      }
+
+      protected int parseInt(CharSequence s) throws NumberFormatException
+      {
+         int from = start(s);
+         return (int)parseLong(s, from, end(s, from), Integer.MIN_VALUE, Integer.MAX_VALUE);
+      }
+   }
+
+   /**
+    * Parses a decimal long the same way {@link Long#parseLong(String)} does after trimming.
+    */
+   protected static class LongType extends ValueType<Long>
+   {
+
+      @Override
+      protected Long parse(String s) throws Exception
+      {
+         return parseLong(s);
+      }
+
+      @Override
+      protected Long parse(CharSequence s) throws Exception
+      {
+         return parseLong(s);
+      }
+
+      protected long parseLong(CharSequence s) throws NumberFormatException
+      {
+         int from = start(s);
+         return ValueType.parseLong(s, from, end(s, from), Long.MIN_VALUE, Long.MAX_VALUE);
+      }
+   }
+
+   /**
+    * Parses a double the same way {@link Double#parseDouble(String)} does. Plain decimal values having at most
+    * 15 significant digits are parsed without creating a string.
+    */
+   protected static class DoubleType extends ValueType<Double>
+   {
+
+      /** The powers of ten that are exactly represented by a double. */
+      private static final double[] POWERS_OF_TEN = {
+         1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+         1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+      };
+
+      @Override
+      protected Double parse(String s) throws Exception
+      {
+         return Double.parseDouble(s);
+      }
+
+      @Override
+      protected Double parse(CharSequence s) throws Exception
+      {
+         return parseDouble(s);
+      }
+
+      protected double parseDouble(CharSequence s) throws NumberFormatException
+      {
+         int from = start(s);
+         int to = end(s, from);
+         int index = from;
+         boolean negative = false;
+         if (index < to)
+         {
+            char c = s.charAt(index);
+            if (c == '-' || c == '+')
+            {
+               negative = c == '-';
+               index++;
+            }
+         }
+         int start = index;
+         long mantissa = 0;
+         int digits = 0;
+         int fraction = -1;
+         for (;index < to;index++)
+         {
+            char c = s.charAt(index);
+            if (c >= '0' && c <= '9')
+            {
+               if (mantissa > 0 || c != '0')
+               {
+                  if (++digits > 15)
+                  {
+                     break;
+                  }
+               }
+               mantissa = mantissa * 10 + (c - '0');
+               if (fraction >= 0)
+               {
+                  fraction++;
+               }
+            }
+            else if (c == '.' && fraction < 0)
+            {
+               fraction = 0;
+            }
+            else
+            {
+               break;
+            }
+         }
+         int length = to - start - (fraction >= 0 ? 1 : 0);
+         if (index == to && length > 0 && fraction < POWERS_OF_TEN.length)
+         {
+            // Both values are exact and the division is correctly rounded
+            double value = fraction > 0 ? mantissa / POWERS_OF_TEN[fraction] : mantissa;
+            return negative ? -value : value;
+         }
+         return Double.parseDouble(s.subSequence(from, to).toString());
+      }
+   }
+
+   /**
+    * Returns the index of the first character of the sequence that is not trimmed by {@link String#trim()}.
+    *
+    * @param s the char sequence
+    * @return the index
+    */
+   static int start(CharSequence s)
+   {
+      int length = s.length();
+      int from = 0;
+      while (from < length && s.charAt(from) <= ' ')
+      {
+         from++;
+      }
+      return from;
+   }
+
+   /**
+    * Returns the index following the last character of the sequence that is not trimmed by {@link String#trim()}.
+    *
+    * @param s the char sequence
+    * @param from the start index
+    * @return the index
+    */
+   static int end(CharSequence s, int from)
+   {
+      int to = s.length();
+      while (to > from && s.charAt(to - 1) <= ' ')
+      {
+         to--;
+      }
+      return to;
+   }
+
+   static long parseLong(CharSequence s, int from, int to, long min, long max) throws NumberFormatException
+   {
+      if (from == to)
+      {
+         throw new NumberFormatException("For input string: \"" + s + "\"");
+      }
+      int index = from;
+      boolean negative = false;
+      char first = s.charAt(index);
+      if (first == '-' || first == '+')
+      {
+         negative = first == '-';
+         if (++index == to)
+         {
+            throw new NumberFormatException("For input string: \"" + s + "\"");
+         }
+      }
+
+      // Accumulate negatively to handle the minimum value
+      long limit = negative ? min : -max;
+      long multmin = limit / 10;
+      long result = 0;
+      while (index < to)
+      {
+         int digit = Character.digit(s.charAt(index++), 10);
+         if (digit < 0 || result < multmin)
+         {
+            throw new NumberFormatException("For input string: \"" + s + "\"");
+         }
+         result *= 10;
+         if (result < limit + digit)
+         {
+            throw new NumberFormatException("For input string: \"" + s + "\"");
+         }
+         result -= digit;
+      }
+      return negative ? result : -result;
+   }
+
    protected ValueType()
    {
    }
@@ -127,4 +383,18 @@ public abstract class ValueType<V>
     */
    protected abstract V parse(String s) throws Exception;
 
+   /**
+    * Parse a character sequence to the java type for a non null parameter value. The sequence is not trimmed, the
+    * default implementation trims it to a string and invokes {@link #parse(String)}, subclasses can override it to
+    * avoid the string creation.
+    *
+    * @param s the char sequence to parse
+    * @return the parsed value
+    * @throws Exception any exception that would prevent the type conversion to happen
+    */
+   protected V parse(CharSequence s) throws Exception
+   {
+      return parse(s.toString().trim());
+   }
+
 }
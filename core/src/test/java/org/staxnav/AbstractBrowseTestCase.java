@@ -18,8 +18,15 @@ package org.staxnav;/*
 */
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -428,4 +435,192 @@ public abstract class AbstractBrowseTestCase<N> extends AbstractXMLTestCase
       assertFalse(i.hasNext());
       assertNameEquals("bar1", nav.getName());
    }
+
+   public void testStreamingFork1() throws Exception
+   {
+      StaxNavigator<N> nav = navigator("<foo1><bar1><foo2/></bar1><bar1/><bar2/><bar1><bar3/></bar1><foo3/></foo1>");
+      assertTrue(nav.find(createName("bar1")));
+      Iterator<StaxNavigator<N>> iterator = nav.forkStreaming(createName("bar1")).iterator();
+      assertTrue(iterator.hasNext());
+      StaxNavigator<N> n1 = iterator.next();
+      assertNameEquals("bar1", n1.getName());
+      assertNameEquals("foo2", n1.next());
+      assertNull(n1.next());
+
+      // The navigator did not move yet
+      assertNameEquals("bar1", nav.getName());
+      assertTrue(iterator.hasNext());
+      StaxNavigator<N> n2 = iterator.next();
+      assertNameEquals("bar1", n2.getName());
+      assertNull(n2.next());
+      assertTrue(iterator.hasNext());
+      StaxNavigator<N> n3 = iterator.next();
+      assertNameEquals("bar1", n3.getName());
+      assertNameEquals("bar3", n3.next());
+      assertNull(n3.next());
+      assertFalse(iterator.hasNext());
+      assertNameEquals("bar1", nav.getName());
+      assertNameEquals("bar3", nav.next());
+      assertNameEquals("foo3", nav.next());
+      assertNull(nav.next());
+   }
+
+   public void testStreamingFork2() throws Exception
+   {
+      StaxNavigator<N> nav = navigator("<foo1><bar1/><bar2/><bar1/></foo1>");
+      assertTrue(nav.find(createName("bar2")));
+      Iterator<StaxNavigator<N>> i = nav.forkStreaming(createName("bar1")).iterator();
+      assertNameEquals("bar2", nav.getName());
+      assertTrue(i.hasNext());
+      assertNameEquals("bar1", nav.getName());
+      assertNameEquals("bar1", i.next().getName());
+      assertFalse(i.hasNext());
+      try
+      {
+         i.next();
+         fail();
+      }
+      catch (NoSuchElementException ignore)
+      {
+      }
+   }
+
+   public void testStreamingFork3() throws Exception
+   {
+      StaxNavigator<N> nav = navigator("<foo1><bar1/><bar2/></foo1>");
+      Iterable<StaxNavigator<N>> iterable = nav.forkStreaming(Axis.CHILD, createName("bar2"));
+      int count = 0;
+      for (StaxNavigator<N> fork : iterable)
+      {
+         assertNameEquals("bar2", fork.getName());
+         count++;
+      }
+      assertEquals(1, count);
+      try
+      {
+         iterable.iterator();
+         fail();
+      }
+      catch (IllegalStateException ignore)
+      {
+      }
+   }
+
+   public void testStream() throws Exception
+   {
+      StaxNavigator<N> nav = navigator("<foo1><bar1><foo2/></bar1><bar2/><bar1/><bar1/></foo1>");
+      assertTrue(nav.find(createName("bar1")));
+      assertEquals(3, nav.stream(createName("bar1")).count());
+      assertNull(nav.next());
+   }
+
+   public void testStreamShortCircuit() throws Exception
+   {
+      // The document is not well formed after the second element
+      StaxNavigator<N> nav = navigator("<foo1><bar1/><bar2/><bar1><foo2/></bar1><bar2><</foo1>");
+      assertTrue(nav.find(createName("bar1")));
+      StaxNavigator<N> first = nav.stream(createName("bar1")).findFirst().get();
+      assertNameEquals("bar1", first.getName());
+      assertNull(first.next());
+      assertEquals(1, nav.stream(Axis.FOLLOWING_SIBLING, createName("bar2")).limit(1).count());
+      assertNameEquals("bar2", nav.getName());
+      assertNameEquals("bar1", nav.next());
+      assertNameEquals("foo2", nav.next());
+   }
+
+   public void testStreamAnyMatch() throws Exception
+   {
+      StaxNavigator<N> nav = navigator("<foo1><bar1/><bar2><foo2/></bar2><bar2/><</foo1>");
+      assertTrue(nav.stream(Axis.CHILD, createName("bar2")).anyMatch(fork -> fork.child() != null));
+      assertNameEquals("bar2", nav.getName());
+   }
+
+   public void testParserFork() throws Exception
+   {
+      StaxNavigator<N> nav = navigator("<foo1><bar1><foo2/></bar1><bar2/><bar1><bar3/></bar1><foo3/></foo1>");
+      assertNameEquals("bar1", nav.child());
+      final List<String> events = new ArrayList<String>();
+      Map<N, Parser<N>> parsers = new HashMap<N, Parser<N>>();
+      parsers.put(createName("bar1"), fork ->
+      {
+         assertNameEquals("bar1", fork.getName());
+         N child = fork.child();
+         events.add("bar1:" + (child != null ? fork.getLocalName() : null));
+         assertNull(fork.next());
+      });
+      parsers.put(createName("foo3"), fork -> events.add(fork.getLocalName()));
+      assertEquals(3, nav.fork(Axis.FOLLOWING_SIBLING, parsers));
+      assertEquals(Arrays.asList("bar1:foo2", "bar1:bar3", "foo3"), events);
+      assertNameEquals("foo3", nav.getName());
+   }
+
+   public void testParserForkName() throws Exception
+   {
+      StaxNavigator<N> nav = navigator("<foo1><bar1/><bar2/><bar1/></foo1>");
+      assertNameEquals("bar1", nav.child());
+      final List<String> events = new ArrayList<String>();
+      assertEquals(2, nav.fork(createName("bar1"), fork -> events.add(fork.getLocalName())));
+      assertEquals(Arrays.asList("bar1", "bar1"), events);
+   }
+
+   public void testFollowing() throws Exception
+   {
+      StaxNavigator<N> nav = navigator("<foo1><bar1><foo2/></bar1><bar2/></foo1>");
+      assertNameEquals("bar1", nav.navigate(Axis.FOLLOWING));
+      assertNameEquals("foo2", nav.navigate(Axis.FOLLOWING));
+      assertNameEquals("bar2", nav.navigate(Axis.FOLLOWING));
+      assertNull(nav.navigate(Axis.FOLLOWING));
+   }
+
+   public void testParent() throws Exception
+   {
+      StaxNavigator<N> nav = navigator("<foo1><bar1><foo2 a='b'><bar2/></foo2><bar3/></bar1><foo3/></foo1>");
+      assertNull(nav.navigate(Axis.PARENT));
+      assertTrue(nav.find(createName("bar2")));
+      assertNameEquals("foo2", nav.navigate(Axis.PARENT));
+      assertEquals("b", nav.getAttribute("a"));
+      assertEquals(3, nav.getDepth());
+      assertFalse(nav.navigate(Axis.PARENT, createName("foo1")));
+      assertTrue(nav.navigate(Axis.PARENT, createName("bar1")));
+
+      // Navigation continues after the element the parent was reached from
+      assertNameEquals("bar3", nav.child());
+      assertNameEquals("bar1", nav.navigate(Axis.PARENT));
+      assertNameEquals("foo1", nav.navigate(Axis.PARENT));
+      assertNameEquals("foo3", nav.child());
+   }
+
+   public void testAncestor() throws Exception
+   {
+      StaxNavigator<N> nav = navigator("<foo1><bar1><foo2><bar2/></foo2></bar1><bar1/></foo1>");
+      assertTrue(nav.find(createName("bar2")));
+      assertFalse(nav.navigate(Axis.ANCESTOR, createName("foo3")));
+      assertNameEquals("bar2", nav.getName());
+      assertTrue(nav.navigate(Axis.ANCESTOR, createName("bar1")));
+      assertEquals(2, nav.getDepth());
+      assertNameEquals("foo1", nav.navigate(Axis.ANCESTOR));
+      assertNull(nav.navigate(Axis.ANCESTOR));
+      assertNameEquals("bar1", nav.next());
+      assertNull(nav.next());
+   }
+
+   public void testAncestorNames() throws Exception
+   {
+      StaxNavigator<N> nav = navigator("<foo1><bar1><foo2><bar2/></foo2></bar1></foo1>");
+      assertEquals(Collections.emptyList(), nav.getAncestorNames());
+      assertTrue(nav.find(createName("bar2")));
+      assertEquals(Arrays.asList(createName("foo2"), createName("bar1"), createName("foo1")), nav.getAncestorNames());
+   }
+
+   public void testAncestorScope() throws Exception
+   {
+      StaxNavigator<N> nav = navigator("<foo1><bar1><foo2><bar2/></foo2></bar1></foo1>");
+      assertTrue(nav.find(createName("bar1")));
+      StaxNavigator<N> fork = nav.fork();
+      assertTrue(fork.find(createName("bar2")));
+      assertEquals(Arrays.asList(createName("foo2"), createName("bar1")), fork.getAncestorNames());
+      assertFalse(fork.navigate(Axis.ANCESTOR, createName("foo1")));
+      assertTrue(fork.navigate(Axis.ANCESTOR, createName("bar1")));
+      assertNull(fork.navigate(Axis.PARENT));
+   }
 }
\ No newline at end of file
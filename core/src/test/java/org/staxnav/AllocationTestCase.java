@@ -0,0 +1,377 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * Measures the bytes allocated per element of a generated document by the thread navigating it, the measure
+ * includes the allocations of the stream. The budgets fail the build when the allocations of the navigator
+ * regress, the tests are skipped when the JVM does not measure the thread allocations.
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public class AllocationTestCase extends AbstractXMLTestCase
+{
+
+   /** The number of items of the document. */
+   private static final int ITEMS = 2000;
+
+   /** The number of elements of the document. */
+   private static final int ELEMENTS = 1 + ITEMS * 3;
+
+   /** . */
+   private static final String DOCUMENT;
+
+   static
+   {
+      StringBuilder sb = new StringBuilder("<root>");
+      for (int i = 0;i < ITEMS;i++)
+      {
+         sb.append("<item id='").append(i).append("'>");
+         sb.append("<name>name-").append(i).append("</name>");
+         sb.append("<value>").append(i).append("</value>");
+         sb.append("</item>");
+      }
+      DOCUMENT = sb.append("</root>").toString();
+   }
+
+   /** The thread bean or null when the allocations are not measured. */
+   private static final com.sun.management.ThreadMXBean THREADS;
+
+   static
+   {
+      com.sun.management.ThreadMXBean threads = null;
+      try
+      {
+         java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+         if (bean instanceof com.sun.management.ThreadMXBean)
+         {
+            threads = (com.sun.management.ThreadMXBean)bean;
+            if (threads.isThreadAllocatedMemorySupported())
+            {
+               threads.setThreadAllocatedMemoryEnabled(true);
+            }
+            else
+            {
+               threads = null;
+            }
+         }
+      }
+      catch (Throwable ignore)
+      {
+         // Not a HotSpot JVM
+      }
+      THREADS = threads;
+   }
+
+   private interface Task
+   {
+      void run(StaxNavigator<String> nav) throws Exception;
+   }
+
+   private void assertBudget(int budget, Task task) throws Exception
+   {
+      assertBudget(budget, null, task);
+   }
+
+   private void assertBudget(int budget, StaxNavigatorFactory factory, Task task) throws Exception
+   {
+      if (THREADS == null)
+      {
+         return;
+      }
+
+      // Warm up so class loading and compilation do not count
+      long min = Long.MAX_VALUE;
+      for (int i = 0;i < 5;i++)
+      {
+         long id = Thread.currentThread().getId();
+         long before = THREADS.getThreadAllocatedBytes(id);
+         task.run(factory != null ?
+            factory.createNavigator(new Naming.Local(), new StringReader(DOCUMENT)) :
+            navigator(new Naming.Local(), DOCUMENT));
+         long allocated = THREADS.getThreadAllocatedBytes(id) - before;
+         min = Math.min(min, allocated);
+      }
+
+      //
+      long perElement = min / ELEMENTS;
+      assertTrue(getName() + " allocated " + perElement + " bytes per element over the budget of " + budget,
+         perElement <= budget);
+   }
+
+   public void testNext() throws Exception
+   {
+      assertBudget(384, nav ->
+      {
+         int count = 1;
+         while (nav.next() != null)
+         {
+            count++;
+         }
+         assertEquals(ELEMENTS, count);
+      });
+   }
+
+   public void testSingleCursor() throws Exception
+   {
+      assertBudget(128, StaxNavigatorFactory.builder().singleCursor(true).build(), nav ->
+      {
+         int count = 1;
+         while (nav.next() != null)
+         {
+            count++;
+         }
+         assertEquals(ELEMENTS, count);
+      });
+   }
+
+   public void testSelf() throws Exception
+   {
+      assertBudget(384, nav ->
+      {
+         int count = 1;
+         while (nav.navigate(Axis.NEXT) != null)
+         {
+            if (nav.navigate(Axis.SELF) != null)
+            {
+               count++;
+            }
+         }
+         assertEquals(ELEMENTS, count);
+      });
+   }
+
+   public void testChild() throws Exception
+   {
+      assertBudget(416, nav ->
+      {
+         int count = 0;
+         for (String name = nav.child();name != null;name = nav.sibling())
+         {
+            StaxNavigator<String> fork = nav.fork();
+            assertEquals("name", fork.child());
+            assertTrue(fork.child("value") || fork.sibling("value"));
+            count++;
+         }
+         assertEquals(ITEMS, count);
+      });
+   }
+
+   public void testFollowingSibling() throws Exception
+   {
+      assertBudget(384, nav ->
+      {
+         assertEquals("item", nav.child());
+         int count = 1;
+         while (nav.sibling("item"))
+         {
+            count++;
+         }
+         assertEquals(ITEMS, count);
+      });
+   }
+
+   public void testFollowing() throws Exception
+   {
+      assertBudget(384, nav ->
+      {
+         int count = 0;
+         while (nav.navigate(Axis.FOLLOWING, "value"))
+         {
+            count++;
+         }
+         assertEquals(ITEMS, count);
+      });
+   }
+
+   public void testParent() throws Exception
+   {
+      assertBudget(416, nav ->
+      {
+         int count = 0;
+         while (nav.navigate(Axis.FOLLOWING, "value"))
+         {
+            assertEquals("item", nav.navigate(Axis.PARENT));
+            assertTrue(nav.navigate(Axis.ANCESTOR, "root"));
+            assertEquals(1, nav.getDepth());
+            count++;
+         }
+         assertEquals(ITEMS, count);
+      });
+   }
+
+   public void testFork() throws Exception
+   {
+      assertBudget(400, nav ->
+      {
+         assertEquals("item", nav.child());
+         int count = 0;
+         for (StaxNavigator<String> fork : nav.fork("item"))
+         {
+            assertEquals("item", fork.getName());
+            count++;
+         }
+         assertEquals(ITEMS, count);
+      });
+   }
+
+   public void testForkStreaming() throws Exception
+   {
+      assertBudget(288, nav ->
+      {
+         assertEquals("item", nav.child());
+         int count = 0;
+         for (StaxNavigator<String> fork : nav.forkStreaming("item"))
+         {
+            assertEquals("name", fork.child());
+            count++;
+         }
+         assertEquals(ITEMS, count);
+      });
+   }
+
+   public void testStream() throws Exception
+   {
+      assertBudget(160, nav ->
+      {
+         assertEquals("item", nav.child());
+         assertEquals(ITEMS, nav.stream("item").count());
+      });
+   }
+
+   public void testParserFork() throws Exception
+   {
+      assertBudget(288, nav ->
+      {
+         assertEquals("item", nav.child());
+         final int[] count = {0};
+         Parser<String> parser = fork ->
+         {
+            assertEquals("name", fork.child());
+            count[0]++;
+         };
+         assertEquals(ITEMS, nav.fork(Axis.FOLLOWING_SIBLING, Collections.singletonMap("item", parser)));
+         assertEquals(ITEMS, count[0]);
+      });
+   }
+
+   public void testSelect() throws Exception
+   {
+      final PathExpression<String> path = PathExpression.compile("item/value", new Naming.Local());
+      assertBudget(384, nav ->
+      {
+         int count = 0;
+         for (Iterator<StaxNavigator<String>> i = nav.select(path).iterator();i.hasNext();i.next())
+         {
+            count++;
+         }
+         assertEquals(ITEMS, count);
+      });
+   }
+
+   public void testGetContent() throws Exception
+   {
+      assertBudget(400, nav ->
+      {
+         int count = 0;
+         while (nav.navigate(Axis.FOLLOWING, "name"))
+         {
+            assertTrue(nav.getContent().startsWith("name-"));
+            count++;
+         }
+         assertEquals(ITEMS, count);
+      });
+   }
+
+   public void testParseContent() throws Exception
+   {
+      assertBudget(384, nav ->
+      {
+         int sum = 0;
+         while (nav.navigate(Axis.FOLLOWING, "value"))
+         {
+            sum += nav.parseContent(ValueType.INTEGER);
+         }
+         assertEquals(ITEMS * (ITEMS - 1) / 2, sum);
+      });
+   }
+
+   public void testNoLeak() throws Exception
+   {
+      // Navigating forward does not retain the elements
+      StaxNavigator<String> nav = navigator(new Naming.Local(), DOCUMENT);
+      assertEquals("item", nav.child());
+      for (StaxNavigator<String> fork : nav.forkStreaming("item"))
+      {
+         assertEquals("name", fork.child());
+         assertTrue(nav.getDocumentRetention().getEntries() <= 3);
+      }
+   }
+
+   private long allocatedPerMessage(Task task) throws Exception
+   {
+      long min = Long.MAX_VALUE;
+      for (int i = 0;i < 5;i++)
+      {
+         long id = Thread.currentThread().getId();
+         long before = THREADS.getThreadAllocatedBytes(id);
+         for (int j = 0;j < 1000;j++)
+         {
+            task.run(null);
+         }
+         long allocated = THREADS.getThreadAllocatedBytes(id) - before;
+         min = Math.min(min, allocated);
+      }
+      return min / 1000;
+   }
+
+   public void testReset() throws Exception
+   {
+      if (THREADS == null)
+      {
+         return;
+      }
+      final byte[] message = "<message id='0'><body>body</body><footer/></message>".getBytes("UTF-8");
+      final StaxNavigatorFactory factory = StaxNavigatorFactory.builder().build();
+      final ReusableNavigator<String> reusable = factory.createReusableNavigator(new Naming.Local());
+      long created = allocatedPerMessage(ignore ->
+      {
+         StaxNavigator<String> nav = factory.createNavigator(new Naming.Local(), new ByteArrayInputStream(message));
+         assertEquals("body", nav.child());
+         assertEquals("body", nav.getContent());
+      });
+      long reused = allocatedPerMessage(ignore ->
+      {
+         StaxNavigator<String> nav = reusable.reset(message);
+         assertEquals("body", nav.child());
+         assertEquals("body", nav.getContent());
+      });
+
+      // The buffers and the document state are not allocated again
+      assertTrue("Reusing allocated " + reused + " bytes per message instead of " + created, reused + 512 <= created);
+   }
+}
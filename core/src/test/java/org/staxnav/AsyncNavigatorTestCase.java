@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.staxnav;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public class AsyncNavigatorTestCase extends AbstractXMLTestCase
+{
+
+   /** . */
+   private static final String DOCUMENT =
+      "<root>" +
+         "<a>foo<a1>bar</a1><a2/></a>" +
+         "<b><b1>juu</b1></b>" +
+         "<a><a3/>daa<a4/></a>" +
+      "</root>";
+
+   /**
+    * Simulates a non blocking stream, each byte fed makes one more event available.
+    */
+   private static class ChunkedStream extends StreamReaderDelegate implements InputFeeder
+   {
+
+      /** . */
+      private int available;
+
+      /** . */
+      private boolean incomplete;
+
+      /** . */
+      private boolean ended;
+
+      private ChunkedStream(String document) throws XMLStreamException
+      {
+         super(XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(document)));
+      }
+
+      @Override
+      public int next() throws XMLStreamException
+      {
+         if (!ended && available == 0)
+         {
+            incomplete = true;
+            return AsyncStaxNavigator.EVENT_INCOMPLETE;
+         }
+         available--;
+         incomplete = false;
+         return super.next();
+      }
+
+      @Override
+      public int getEventType()
+      {
+         return incomplete ? AsyncStaxNavigator.EVENT_INCOMPLETE : super.getEventType();
+      }
+
+      public void feed(byte[] bytes, int offset, int length)
+      {
+         available += length;
+      }
+
+      public void endOfInput()
+      {
+         ended = true;
+      }
+   }
+
+   private AsyncStaxNavigator<String> asyncNavigator(String document) throws Exception
+   {
+      ChunkedStream stream = new ChunkedStream(document);
+      return StaxNavigatorFactory.builder().build().createAsyncNavigator(new Naming.Local(), stream, stream);
+   }
+
+   private AsyncStaxNavigator.Status feed(AsyncStaxNavigator<String> nav, Operation operation)
+   {
+      byte[] chunk = new byte[1];
+      while (true)
+      {
+         AsyncStaxNavigator.Status status = operation.execute(nav);
+         if (status != AsyncStaxNavigator.Status.NEED_INPUT)
+         {
+            return status;
+         }
+         assertTrue(nav.needsInput());
+         nav.feed(chunk, 0, 1);
+      }
+   }
+
+   private interface Operation
+   {
+      AsyncStaxNavigator.Status execute(AsyncStaxNavigator<String> nav);
+   }
+
+   public void testNeedInput() throws Exception
+   {
+      AsyncStaxNavigator<String> nav = asyncNavigator(DOCUMENT);
+      assertTrue(nav.needsInput());
+      assertEquals(AsyncStaxNavigator.Status.NEED_INPUT, nav.navigate(Axis.SELF));
+      try
+      {
+         nav.getNavigator().getName();
+         fail();
+      }
+      catch (IncompleteInputException ignore)
+      {
+      }
+      nav.feed(new byte[1], 0, 1);
+      assertFalse(nav.needsInput());
+      try
+      {
+         nav.feed(new byte[1], 0, 1);
+         fail();
+      }
+      catch (IllegalStateException ignore)
+      {
+      }
+      assertEquals(AsyncStaxNavigator.Status.FOUND, nav.navigate(Axis.SELF));
+      assertEquals("root", nav.getNavigator().getName());
+      assertEquals(AsyncStaxNavigator.Status.NEED_INPUT, nav.child());
+      assertTrue(nav.needsInput());
+      assertEquals("root", nav.getNavigator().getName());
+   }
+
+   public void testNext() throws Exception
+   {
+      List<String> expected = new ArrayList<String>();
+      StaxNavigator<String> sync = StaxNavigatorFactory.create(new Naming.Local(), new StringReader(DOCUMENT));
+      do
+      {
+         expected.add(sync.getName() + "=" + sync.getContent());
+      }
+      while (sync.next() != null);
+
+      //
+      AsyncStaxNavigator<String> nav = asyncNavigator(DOCUMENT);
+      List<String> names = new ArrayList<String>();
+      assertEquals(AsyncStaxNavigator.Status.FOUND, feed(nav, n -> n.navigate(Axis.SELF)));
+      do
+      {
+         assertEquals(AsyncStaxNavigator.Status.FOUND, feed(nav, AsyncStaxNavigator::readContent));
+         names.add(nav.getNavigator().getName() + "=" + nav.getNavigator().getContent());
+      }
+      while (feed(nav, AsyncStaxNavigator::next) == AsyncStaxNavigator.Status.FOUND);
+      assertEquals(expected, names);
+   }
+
+   public void testSiblings() throws Exception
+   {
+      AsyncStaxNavigator<String> nav = asyncNavigator(DOCUMENT);
+      assertEquals(AsyncStaxNavigator.Status.FOUND, feed(nav, n -> n.navigate(Axis.SELF)));
+      assertEquals(AsyncStaxNavigator.Status.FOUND, feed(nav, n -> n.child("b")));
+      assertEquals("b", nav.getNavigator().getName());
+      assertEquals(AsyncStaxNavigator.Status.FOUND, feed(nav, n -> n.sibling("a")));
+      assertEquals("a", nav.getNavigator().getName());
+      assertEquals(AsyncStaxNavigator.Status.FOUND, feed(nav, n -> n.child()));
+      assertEquals("a3", nav.getNavigator().getName());
+      assertEquals(AsyncStaxNavigator.Status.FOUND, feed(nav, n -> n.sibling()));
+      assertEquals("a4", nav.getNavigator().getName());
+      assertEquals(AsyncStaxNavigator.Status.NOT_FOUND, feed(nav, n -> n.sibling()));
+      assertEquals("a4", nav.getNavigator().getName());
+   }
+
+   public void testEndOfInput() throws Exception
+   {
+      AsyncStaxNavigator<String> nav = asyncNavigator(DOCUMENT);
+      assertEquals(AsyncStaxNavigator.Status.NEED_INPUT, nav.navigate(Axis.SELF));
+      nav.endOfInput();
+      assertFalse(nav.needsInput());
+      assertEquals(AsyncStaxNavigator.Status.FOUND, nav.navigate(Axis.SELF));
+      assertEquals(AsyncStaxNavigator.Status.FOUND, nav.child("b"));
+      assertEquals(AsyncStaxNavigator.Status.FOUND, nav.child());
+      assertEquals("juu", nav.getNavigator().getContent());
+      try
+      {
+         nav.feed(new byte[1], 0, 1);
+         fail();
+      }
+      catch (IllegalStateException ignore)
+      {
+      }
+   }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+import javax.xml.namespace.QName;
+
+/**
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public class AttributeProjectionTestCase extends StaxNavigatorTestCase
+{
+
+   public void testDefault() throws Exception
+   {
+      StaxNavigator<String> navigator = navigator(new Naming.Local(), "sample.xml");
+      assertNull(navigator.getAttributeProjection());
+      assertTrue(navigator.find("bar2"));
+      assertEquals("b", navigator.getAttribute("a"));
+      assertEquals("c", navigator.getAttribute("b"));
+   }
+
+   public void testKeepNone() throws Exception
+   {
+      StaxNavigator<String> navigator = navigator(new Naming.Local(), "sample.xml");
+      navigator.setAttributeProjection(AttributeProjection.<String>builder().build());
+      assertTrue(navigator.find("bar2"));
+      assertEquals(null, navigator.getAttribute("a"));
+      assertEquals(null, navigator.getAttribute("b"));
+      assertTrue(navigator.getAttributes().isEmpty());
+      assertTrue(navigator.find("foobar1"));
+      assertEquals(null, navigator.getAttribute("foo"));
+   }
+
+   public void testKeep() throws Exception
+   {
+      StaxNavigator<String> navigator = navigator(new Naming.Local(), "sample.xml");
+      navigator.setAttributeProjection(AttributeProjection.<String>builder().keep("bar2", "a").keepAll("foobar1").build());
+      assertTrue(navigator.find("bar2"));
+      assertEquals("b", navigator.getAttribute("a"));
+      assertEquals(null, navigator.getAttribute("b"));
+      assertEquals(1, navigator.getAttributes().size());
+      assertTrue(navigator.find("foobar1"));
+      assertEquals("bar", navigator.getAttribute("foo"));
+   }
+
+   public void testKeepAllByDefault() throws Exception
+   {
+      StaxNavigator<String> navigator = navigator(new Naming.Local(), "sample.xml");
+      navigator.setAttributeProjection(AttributeProjection.<String>builder(true).keepNone("foobar1").build());
+      assertTrue(navigator.find("bar2"));
+      assertEquals("b", navigator.getAttribute("a"));
+      assertEquals("c", navigator.getAttribute("b"));
+      assertTrue(navigator.find("foobar1"));
+      assertEquals(null, navigator.getAttribute("foo"));
+   }
+
+   public void testEnumerated() throws Exception
+   {
+      StaxNavigator<SampleName> navigator = navigator(new Naming.Enumerated.Mapped<SampleName>(SampleName.class, SampleName.DONOTEXIST), "sample.xml");
+      navigator.setAttributeProjection(AttributeProjection.<SampleName>builder().keep(SampleName.BAR2, "b").build());
+      assertTrue(navigator.find(SampleName.BAR2));
+      assertEquals(null, navigator.getAttribute("a"));
+      assertEquals("c", navigator.getAttribute("b"));
+   }
+
+   public void testQualified() throws Exception
+   {
+      QName juu = new QName("http://www.w3.org/2000/svg", "juu");
+      StaxNavigator<String> navigator = navigator(new Naming.Local(), "namespace3.xml");
+      navigator.setAttributeProjection(AttributeProjection.<String>builder().keep("bar", juu).build());
+      assertTrue(navigator.next("bar"));
+      assertEquals(null, navigator.getAttribute("juu"));
+      assertEquals("ns_juu_value", navigator.getAttribute(juu));
+      assertEquals(1, navigator.getQualifiedAttributes().size());
+   }
+
+   public void testAppliesToForks() throws Exception
+   {
+      StaxNavigator<String> navigator = navigator(new Naming.Local(), "sample.xml");
+      navigator.setAttributeProjection(AttributeProjection.<String>builder().build());
+      StaxNavigator<String> fork = navigator.fork();
+      assertTrue(fork.find("bar2"));
+      assertEquals(null, fork.getAttribute("a"));
+   }
+
+   public void testForkDoesNotAffectParent() throws Exception
+   {
+      StaxNavigator<String> navigator = navigator(new Naming.Local(), "sample.xml");
+      AttributeProjection<String> projection = AttributeProjection.<String>builder().keep("bar2", "a").build();
+      navigator.setAttributeProjection(projection);
+      StaxNavigator<String> fork = navigator.fork();
+      assertSame(projection, fork.getAttributeProjection());
+      fork.setAttributeProjection(AttributeProjection.<String>builder().build());
+      StaxNavigator<QName> qualified = navigator.fork(new Naming.Qualified());
+      assertNull(qualified.getAttributeProjection());
+      qualified.setAttributeProjection(AttributeProjection.<QName>builder(true).keepNone(new QName("bar2")).build());
+      assertSame(projection, navigator.getAttributeProjection());
+      assertTrue(navigator.find("bar2"));
+      assertEquals("b", navigator.getAttribute("a"));
+      assertEquals(null, navigator.getAttribute("b"));
+   }
+
+   public void testImmutable() throws Exception
+   {
+      AttributeProjection.Builder<String> builder = AttributeProjection.<String>builder().keep("bar2", "a");
+      AttributeProjection<String> projection = builder.build();
+      builder.keepAll("bar2");
+      StaxNavigator<String> navigator = navigator(new Naming.Local(), "sample.xml");
+      navigator.setAttributeProjection(projection);
+      assertTrue(navigator.find("bar2"));
+      assertEquals("b", navigator.getAttribute("a"));
+      assertEquals(null, navigator.getAttribute("b"));
+   }
+}
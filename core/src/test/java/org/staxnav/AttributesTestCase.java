@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+import javax.xml.namespace.QName;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public class AttributesTestCase extends AbstractXMLTestCase
+{
+
+   /** . */
+   private static final String NS = "http://www.w3.org/2000/svg";
+
+   public void testViews() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), "<foo xmlns:ns='" + NS + "' a='1' ns:a='2' b='3'/>");
+
+      //
+      Map<String, String> expected = new HashMap<String, String>();
+      expected.put("a", "1");
+      expected.put("b", "3");
+      assertEquals(expected, nav.getAttributes());
+      assertEquals(2, nav.getAttributes().size());
+      assertTrue(nav.getAttributes().containsKey("b"));
+      assertFalse(nav.getAttributes().containsKey("c"));
+
+      //
+      Map<QName, String> expectedQualified = new HashMap<QName, String>();
+      expectedQualified.put(new QName("a"), "1");
+      expectedQualified.put(new QName(NS, "a"), "2");
+      expectedQualified.put(new QName("b"), "3");
+      assertEquals(expectedQualified, nav.getQualifiedAttributes());
+      assertEquals(expectedQualified.hashCode(), nav.getQualifiedAttributes().hashCode());
+
+      // Getting the qualified attributes does not change the attributes
+      assertEquals(expected, nav.getAttributes());
+   }
+
+   public void testPrefix() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), "<foo xmlns:ns='" + NS + "' ns:a='2'/>");
+      QName name = nav.getQualifiedAttributes().keySet().iterator().next();
+      assertEquals(NS, name.getNamespaceURI());
+      assertEquals("a", name.getLocalPart());
+      assertEquals("ns", name.getPrefix());
+      assertTrue(nav.getAttributes().isEmpty());
+   }
+
+   public void testSameView() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), "<foo a='1'/>");
+      assertSame(nav.getAttributes(), nav.getAttributes());
+      assertSame(nav.getQualifiedAttributes(), nav.getQualifiedAttributes());
+   }
+
+   public void testEntriesCreatedOnce() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), "<foo xmlns:ns='" + NS + "' a='1' ns:a='2'/>");
+      Map<QName, String> qualified = nav.getQualifiedAttributes();
+      Iterator<Map.Entry<QName, String>> first = qualified.entrySet().iterator();
+      Iterator<Map.Entry<QName, String>> second = qualified.entrySet().iterator();
+      while (first.hasNext())
+      {
+         Map.Entry<QName, String> entry = first.next();
+         Map.Entry<QName, String> other = second.next();
+         assertSame(entry, other);
+         assertSame(entry.getKey(), other.getKey());
+      }
+      assertFalse(second.hasNext());
+      assertSame(qualified.keySet().iterator().next(), qualified.keySet().iterator().next());
+      assertSame(nav.getAttributes().entrySet().iterator().next(), nav.getAttributes().entrySet().iterator().next());
+   }
+
+   public void testReadOnly() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), "<foo a='1'/>");
+      try
+      {
+         nav.getAttributes().put("b", "2");
+         fail();
+      }
+      catch (UnsupportedOperationException ignore)
+      {
+      }
+      try
+      {
+         nav.getQualifiedAttributes().put(new QName("b"), "2");
+         fail();
+      }
+      catch (UnsupportedOperationException ignore)
+      {
+      }
+      try
+      {
+         nav.getAttributes().entrySet().iterator().next().setValue("2");
+         fail();
+      }
+      catch (UnsupportedOperationException ignore)
+      {
+      }
+   }
+
+   public void testNoAttributes() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), "<foo/>");
+      assertTrue(nav.getAttributes().isEmpty());
+      assertTrue(nav.getQualifiedAttributes().isEmpty());
+      assertNull(nav.getAttribute("a"));
+      assertNull(nav.getAttribute(new QName(NS, "a")));
+   }
+}
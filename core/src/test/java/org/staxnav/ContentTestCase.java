@@ -18,6 +18,7 @@ package org.staxnav;/*
  */
 
 import javax.xml.stream.XMLStreamException;
+import java.io.Reader;
 
 /**
  * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
@@ -41,4 +42,114 @@ public class ContentTestCase extends AbstractXMLTestCase
       nav.setTrimContent(true);
       assertEquals("abc", nav.getContent());
    }
+
+   public void testEmpty() throws XMLStreamException
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), "<foo><bar/><juu></juu></foo>");
+      assertEquals("bar", nav.child());
+      assertEquals(null, nav.getContent());
+      assertEquals("juu", nav.sibling());
+      assertEquals(null, nav.getContent());
+      assertEquals(null, nav.getContentView());
+   }
+
+   public void testChunks() throws XMLStreamException
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), "<foo>abc<!-- comment -->def<?pi?>ghi</foo>");
+      assertEquals("abcdefghi", nav.getContent());
+   }
+
+   public void testView() throws XMLStreamException
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), "<foo> abc </foo>");
+      CharSequence view = nav.getContentView();
+      assertEquals(5, view.length());
+      assertEquals('a', view.charAt(1));
+      assertEquals("bc", view.subSequence(2, 4).toString());
+      assertEquals(" abc ", view.toString());
+      assertSame(view.toString(), view.toString());
+      assertSame(view.toString(), nav.getContent());
+      assertEquals('a', view.charAt(1));
+      nav.setTrimContent(true);
+      CharSequence trimmed = nav.getContentView();
+      assertEquals("abc", trimmed.toString());
+      assertSame(trimmed, nav.getContentView());
+      assertSame(nav.getContent(), nav.getContent());
+   }
+
+   public void testReader() throws Exception
+   {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0;i < 100000;i++)
+      {
+         sb.append(i).append(' ');
+      }
+      String text = sb.toString();
+      StaxNavigator<String> nav = navigator(new Naming.Local(), "<foo><bar>" + text + "</bar><juu>juu</juu></foo>");
+      assertEquals("bar", nav.child());
+      Reader reader = nav.getContentReader();
+      assertEquals(text, read(reader));
+      assertEquals(-1, reader.read());
+      try
+      {
+         nav.getContent();
+         fail();
+      }
+      catch (IllegalStateException expected)
+      {
+      }
+      try
+      {
+         nav.getContentReader();
+         fail();
+      }
+      catch (IllegalStateException expected)
+      {
+      }
+      assertEquals("juu", nav.sibling());
+      assertEquals("juu", nav.getContent());
+   }
+
+   public void testReaderSkip() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), "<foo><bar>abcdef</bar><juu>juu</juu></foo>");
+      assertEquals("bar", nav.child());
+      Reader reader = nav.getContentReader();
+      assertEquals('a', reader.read());
+      assertEquals("juu", nav.sibling());
+      assertEquals(-1, reader.read());
+      assertEquals("juu", nav.getContent());
+   }
+
+   public void testReaderMixed() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), "<foo>abc<bar>def</bar></foo>");
+      assertEquals("abc", read(nav.getContentReader()));
+      assertEquals("bar", nav.child());
+      assertEquals("def", nav.getContent());
+   }
+
+   public void testReaderFromMemory() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), "<foo><bar> abc </bar><juu>def<juu/></juu></foo>");
+      assertEquals("bar", nav.child());
+      assertEquals(" abc ", nav.getContent());
+      assertEquals(" abc ", read(nav.getContentReader()));
+      nav.setTrimContent(true);
+      assertEquals("abc", read(nav.getContentReader()));
+      assertEquals("juu", nav.sibling());
+      assertEquals(null, nav.getContent());
+      assertEquals(null, nav.getContentReader());
+   }
+
+   private static String read(Reader reader) throws Exception
+   {
+      StringBuilder sb = new StringBuilder();
+      char[] buffer = new char[1000];
+      for (int count = reader.read(buffer);count != -1;count = reader.read(buffer))
+      {
+         sb.append(buffer, 0, count);
+      }
+      return sb.toString();
+   }
 }
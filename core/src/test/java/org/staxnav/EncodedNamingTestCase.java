@@ -98,6 +98,46 @@ public class EncodedNamingTestCase extends StaxNavigatorTestCase
       assertEquals(3, bookCount);
    }
 
+   public void testResolveOnce()
+   {
+      int elementCount = 1;
+      while (navigator.next() != null)
+      {
+         elementCount++;
+      }
+
+      //
+      CountingNaming naming = new CountingNaming();
+      StaxNavigator<EncodedElement> navigator = navigator(naming, "encoded.xml");
+      assertEquals(EncodedElement.BOOKS_ELEMENT, navigator.getName());
+      assertEquals(EncodedElement.BOOK_ELEMENT, navigator.next());
+      for (StaxNavigator<EncodedElement> fork : navigator.fork(EncodedElement.BOOK_ELEMENT))
+      {
+         assertEquals(EncodedElement.BOOK_ELEMENT, fork.getName());
+         assertTrue(fork.find(EncodedElement.AUTHOR_ELEMENT));
+         assertTrue(fork.find(EncodedElement.BOOK_ELEMENT));
+         for (EncodedElement element = fork.next();element != null;element = fork.next())
+         {
+            assertEquals(element, fork.getName());
+         }
+      }
+      assertEquals(elementCount, naming.count);
+   }
+
+   private static class CountingNaming extends EncodedNaming
+   {
+
+      /** . */
+      private int count;
+
+      @Override
+      public EncodedElement getName(String uri, String prefix, String localPart)
+      {
+         count++;
+         return super.getName(uri, prefix, localPart);
+      }
+   }
+
    private static class EncodedNaming extends Naming<EncodedElement>
    {
       @Override
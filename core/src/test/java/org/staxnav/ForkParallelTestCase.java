@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+import java.io.BufferedReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public class ForkParallelTestCase extends AbstractXMLTestCase
+{
+
+   /** . */
+   private static final int SIZE = 500;
+
+   /** . */
+   private ExecutorService executor;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      executor = Executors.newFixedThreadPool(4);
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      executor.shutdownNow();
+      executor.awaitTermination(10, TimeUnit.SECONDS);
+   }
+
+   private StaxNavigator<String> records()
+   {
+      StringBuilder sb = new StringBuilder("<records>");
+      for (int i = 0;i < SIZE;i++)
+      {
+         sb.append("<record id='").append(i).append("'><value>").append(i).append("</value><tag/></record>");
+      }
+      sb.append("</records>");
+      StaxNavigator<String> nav = navigator(new Naming.Local(), sb.toString());
+      assertEquals("record", nav.child());
+      return nav;
+   }
+
+   public void testUnordered() throws Exception
+   {
+      final Set<Integer> values = ConcurrentHashMap.newKeySet();
+      records().forkParallel("record", executor, fork ->
+      {
+         String id = fork.getAttribute("id");
+         assertEquals("value", fork.child());
+         int value = fork.parseInt();
+         assertEquals(id, Integer.toString(value));
+         values.add(value);
+      });
+      assertEquals(SIZE, values.size());
+   }
+
+   public void testOrdered() throws Exception
+   {
+      final List<Integer> values = new ArrayList<Integer>();
+      records().forkParallel(Axis.FOLLOWING_SIBLING, "record", executor, 8, true, fork ->
+      {
+         assertEquals("value", fork.child());
+         return fork.parseInt();
+      }, values::add);
+      assertEquals(SIZE, values.size());
+      for (int i = 0;i < SIZE;i++)
+      {
+         assertEquals(i, (int)values.get(i));
+      }
+   }
+
+   public void testMaxInFlight() throws Exception
+   {
+      final AtomicInteger running = new AtomicInteger();
+      final AtomicInteger max = new AtomicInteger();
+      final AtomicInteger count = new AtomicInteger();
+      records().forkParallel(Axis.FOLLOWING_SIBLING, "record", executor, 2, false, fork ->
+      {
+         int value = running.incrementAndGet();
+         max.accumulateAndGet(value, Math::max);
+         Thread.yield();
+         running.decrementAndGet();
+         return fork;
+      }, fork -> count.incrementAndGet());
+      assertTrue(max.get() <= 2);
+      assertEquals(SIZE, count.get());
+   }
+
+   public void testFailure() throws Exception
+   {
+      try
+      {
+         records().forkParallel(Axis.FOLLOWING_SIBLING, "record", executor, 4, false, fork ->
+         {
+            if ("5".equals(fork.getAttribute("id")))
+            {
+               throw new IllegalStateException("5");
+            }
+            return fork;
+         }, fork -> {});
+         fail();
+      }
+      catch (IllegalStateException e)
+      {
+         assertEquals("5", e.getMessage());
+      }
+   }
+
+   public void testDetached() throws Exception
+   {
+      final List<StaxNavigator<String>> forks = new ArrayList<StaxNavigator<String>>();
+      StaxNavigator<String> nav = records();
+      nav.forkParallel(Axis.FOLLOWING_SIBLING, "record", executor, 1, true, fork -> fork, forks::add);
+      assertEquals(Integer.toString(SIZE - 1), nav.getAttribute("id"));
+      assertEquals(SIZE, forks.size());
+
+      // A detached fork only sees its subtree
+      StaxNavigator<String> fork = forks.get(3);
+      assertEquals("record", fork.getName());
+      assertEquals("3", fork.getAttribute("id"));
+      assertTrue(fork.find("tag"));
+      assertFalse(fork.find("record"));
+      fork = forks.get(4);
+      assertEquals("value", fork.child());
+      assertEquals("4", new BufferedReader(fork.getContentReader()).readLine());
+      assertEquals("tag", fork.next());
+      assertNull(fork.next());
+   }
+
+   public void testFrozen() throws Exception
+   {
+      final List<StaxNavigator<String>> forks = new ArrayList<StaxNavigator<String>>();
+      StaxNavigator<String> nav = records();
+      nav.forkParallel(Axis.FOLLOWING_SIBLING, "record", executor, 4, true, fork -> fork, forks::add);
+      long resolutions = nav.getStats().getNameResolutions();
+
+      // Navigating the forks does not modify the elements shared with the parser
+      for (StaxNavigator<String> fork : forks)
+      {
+         assertEquals("value", fork.child());
+         assertEquals("tag", fork.sibling());
+      }
+      assertEquals(resolutions, nav.getStats().getNameResolutions());
+   }
+
+   public void testNullArguments() throws Exception
+   {
+      try
+      {
+         records().forkParallel("record", null, fork -> {});
+         fail();
+      }
+      catch (NullPointerException ignore)
+      {
+      }
+      try
+      {
+         records().forkParallel(Axis.FOLLOWING_SIBLING, "record", executor, 0, false, fork -> fork, fork -> {});
+         fail();
+      }
+      catch (IllegalArgumentException ignore)
+      {
+      }
+   }
+}
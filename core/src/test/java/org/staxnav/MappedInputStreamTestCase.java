@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public class MappedInputStreamTestCase extends TestCase
+{
+
+   /** . */
+   private Path path;
+
+   /** . */
+   private byte[] bytes;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      StringBuilder sb = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?><records>");
+      for (int i = 0;i < 100;i++)
+      {
+         sb.append("<record id='").append(i).append("'>\u00e9l\u00e9ment ").append(i).append("</record>");
+      }
+      sb.append("</records>");
+      bytes = sb.toString().getBytes("UTF-8");
+      path = File.createTempFile("staxnav", ".xml").toPath();
+      Files.write(path, bytes);
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      Files.delete(path);
+   }
+
+   public void testRead() throws Exception
+   {
+      for (int windowSize : new int[]{1, 7, 64, bytes.length, MappedInputStream.DEFAULT_WINDOW_SIZE})
+      {
+         InputStream in = new MappedInputStream(path, windowSize);
+         ByteArrayOutputStream out = new ByteArrayOutputStream();
+         byte[] buffer = new byte[13];
+         for (int b = in.read();b != -1;b = in.read())
+         {
+            out.write(b);
+            int length = in.read(buffer, 0, buffer.length);
+            if (length == -1)
+            {
+               break;
+            }
+            out.write(buffer, 0, length);
+         }
+         assertEquals(-1, in.read());
+         assertEquals(-1, in.read(buffer, 0, buffer.length));
+         in.close();
+         assertTrue(Arrays.equals(bytes, out.toByteArray()));
+      }
+   }
+
+   public void testSkip() throws Exception
+   {
+      InputStream in = new MappedInputStream(path, 7);
+      assertEquals(3, in.skip(3));
+      assertEquals(bytes[3], (byte)in.read());
+      assertEquals(20, in.skip(20));
+      assertEquals(bytes[24], (byte)in.read());
+      assertEquals(bytes.length - 25, in.skip(Long.MAX_VALUE));
+      assertEquals(-1, in.read());
+      assertEquals(0, in.skip(1));
+   }
+
+   public void testClose() throws Exception
+   {
+      InputStream in = new MappedInputStream(path, 7);
+      in.close();
+      try
+      {
+         in.read();
+         fail();
+      }
+      catch (IOException ignore)
+      {
+      }
+   }
+
+   public void testChannelPosition() throws Exception
+   {
+      FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+      try
+      {
+         channel.position(10);
+         InputStream in = new MappedInputStream(channel, 7);
+         assertEquals(bytes[10], (byte)in.read());
+         assertEquals(8, in.skip(8));
+         in.close();
+         assertEquals(19, channel.position());
+
+         //
+         in = new MappedInputStream(channel, 7);
+         assertEquals(bytes[19], (byte)in.read());
+         assertEquals(bytes.length - 20, in.skip(Long.MAX_VALUE));
+         assertEquals(-1, in.read());
+         assertEquals(bytes.length, channel.position());
+         in.close();
+         assertTrue(channel.isOpen());
+      }
+      finally
+      {
+         channel.close();
+      }
+   }
+
+   public void testNavigatePath() throws Exception
+   {
+      assertRecords(StaxNavigatorFactory.create(new Naming.Local(), path));
+      assertRecords(StaxNavigatorFactory.create(new Naming.Local(), new MappedInputStream(path, 16)));
+   }
+
+   public void testNavigateChannel() throws Exception
+   {
+      FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+      try
+      {
+         assertRecords(StaxNavigatorFactory.create(new Naming.Local(), channel));
+         assertTrue(channel.isOpen());
+      }
+      finally
+      {
+         channel.close();
+      }
+   }
+
+   private void assertRecords(StaxNavigator<String> nav)
+   {
+      assertEquals("records", nav.getName());
+      int count = 0;
+      while (nav.next("record"))
+      {
+         assertEquals(Integer.toString(count), nav.getAttribute("id"));
+         assertEquals("\u00e9l\u00e9ment " + count, nav.getContent());
+         count++;
+      }
+      assertEquals(100, count);
+   }
+}
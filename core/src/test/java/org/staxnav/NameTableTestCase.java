@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public class NameTableTestCase extends TestCase
+{
+
+   private enum Simple
+   {
+      FOO, BAR, FOO_BAR, NO_SUCH_ELEMENT
+   }
+
+   private enum Cased
+   {
+      FOO, Foo, NO_SUCH_ELEMENT
+   }
+
+   private enum Colliding implements EnumElement<Colliding>
+   {
+
+      // "Aa" and "BB" have the same hash code
+      AA("Aa"), BB("BB"), CC("cc"), DUPLICATE("Aa"), UNNAMED(null);
+
+      /** . */
+      private final String localName;
+
+      Colliding(String localName)
+      {
+         this.localName = localName;
+      }
+
+      public String getLocalName()
+      {
+         return localName;
+      }
+   }
+
+   public void testSimple()
+   {
+      Naming<Simple> naming = new Naming.Enumerated.Simple<Simple>(Simple.class, Simple.NO_SUCH_ELEMENT);
+      for (Simple value : Simple.values())
+      {
+         String localPart = naming.getLocalPart(value);
+         assertEquals(value.name().toLowerCase().replace('_', '-'), localPart);
+         assertSame(value, naming.getName(null, null, localPart));
+         assertSame(value, naming.getName(null, null, new String(localPart)));
+      }
+      assertSame(Simple.NO_SUCH_ELEMENT, naming.getName(null, null, "foo_bar"));
+      assertSame(Simple.NO_SUCH_ELEMENT, naming.getName(null, null, "juu"));
+      assertSame(Simple.NO_SUCH_ELEMENT, naming.getName(null, null, null));
+      assertNull(naming.getLocalPart(null));
+   }
+
+   public void testMapped()
+   {
+      Naming<SampleName> naming = new Naming.Enumerated.Mapped<SampleName>(SampleName.class, SampleName.DONOTEXIST);
+      for (SampleName value : SampleName.values())
+      {
+         assertSame(value, naming.getName(null, null, value.getLocalName()));
+      }
+      assertSame(SampleName.DONOTEXIST, naming.getName(null, null, "foo"));
+   }
+
+   public void testCollision()
+   {
+      assertEquals("Aa".hashCode(), "BB".hashCode());
+      Naming<Colliding> naming = new Naming.Enumerated.Mapped<Colliding>(Colliding.class, Colliding.UNNAMED);
+      assertSame(Colliding.AA, naming.getName(null, null, "Aa"));
+      assertSame(Colliding.BB, naming.getName(null, null, "BB"));
+      assertSame(Colliding.CC, naming.getName(null, null, "cc"));
+      assertSame(Colliding.UNNAMED, naming.getName(null, null, "C#"));
+      assertSame(Colliding.UNNAMED, naming.getName(null, null, "dd"));
+      assertSame(Colliding.UNNAMED, naming.getName(null, null, null));
+   }
+
+   public void testDuplicate()
+   {
+      // The simple naming resolves to the last constant and the mapped naming to the first one
+      Naming<Cased> simple = new Naming.Enumerated.Simple<Cased>(Cased.class, Cased.NO_SUCH_ELEMENT);
+      assertSame(Cased.Foo, simple.getName(null, null, "foo"));
+      assertEquals("foo", simple.getLocalPart(Cased.FOO));
+      Naming<Colliding> mapped = new Naming.Enumerated.Mapped<Colliding>(Colliding.class, Colliding.UNNAMED);
+      assertSame(Colliding.AA, mapped.getName(null, null, "Aa"));
+      assertEquals("Aa", mapped.getLocalPart(Colliding.DUPLICATE));
+   }
+
+   public void testCached()
+   {
+      assertSame(NameTable.getSimple(Simple.class), NameTable.getSimple(Simple.class));
+      assertSame(NameTable.getMapped(SampleName.class), NameTable.getMapped(SampleName.class));
+      assertNotSame(NameTable.getSimple(SampleName.class), NameTable.getMapped(SampleName.class));
+   }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public class ParseContentTestCase extends AbstractXMLTestCase
+{
+
+   private StaxNavigator<String> navigator(String content)
+   {
+      return navigator(new Naming.Local(), "<foo>" + content + "</foo>");
+   }
+
+   public void testParseInt() throws Exception
+   {
+      assertEquals(123, navigator("123").parseInt());
+      assertEquals(-123, navigator(" -123\n").parseInt());
+      assertEquals(123, navigator("+123").parseInt());
+      assertEquals(Integer.MAX_VALUE, navigator("2147483647").parseInt());
+      assertEquals(Integer.MIN_VALUE, navigator("-2147483648").parseInt());
+      assertEquals(Integer.valueOf(456), navigator(" 456 ").parseContent(ValueType.INTEGER));
+   }
+
+   public void testParseIntFailure() throws Exception
+   {
+      String[] invalids = {"2147483648", "-2147483649", "12a", "-", "+", "1 2", "  "};
+      for (String invalid : invalids)
+      {
+         try
+         {
+            navigator(invalid).parseInt();
+            fail("Was expecting " + invalid + " to fail");
+         }
+         catch (TypeConversionException expected)
+         {
+         }
+      }
+   }
+
+   public void testParseLong() throws Exception
+   {
+      assertEquals(1234567890123L, navigator("1234567890123").parseLong());
+      assertEquals(Long.MAX_VALUE, navigator("9223372036854775807").parseLong());
+      assertEquals(Long.MIN_VALUE, navigator("-9223372036854775808").parseLong());
+      assertEquals(Long.valueOf(-5), navigator("-5").parseContent(ValueType.LONG));
+      try
+      {
+         navigator("9223372036854775808").parseLong();
+         fail();
+      }
+      catch (TypeConversionException expected)
+      {
+      }
+   }
+
+   public void testParseDouble() throws Exception
+   {
+      String[] values = {"0", "-0", "1.5", "-1.25", " 3.14159 ", "0.1", "123456789012345", "1234567890123456789",
+         "0.000000000000000000001", "1e10", "-2.5E-3", ".5", "5.", "NaN", "-Infinity", "0.30000000000000004"};
+      for (String value : values)
+      {
+         assertEquals(value, Double.parseDouble(value), navigator(value).parseDouble());
+         assertEquals(value, Double.valueOf(value), navigator(value).parseContent(ValueType.DOUBLE));
+      }
+      assertEquals(Double.doubleToLongBits(-0d), Double.doubleToLongBits(navigator("-0").parseDouble()));
+      String[] invalids = {".", "-", "1.2.3", "abc"};
+      for (String invalid : invalids)
+      {
+         try
+         {
+            navigator(invalid).parseDouble();
+            fail("Was expecting " + invalid + " to fail");
+         }
+         catch (TypeConversionException expected)
+         {
+         }
+      }
+   }
+
+   public void testParseBoolean() throws Exception
+   {
+      assertTrue(navigator("true").parseBoolean());
+      assertTrue(navigator(" TRUE ").parseBoolean());
+      assertFalse(navigator("false").parseBoolean());
+      assertFalse(navigator("yes").parseBoolean());
+      assertFalse(navigator("truee").parseBoolean());
+      assertEquals(Boolean.TRUE, navigator(" True").parseContent(ValueType.BOOLEAN));
+   }
+
+   public void testNoContent() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), "<foo><bar/></foo>");
+      try
+      {
+         nav.parseInt();
+         fail();
+      }
+      catch (IllegalStateException expected)
+      {
+      }
+      try
+      {
+         nav.parseLong();
+         fail();
+      }
+      catch (IllegalStateException expected)
+      {
+      }
+      try
+      {
+         nav.parseDouble();
+         fail();
+      }
+      catch (IllegalStateException expected)
+      {
+      }
+      try
+      {
+         nav.parseBoolean();
+         fail();
+      }
+      catch (IllegalStateException expected)
+      {
+      }
+   }
+
+   public void testMultipleChunks() throws Exception
+   {
+      assertEquals(12345, navigator("12<!-- comment -->345").parseInt());
+   }
+
+   public void testParseDate() throws Exception
+   {
+      Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+      calendar.clear();
+      calendar.set(2010, Calendar.JUNE, 15);
+      assertEquals(calendar.getTime(), navigator(" 2010-06-15Z ").parseContent(ValueType.DATE));
+      calendar.set(2010, Calendar.JUNE, 15, 10, 30, 5);
+      assertEquals(calendar.getTime(), navigator("2010-06-15T12:30:05+02:00").parseContent(ValueType.DATE_TIME));
+      try
+      {
+         navigator("2010-06-35").parseContent(ValueType.DATE);
+         fail();
+      }
+      catch (TypeConversionException expected)
+      {
+      }
+   }
+}
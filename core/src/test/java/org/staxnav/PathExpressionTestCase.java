@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public class PathExpressionTestCase extends AbstractXMLTestCase
+{
+
+   /** . */
+   private static final String DOCUMENT =
+      "<portlets>" +
+         "<portlet name='a'>" +
+            "<preferences>" +
+               "<preference name='foo'><value>1</value><value>2</value></preference>" +
+               "<preference><value>3</value></preference>" +
+            "</preferences>" +
+         "</portlet>" +
+         "<portlet name='b'>" +
+            "<preferences>" +
+               "<preference name='bar'><value>4</value><nested><value>5</value></nested></preference>" +
+            "</preferences>" +
+         "</portlet>" +
+      "</portlets>";
+
+   public void testChildren() throws Exception
+   {
+      assertEquals(Arrays.asList("1", "2", "3", "4"), select("portlet/preferences/preference/value"));
+      assertEquals(Arrays.asList("1", "2", "3", "4"), select("*/*/*/value"));
+      assertEquals(Arrays.asList(), select("preferences"));
+   }
+
+   public void testDescendants() throws Exception
+   {
+      assertEquals(Arrays.asList("1", "2", "3", "4", "5"), select("//value"));
+      assertEquals(Arrays.asList("4", "5"), select("portlet[@name='b']//value"));
+      assertEquals(Arrays.asList("5"), select("//nested/value"));
+      assertEquals(Arrays.asList("1", "2", "3", "4", "5"), select("portlet//preference//value"));
+   }
+
+   public void testAttributes() throws Exception
+   {
+      assertEquals(Arrays.asList("1", "2", "4"), select("portlet/preferences/preference[@name]/value"));
+      assertEquals(Arrays.asList("1", "2"), select("portlet/preferences/preference[@name=\"foo\"]/value"));
+      assertEquals(Arrays.asList(), select("portlet/preferences/preference[@name='juu']/value"));
+   }
+
+   public void testNested() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), "<a><b><b><c/></b></b><c/></a>");
+      List<Integer> depths = new ArrayList<Integer>();
+      for (StaxNavigator<String> b : nav.select(PathExpression.compile("//b", nav.getNaming())))
+      {
+         depths.add(b.getDepth());
+      }
+      assertEquals(Arrays.asList(2, 3), depths);
+   }
+
+   public void testReuse() throws Exception
+   {
+      PathExpression<String> path = PathExpression.compile("portlet/preferences/preference", new Naming.Local());
+      for (int i = 0;i < 2;i++)
+      {
+         StaxNavigator<String> nav = navigator(new Naming.Local(), DOCUMENT);
+         int count = 0;
+         for (StaxNavigator<String> preference : nav.select(path))
+         {
+            assertEquals("preference", preference.getName());
+            assertEquals("preference", nav.getName());
+            count++;
+         }
+         assertEquals(3, count);
+      }
+   }
+
+   public void testEnumerated() throws Exception
+   {
+      Naming<SampleName> naming = new Naming.Enumerated.Mapped<SampleName>(SampleName.class, SampleName.DONOTEXIST);
+      StaxNavigator<SampleName> nav = navigator(naming, "<foo1><bar1><foo2/></bar1><bar2><foo2/><foo3/></bar2></foo1>");
+      int count = 0;
+      for (StaxNavigator<SampleName> foo2 : nav.select(PathExpression.compile("bar2/foo2", naming)))
+      {
+         assertEquals(SampleName.FOO2, foo2.getName());
+         count++;
+      }
+      assertEquals(1, count);
+   }
+
+   public void testUnknownEnumeratedName() throws Exception
+   {
+      Naming<SampleName> naming = new Naming.Enumerated.Mapped<SampleName>(SampleName.class, SampleName.DONOTEXIST);
+      try
+      {
+         PathExpression.compile("bar2/fooo", naming);
+         fail();
+      }
+      catch (IllegalArgumentException ignore)
+      {
+      }
+   }
+
+   public void testQuotedBracket() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), "<a><b name='x]y'/><b name='x'/></a>");
+      int count = 0;
+      for (StaxNavigator<String> b : nav.select(PathExpression.compile("b[@name='x]y']", nav.getNaming())))
+      {
+         assertEquals("x]y", b.getAttribute("name"));
+         count++;
+      }
+      assertEquals(1, count);
+   }
+
+   public void testInvalid() throws Exception
+   {
+      String[] invalids = {"", "/a", "a/", "a///b", "a[", "a[b]", "a[@]", "a[@b=c]", "a[@b='c]", "a b/"};
+      for (String invalid : invalids)
+      {
+         try
+         {
+            PathExpression.compile(invalid, new Naming.Local());
+            fail("Was expecting " + invalid + " to be invalid");
+         }
+         catch (IllegalArgumentException ignore)
+         {
+         }
+      }
+   }
+
+   private List<String> select(String expression)
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), DOCUMENT);
+      List<String> values = new ArrayList<String>();
+      for (StaxNavigator<String> value : nav.select(PathExpression.compile(expression, nav.getNaming())))
+      {
+         values.add(value.getContent());
+      }
+      return values;
+   }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+import java.io.StringReader;
+
+/**
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public class RetentionTestCase extends AbstractXMLTestCase
+{
+
+   /** . */
+   private static final String DOCUMENT =
+      "<root>" +
+         "<a><b>foo</b></a>" +
+         "<a/>" +
+         "<a/>" +
+         "<a/>" +
+         "<a/>" +
+         "<a/>" +
+      "</root>";
+
+   public void testRetention() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), DOCUMENT);
+      assertEquals(Retention.NONE, nav.getRetention());
+      assertEquals("root", nav.getName());
+      assertEquals(1, nav.getRetention().getEntries());
+      assertEquals("a", nav.child());
+      assertEquals(1, nav.getRetention().getEntries());
+      assertEquals(nav.getRetention(), nav.getDocumentRetention());
+      assertEquals("b", nav.child());
+      assertEquals(1, nav.getRetention().getEntries());
+      assertEquals("a", nav.next());
+      assertEquals(1, nav.getRetention().getEntries());
+      assertTrue(nav.getRetention().getBytes() > 0);
+   }
+
+   public void testForkRetention() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), DOCUMENT);
+      assertEquals("a", nav.child());
+      StaxNavigator<String> fork = nav.fork();
+      while (nav.sibling() != null)
+      {
+         assertEquals(1, nav.getRetention().getEntries());
+      }
+      assertEquals(7, fork.getRetention().getEntries());
+      assertEquals(fork.getRetention(), nav.getDocumentRetention());
+      assertTrue(fork.getRetention().getBytes() > nav.getRetention().getBytes());
+   }
+
+   public void testLimit() throws Exception
+   {
+      StaxNavigatorFactory factory = StaxNavigatorFactory.builder().retentionLimit(new Retention(3, Long.MAX_VALUE)).build();
+      assertEquals(new Retention(3, Long.MAX_VALUE), factory.getRetentionLimit());
+      StaxNavigator<String> nav = factory.createNavigator(new Naming.Local(), new StringReader(DOCUMENT));
+      assertEquals(new Retention(3, Long.MAX_VALUE), nav.getRetentionLimit());
+
+      // Navigating without fork stays below the limit
+      assertEquals("a", nav.child());
+      int count = 0;
+      while (nav.sibling() != null)
+      {
+         count++;
+      }
+      assertEquals(5, count);
+   }
+
+   public void testLimitExceeded() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), DOCUMENT);
+      nav.setRetentionLimit(new Retention(3, Long.MAX_VALUE));
+      assertEquals("a", nav.child());
+      assertEquals("b", nav.child());
+      StaxNavigator<String> fork = nav.fork();
+      assertEquals("a", nav.next());
+      try
+      {
+         while (nav.sibling() != null)
+         {
+            // Continue
+         }
+         fail();
+      }
+      catch (StaxNavException e)
+      {
+         assertTrue(e.getMessage().contains("element b "));
+         assertNotNull(e.getLocation());
+      }
+      assertEquals("b", fork.getName());
+   }
+
+   public void testByteLimit() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), DOCUMENT);
+      nav.setRetentionLimit(new Retention(Long.MAX_VALUE, 1));
+      try
+      {
+         nav.child();
+         fail();
+      }
+      catch (StaxNavException e)
+      {
+         assertTrue(e.getMessage().contains("element root "));
+      }
+   }
+
+   public void testSnapshot() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), DOCUMENT);
+      assertEquals("a", nav.child());
+      StaxNavigator<String> snapshot = nav.snapshot().navigator();
+      assertEquals(Retention.NONE, snapshot.getRetention());
+      snapshot.setRetentionLimit(new Retention(0, 0));
+      assertNull(snapshot.getRetentionLimit());
+      assertEquals("b", snapshot.child());
+   }
+
+   public void testInvalidRetention() throws Exception
+   {
+      try
+      {
+         new Retention(-1, 0);
+         fail();
+      }
+      catch (IllegalArgumentException ignore)
+      {
+      }
+      try
+      {
+         new Retention(0, -1);
+         fail();
+      }
+      catch (IllegalArgumentException ignore)
+      {
+      }
+   }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.staxnav;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.Collections;
+
+/**
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public class ReusableNavigatorTestCase extends AbstractXMLTestCase
+{
+
+   private static byte[] message(int id) throws Exception
+   {
+      return ("<message id='" + id + "' type='t'><body> body-" + id + " </body><footer/></message>").getBytes("UTF-8");
+   }
+
+   public void testReset() throws Exception
+   {
+      ReusableNavigator<String> reusable = StaxNavigatorFactory.builder().build().createReusableNavigator(new Naming.Local());
+      StaxNavigator<String> first = null;
+      for (int i = 0;i < 5;i++)
+      {
+         StaxNavigator<String> nav = reusable.reset(message(i));
+         if (first == null)
+         {
+            first = nav;
+         }
+         assertSame(first, nav);
+         assertEquals("message", nav.getName());
+         assertEquals(1, nav.getDepth());
+         assertEquals("" + i, nav.getAttribute("id"));
+         assertEquals("body", nav.child());
+         assertEquals(" body-" + i + " ", nav.getContent());
+         assertEquals("footer", nav.sibling());
+         assertNull(nav.next());
+      }
+   }
+
+   public void testResetBeforeEnd() throws Exception
+   {
+      ReusableNavigator<String> reusable = StaxNavigatorFactory.builder().build().createReusableNavigator(new Naming.Local());
+      StaxNavigator<String> nav = reusable.reset(message(0));
+      assertEquals("body", nav.child());
+      nav = reusable.reset(new StringReader("<other><child/></other>"));
+      assertEquals("other", nav.getName());
+      assertEquals("child", nav.child());
+      nav = reusable.reset(new ByteArrayInputStream(message(1)));
+      assertEquals("1", nav.getAttribute("id"));
+   }
+
+   public void testRange() throws Exception
+   {
+      ReusableNavigator<String> reusable = StaxNavigatorFactory.builder().build().createReusableNavigator(new Naming.Local());
+      byte[] message = message(3);
+      byte[] bytes = new byte[message.length + 10];
+      System.arraycopy(message, 0, bytes, 5, message.length);
+      StaxNavigator<String> nav = reusable.reset(bytes, 5, message.length);
+      assertEquals("3", nav.getAttribute("id"));
+      try
+      {
+         reusable.reset(bytes, 5, bytes.length);
+         fail();
+      }
+      catch (IndexOutOfBoundsException ignore)
+      {
+      }
+   }
+
+   public void testKeepSettings() throws Exception
+   {
+      ReusableNavigator<String> reusable = StaxNavigatorFactory.builder().build().createReusableNavigator(new Naming.Local());
+      StaxNavigator<String> nav = reusable.reset(message(0));
+      nav.setTrimContent(true);
+      nav.setAttributeProjection(AttributeProjection.<String>builder().keep("message", "id").build());
+      nav = reusable.reset(message(1));
+      assertEquals(Collections.singletonMap("id", "1"), nav.getAttributes());
+      assertEquals("body", nav.child());
+      assertEquals("body-1", nav.getContent());
+   }
+
+   public void testSnapshot() throws Exception
+   {
+      ReusableNavigator<String> reusable = StaxNavigatorFactory.builder().build().createReusableNavigator(new Naming.Local());
+      StaxNavigator<String> nav = reusable.reset(message(0));
+      assertEquals("body", nav.child());
+      Snapshot<String> snapshot = nav.snapshot();
+      reusable.reset(message(1));
+      assertEquals(" body-0 ", snapshot.navigator().getContent());
+   }
+
+   public void testStats() throws Exception
+   {
+      ReusableNavigator<String> reusable = StaxNavigatorFactory.builder().build().createReusableNavigator(new Naming.Local());
+      StaxNavigator<String> nav = null;
+      for (int i = 0;i < 3;i++)
+      {
+         nav = reusable.reset(message(i));
+         while (nav.next() != null)
+         {
+            // Read all
+         }
+      }
+      assertEquals(9, nav.getStats().getElementsRead());
+   }
+}
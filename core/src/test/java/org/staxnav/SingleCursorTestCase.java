@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.staxnav;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public class SingleCursorTestCase extends AbstractXMLTestCase
+{
+
+   /** . */
+   private static final String DOCUMENT;
+
+   /** . */
+   private static final String[] NAMES = {"root", "item", "name", "value", "list", "entry"};
+
+   static
+   {
+      StringBuilder sb = new StringBuilder("<root>");
+      for (int i = 0;i < 50;i++)
+      {
+         sb.append("<item id='").append(i).append("'").append(i % 3 == 0 ? " type='t'" : "").append(">");
+         sb.append("<name>name-").append(i).append("</name>");
+         if (i % 4 == 0)
+         {
+            sb.append("<list><entry>a</entry><entry k='v'><value>b</value></entry></list>");
+         }
+         sb.append("<value>").append(i).append("</value>");
+         sb.append("</item>");
+      }
+      DOCUMENT = sb.append("</root>").toString();
+   }
+
+   /** . */
+   private final StaxNavigatorFactory factory = StaxNavigatorFactory.builder().singleCursor(true).build();
+
+   private static String describe(StaxNavigator<String> nav)
+   {
+      return nav.getName() + nav.getDepth() + nav.getAncestorNames() + new HashMap<String, String>(nav.getAttributes()) +
+         "=" + nav.getContent();
+   }
+
+   private List<String> traverse(StaxNavigator<String> nav)
+   {
+      List<String> elements = new ArrayList<String>();
+      do
+      {
+         elements.add(describe(nav));
+      }
+      while (nav.next() != null);
+      return elements;
+   }
+
+   public void testTraverse() throws Exception
+   {
+      assertTrue(factory.getSingleCursor());
+      assertEquals(
+         traverse(navigator(new Naming.Local(), DOCUMENT)),
+         traverse(factory.createNavigator(new Naming.Local(), new StringReader(DOCUMENT))));
+      for (String resource : Arrays.asList("portlet-application.xml", "sample.xml", "sample-ns.xml", "namespace1.xml"))
+      {
+         InputStream expected = ClassLoader.getSystemClassLoader().getResourceAsStream(resource);
+         InputStream actual = ClassLoader.getSystemClassLoader().getResourceAsStream(resource);
+         assertEquals(
+            traverse(StaxNavigatorFactory.create(new Naming.Local(), expected)),
+            traverse(factory.createNavigator(new Naming.Local(), actual)));
+      }
+   }
+
+   public void testRandomNavigation() throws Exception
+   {
+      Axis[] axes = Axis.values();
+      for (int seed = 0;seed < 20;seed++)
+      {
+         StaxNavigator<String> expected = navigator(new Naming.Local(), DOCUMENT);
+         StaxNavigator<String> actual = factory.createNavigator(new Naming.Local(), new StringReader(DOCUMENT));
+         Random random = new Random(seed);
+         for (int i = 0;i < 500;i++)
+         {
+            Axis axis = axes[random.nextInt(axes.length)];
+            String name = random.nextBoolean() ? NAMES[random.nextInt(NAMES.length)] : null;
+            String step = axis + " " + name;
+            if (name == null)
+            {
+               assertEquals(step, expected.navigate(axis), actual.navigate(axis));
+            }
+            else
+            {
+               assertEquals(step, expected.navigate(axis, name), actual.navigate(axis, name));
+            }
+            assertEquals(step, describe(expected), describe(actual));
+         }
+      }
+   }
+
+   public void testSnapshot() throws Exception
+   {
+      StaxNavigator<String> nav = factory.createNavigator(new Naming.Local(), new StringReader(DOCUMENT));
+      assertEquals("item", nav.child());
+      Snapshot<String> snapshot = nav.snapshot();
+      while (nav.next() != null)
+      {
+         // Recycle the elements
+      }
+      StaxNavigator<String> copy = snapshot.navigator();
+      assertEquals("0", copy.getAttribute("id"));
+      assertEquals("t", copy.getAttribute("type"));
+      assertEquals("name", copy.child());
+      assertEquals("name-0", copy.getContent());
+   }
+
+   public void testDescendant() throws Exception
+   {
+      StaxNavigator<String> nav = factory.createNavigator(new Naming.Local(), new StringReader(DOCUMENT));
+      assertEquals(4, nav.descendant("value"));
+      assertEquals("b", nav.getContent());
+      assertEquals(Arrays.asList("entry", "list", "item", "root"), nav.getAncestorNames());
+      assertEquals(-1, nav.descendant("name"));
+      assertEquals("b", nav.getContent());
+      assertTrue(nav.navigate(Axis.FOLLOWING, "name"));
+      assertEquals("name-1", nav.getContent());
+      assertEquals(Arrays.asList("item", "root"), nav.getAncestorNames());
+   }
+
+   public void testForkNotSupported() throws Exception
+   {
+      StaxNavigator<String> nav = factory.createNavigator(new Naming.Local(), new StringReader(DOCUMENT));
+      assertEquals("item", nav.child());
+      try
+      {
+         nav.fork();
+         fail();
+      }
+      catch (IllegalStateException ignore)
+      {
+      }
+      try
+      {
+         nav.forkStreaming("item");
+         fail();
+      }
+      catch (IllegalStateException ignore)
+      {
+      }
+      try
+      {
+         nav.select(PathExpression.compile("name", new Naming.Local()));
+         fail();
+      }
+      catch (IllegalStateException ignore)
+      {
+      }
+      assertEquals("item", nav.getName());
+   }
+
+   public void testReusable() throws Exception
+   {
+      ReusableNavigator<String> reusable = factory.createReusableNavigator(new Naming.Local());
+      for (int i = 0;i < 3;i++)
+      {
+         StaxNavigator<String> nav = reusable.reset(new StringReader(DOCUMENT));
+         assertEquals(traverse(navigator(new Naming.Local(), DOCUMENT)), traverse(nav));
+      }
+   }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public class SkipTestCase extends AbstractXMLTestCase
+{
+
+   /** . */
+   private static final String DOCUMENT =
+      "<root>" +
+         "<a><a1><a11/></a1><a2/></a>" +
+         "<b><b1/></b>" +
+         "<a><a3/><a4/></a>" +
+      "</root>";
+
+   /** . */
+   private int created;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      created = 0;
+   }
+
+   private StaxNavigator<String> skipNavigator(String document) throws Exception
+   {
+      XMLStreamReader stream = XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(document));
+      return StaxNavigatorFactory.create(new Naming.Local(), new StreamReaderDelegate(stream)
+      {
+         @Override
+         public QName getName()
+         {
+            // Each element created by the navigator resolves the name once
+            created++;
+            return super.getName();
+         }
+      });
+   }
+
+   public void testForkStreaming() throws Exception
+   {
+      StaxNavigator<String> nav = skipNavigator(DOCUMENT);
+      assertEquals("a", nav.child());
+      List<String> names = new ArrayList<String>();
+      for (StaxNavigator<String> fork : nav.forkStreaming(Axis.FOLLOWING_SIBLING, "a"))
+      {
+         names.add(fork.getName());
+      }
+      assertEquals(Arrays.asList("a", "a"), names);
+
+      // The descendants of the forks are skipped, only the roots and the non matching siblings are created
+      assertEquals(5, created);
+   }
+
+   public void testForkStreamingRead() throws Exception
+   {
+      StaxNavigator<String> nav = skipNavigator(DOCUMENT);
+      assertEquals("a", nav.child());
+      List<String> names = new ArrayList<String>();
+      for (StaxNavigator<String> fork : nav.forkStreaming(Axis.FOLLOWING_SIBLING, "a"))
+      {
+         // Reads the first child only
+         names.add(fork.child());
+      }
+      assertEquals(Arrays.asList("a1", "a3"), names);
+      assertEquals(7, created);
+      assertEquals("a", nav.getName());
+   }
+
+   public void testCollectedForks() throws Exception
+   {
+      StaxNavigator<String> nav = skipNavigator("<root><a/><a><a1/></a><a><a2/></a></root>");
+      assertEquals("a", nav.child());
+      List<StaxNavigator<String>> forks = new ArrayList<StaxNavigator<String>>();
+      for (StaxNavigator<String> fork : nav.forkStreaming(Axis.FOLLOWING_SIBLING, "a"))
+      {
+         forks.add(fork);
+      }
+      assertEquals(3, forks.size());
+
+      // Nothing was skipped from the first fork
+      assertEquals("a", forks.get(0).getName());
+      assertNull(forks.get(0).child());
+
+      // The descendants of the other forks were skipped
+      for (StaxNavigator<String> fork : forks.subList(1, 3))
+      {
+         try
+         {
+            fork.child();
+            fail();
+         }
+         catch (IllegalStateException ignore)
+         {
+         }
+      }
+   }
+
+   public void testStreamCollect() throws Exception
+   {
+      StaxNavigator<String> nav = skipNavigator(DOCUMENT);
+      assertEquals("a", nav.child());
+      List<StaxNavigator<String>> forks = nav.stream("a").collect(Collectors.<StaxNavigator<String>>toList());
+      assertEquals(2, forks.size());
+      try
+      {
+         forks.get(0).getName();
+         fail();
+      }
+      catch (IllegalStateException ignore)
+      {
+      }
+   }
+
+   public void testReadForkRemainsValid() throws Exception
+   {
+      StaxNavigator<String> nav = skipNavigator(DOCUMENT);
+      assertEquals("a", nav.child());
+      List<StaxNavigator<String>> forks = new ArrayList<StaxNavigator<String>>();
+      for (StaxNavigator<String> fork : nav.forkStreaming(Axis.FOLLOWING_SIBLING, "a"))
+      {
+         // Reads the whole subtree so nothing is skipped
+         while (fork.next() != null)
+         {
+         }
+         forks.add(fork);
+      }
+      assertEquals(2, forks.size());
+      assertEquals("a4", forks.get(1).getName());
+      assertEquals(Arrays.asList("a"), forks.get(1).getAncestorNames());
+   }
+
+   public void testForkStreamingFromRoot() throws Exception
+   {
+      StaxNavigator<String> nav = skipNavigator(DOCUMENT);
+      assertEquals("a", nav.child());
+      StaxNavigator<String> fork = nav.forkStreaming(Axis.FOLLOWING_SIBLING, "a").iterator().next();
+
+      // A fork streaming from its own root is not invalidated by the skipping it does
+      int count = 0;
+      for (StaxNavigator<String> ignore : fork.forkStreaming(Axis.FOLLOWING_SIBLING, "a"))
+      {
+         count++;
+      }
+      assertEquals(2, count);
+      assertEquals("a", fork.getName());
+   }
+
+   public void testParserFork() throws Exception
+   {
+      StaxNavigator<String> nav = skipNavigator(DOCUMENT);
+      assertEquals("a", nav.child());
+      final List<String> names = new ArrayList<String>();
+      Parser<String> parser = fork ->
+      {
+         // A fork created by the parser is not retained
+         names.add(fork.fork().getName());
+      };
+      assertEquals(2, nav.fork(Axis.FOLLOWING_SIBLING, Collections.singletonMap("a", parser)));
+      assertEquals(Arrays.asList("a", "a"), names);
+
+      // The descendants of the element without parser are skipped as well
+      assertEquals(4, created);
+   }
+
+   public void testParserForkKept() throws Exception
+   {
+      StaxNavigator<String> nav = skipNavigator(
+         "<root><a><a1/></a><a><a2><b/><b><b1/></b></a2><a3/><a4><a41/></a4></a></root>");
+      assertEquals("a", nav.child());
+      final List<StaxNavigator<String>> forks = new ArrayList<StaxNavigator<String>>();
+      Parser<String> parser = fork ->
+      {
+         StaxNavigator<String> kept = fork.fork();
+         if (forks.isEmpty())
+         {
+            // Reads the whole subtree
+            assertEquals("a1", kept.child());
+            assertNull(kept.sibling());
+         }
+         else
+         {
+            // The kept fork holds the descendants of b while the parser streams over them
+            assertEquals("a2", fork.child());
+            assertEquals("b", fork.child());
+            int count = 0;
+            for (StaxNavigator<String> ignore : fork.forkStreaming(Axis.FOLLOWING_SIBLING, "b"))
+            {
+               count++;
+            }
+            assertEquals(2, count);
+            assertTrue(kept.navigate(Axis.FOLLOWING, "b1"));
+            assertEquals("a3", kept.next());
+         }
+         forks.add(kept);
+      };
+      assertEquals(2, nav.fork(Axis.FOLLOWING_SIBLING, Collections.singletonMap("a", parser)));
+
+      // The first subtree was fully read so its fork remains valid
+      assertEquals("a1", forks.get(0).getName());
+      assertEquals(Arrays.asList("a"), forks.get(0).getAncestorNames());
+
+      // The forks do not hold the subtree once the parser returned, its remaining descendants were skipped
+      try
+      {
+         forks.get(1).next();
+         fail();
+      }
+      catch (IllegalStateException ignore)
+      {
+      }
+      assertEquals(9, created);
+   }
+
+   public void testForkPreventsSkip() throws Exception
+   {
+      StaxNavigator<String> nav = skipNavigator(DOCUMENT);
+      assertEquals("a", nav.child());
+      StaxNavigator<String> fork = nav.fork();
+      int count = 0;
+      for (StaxNavigator<String> ignore : nav.forkStreaming(Axis.FOLLOWING_SIBLING, "a"))
+      {
+         count++;
+      }
+      assertEquals(2, count);
+
+      // The fork holds its root until it ends, the descendants of the second element are skipped
+      assertEquals(8, created);
+      assertEquals("a1", fork.child());
+      assertEquals("a11", fork.child());
+      assertEquals("a2", fork.next());
+   }
+
+   public void testRootForkPreventsSkip() throws Exception
+   {
+      StaxNavigator<String> nav = skipNavigator(DOCUMENT);
+      StaxNavigator<String> fork = nav.fork();
+      assertEquals("a", nav.child());
+      for (StaxNavigator<String> ignore : nav.forkStreaming(Axis.FOLLOWING_SIBLING, "a"))
+      {
+      }
+      assertEquals(10, created);
+      assertTrue(fork.navigate(Axis.FOLLOWING, "a4"));
+   }
+
+   public void testSelectReleasesHold() throws Exception
+   {
+      StaxNavigator<String> nav = skipNavigator("<root><x><a><a1/></a></x><a><a2/></a><a><a3/></a></root>");
+      assertEquals("x", nav.child());
+      List<String> names = new ArrayList<String>();
+      for (StaxNavigator<String> a : nav.select(PathExpression.compile("a", nav.getNaming())))
+      {
+         names.add(a.getName());
+      }
+      assertEquals(Arrays.asList("a"), names);
+
+      // The walk of x ended, the descendants of the following elements are skipped
+      assertEquals("x", nav.navigate(Axis.PARENT));
+      assertTrue(nav.sibling("a"));
+      int count = 0;
+      for (StaxNavigator<String> ignore : nav.forkStreaming(Axis.FOLLOWING_SIBLING, "a"))
+      {
+         count++;
+      }
+      assertEquals(2, count);
+      assertEquals(6, created);
+   }
+
+   public void testSiblingDoesNotSkip() throws Exception
+   {
+      StaxNavigator<String> nav = skipNavigator(DOCUMENT);
+      assertEquals("a", nav.child());
+      assertFalse(nav.sibling("d"));
+      assertEquals(10, created);
+      assertEquals("a", nav.getName());
+      assertEquals("a1", nav.child());
+      assertEquals("a11", nav.child());
+   }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public class SnapshotTestCase extends AbstractXMLTestCase
+{
+
+   /** . */
+   private static final String NS = "http://www.w3.org/2000/svg";
+
+   /** . */
+   private static final String DOCUMENT =
+      "<root xmlns:ns='" + NS + "'>" +
+         "<config a='1'>" +
+            "<ns:entry key='foo'> bar </ns:entry>" +
+            "<entry key='juu'><value>1</value><value>2</value></entry>" +
+         "</config>" +
+         "<other/>" +
+      "</root>";
+
+   public void testSnapshot() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), DOCUMENT);
+      assertEquals("config", nav.child());
+      Snapshot<String> snapshot = nav.snapshot();
+
+      // The navigator is not moved
+      assertEquals("config", nav.getName());
+      assertEquals("entry", nav.next());
+      assertTrue(nav.find("other"));
+
+      //
+      assertSnapshot(snapshot.navigator());
+      assertSnapshot(snapshot.navigator());
+   }
+
+   public void testNaming() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), DOCUMENT);
+      assertEquals("config", nav.child());
+      Snapshot<String> snapshot = nav.snapshot();
+      StaxNavigator<QName> qualified = snapshot.navigator(new Naming.Qualified());
+      assertEquals(new QName("config"), qualified.getName());
+      assertEquals(new QName(NS, "entry"), qualified.next());
+      assertEquals("entry", snapshot.navigator().child());
+   }
+
+   public void testTrim() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), DOCUMENT);
+      nav.setTrimContent(true);
+      assertEquals("config", nav.child());
+      StaxNavigator<String> fork = nav.snapshot().navigator();
+      assertTrue(fork.getTrimContent());
+      assertEquals("entry", fork.child());
+      assertEquals("bar", fork.getContent());
+   }
+
+   public void testConcurrent() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), DOCUMENT);
+      assertEquals("config", nav.child());
+      final Snapshot<String> snapshot = nav.snapshot();
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try
+      {
+         List<Future<?>> futures = new ArrayList<Future<?>>();
+         for (int i = 0;i < 16;i++)
+         {
+            futures.add(executor.submit(new Callable<Object>()
+            {
+               public Object call() throws Exception
+               {
+                  for (int j = 0;j < 100;j++)
+                  {
+                     assertSnapshot(snapshot.navigator());
+                  }
+                  return null;
+               }
+            }));
+         }
+         for (Future<?> future : futures)
+         {
+            future.get();
+         }
+      }
+      finally
+      {
+         executor.shutdown();
+      }
+   }
+
+   private static void assertSnapshot(StaxNavigator<String> nav) throws Exception
+   {
+      assertEquals("config", nav.getName());
+      assertEquals("1", nav.getAttribute("a"));
+      assertEquals("entry", nav.child());
+      assertEquals(NS, nav.getNamespaceByPrefix("ns"));
+      assertEquals(NS, nav.getQName().getNamespaceURI());
+      assertEquals("foo", nav.getAttribute("key"));
+      assertEquals(" bar ", nav.getContent());
+      assertEquals("entry", nav.sibling());
+      assertEquals("juu", nav.getAttributes().get("key"));
+      assertEquals(1, nav.getQualifiedAttributes().size());
+      assertEquals(1, nav.descendant("value"));
+      int sum = 0;
+      do
+      {
+         sum += nav.parseInt();
+      }
+      while (nav.sibling("value"));
+      assertEquals(3, sum);
+      assertNull(nav.next());
+      assertFalse(nav.find("other"));
+   }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.io.StringReader;
+
+/**
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public class StatsTestCase extends AbstractXMLTestCase
+{
+
+   /** . */
+   private static final String DOCUMENT =
+      "<root>" +
+         "<a x='1'>foo</a>" +
+         "<b><c/></b>" +
+         "<a><d/><d/></a>" +
+      "</root>";
+
+   public void testStats() throws Exception
+   {
+      StaxNavigatorFactory factory = new StaxNavigatorFactory();
+      StaxNavigator<String> nav = factory.createNavigator(new Naming.Local(), new StringReader(DOCUMENT));
+      NavigatorStats stats = nav.getStats();
+      assertEquals("a", nav.child());
+      assertEquals("foo", nav.getContent());
+      StaxNavigator<String> fork = nav.fork();
+      assertSame(stats, fork.getStats());
+      while (nav.next() != null)
+      {
+         // Read all
+      }
+      assertEquals(7, stats.getElementsRead());
+      assertEquals(7, stats.getElementsMaterialized());
+      assertEquals(1, stats.getAttributeMapsAllocated());
+      assertEquals(3, stats.getContentCharsCopied());
+      assertEquals(6, stats.getNameResolutions());
+      assertEquals(1, stats.getForksCreated());
+      assertEquals(0, stats.getStreamNanos());
+      assertEquals(0, stats.getNavigatorNanos());
+
+      // The end of the document publishes the stats
+      NavigatorStats factoryStats = factory.getStats();
+      assertEquals(7, factoryStats.getElementsRead());
+      assertEquals(7, factoryStats.getElementsMaterialized());
+      assertEquals(1, factoryStats.getAttributeMapsAllocated());
+      assertEquals(3, factoryStats.getContentCharsCopied());
+      assertEquals(6, factoryStats.getNameResolutions());
+      assertEquals(1, factoryStats.getForksCreated());
+   }
+
+   public void testAggregate() throws Exception
+   {
+      StaxNavigatorFactory factory = new StaxNavigatorFactory();
+      for (int i = 0;i < 3;i++)
+      {
+         StaxNavigator<String> nav = factory.createNavigator(new Naming.Local(), new StringReader(DOCUMENT));
+         while (nav.next() != null)
+         {
+            // Read all
+         }
+      }
+      assertEquals(21, factory.getStats().getElementsRead());
+   }
+
+   public void testStaticCreate() throws Exception
+   {
+      // The navigator keeps its own stats but does not publish them to a factory
+      StaxNavigator<String> nav = StaxNavigatorFactory.create(new Naming.Local(), new StringReader(DOCUMENT));
+      while (nav.next() != null)
+      {
+         // Read all
+      }
+      assertEquals(7, nav.getStats().getElementsRead());
+   }
+
+   public void testSkippedElements() throws Exception
+   {
+      StaxNavigatorFactory factory = new StaxNavigatorFactory();
+      StaxNavigator<String> nav = factory.createNavigator(new Naming.Local(), new StringReader(DOCUMENT));
+      assertEquals("a", nav.child());
+      int count = 0;
+      for (StaxNavigator<String> ignore : nav.forkStreaming("a"))
+      {
+         count++;
+      }
+      assertEquals(2, count);
+      assertEquals(2, nav.getStats().getForksCreated());
+      assertEquals(7, nav.getStats().getElementsRead());
+
+      // The descendants of the last fork are skipped
+      assertEquals(5, nav.getStats().getElementsMaterialized());
+   }
+
+   public void testTiming() throws Exception
+   {
+      StaxNavigatorFactory factory = StaxNavigatorFactory.builder().timing(true).build();
+      assertTrue(factory.getTiming());
+      StaxNavigator<String> nav = factory.createNavigator(new Naming.Local(), new StringReader(DOCUMENT));
+      while (nav.next() != null)
+      {
+         // Read all
+      }
+      assertTrue(nav.getStats().getStreamNanos() > 0);
+      assertTrue(nav.getStats().getNavigatorNanos() > 0);
+      assertEquals(nav.getStats().getStreamNanos(), factory.getStats().getStreamNanos());
+   }
+
+   public void testSnapshot() throws Exception
+   {
+      StaxNavigator<String> nav = navigator(new Naming.Local(), DOCUMENT);
+      NavigatorStats stats = nav.snapshot().navigator().getStats();
+      assertEquals(0, stats.getElementsRead());
+      assertEquals(0, stats.getForksCreated());
+   }
+
+   public void testMBean() throws Exception
+   {
+      StaxNavigatorFactory factory = new StaxNavigatorFactory();
+      MBeanServer server = MBeanServerFactory.newMBeanServer();
+      ObjectName name = new ObjectName("org.staxnav:type=NavigatorStats");
+      factory.registerMBean(server, name);
+      StaxNavigator<String> nav = factory.createNavigator(new Naming.Local(), new StringReader(DOCUMENT));
+      while (nav.next() != null)
+      {
+         // Read all
+      }
+      assertEquals(7L, server.getAttribute(name, "ElementsRead"));
+      assertEquals(3L, server.getAttribute(name, "ContentCharsCopied"));
+   }
+}
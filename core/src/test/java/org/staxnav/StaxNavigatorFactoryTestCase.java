@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.staxnav;
+
+import junit.framework.TestCase;
+
+import javax.xml.stream.XMLInputFactory;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public class StaxNavigatorFactoryTestCase extends TestCase
+{
+
+   public void testDefault() throws Exception
+   {
+      StaxNavigatorFactory factory = StaxNavigatorFactory.builder().build();
+      assertNotNull(factory.getInputFactory());
+      assertFalse(factory.getTrimContent());
+      StaxNavigator<String> nav = factory.createNavigator(new Naming.Local(), new StringReader("<foo> bar </foo>"));
+      assertEquals("foo", nav.getName());
+      assertFalse(nav.getTrimContent());
+      assertEquals(" bar ", nav.getContent());
+   }
+
+   public void testReuse() throws Exception
+   {
+      StaxNavigatorFactory factory = StaxNavigatorFactory.builder().build();
+      for (int i = 0;i < 3;i++)
+      {
+         StaxNavigator<String> nav = factory.createNavigator(new Naming.Local(), new StringReader("<foo><bar>" + i + "</bar></foo>"));
+         assertEquals("bar", nav.next());
+         assertEquals(i, nav.parseInt());
+      }
+   }
+
+   public void testTrimContent() throws Exception
+   {
+      StaxNavigatorFactory factory = StaxNavigatorFactory.builder().trimContent(true).build();
+      assertTrue(factory.getTrimContent());
+      StaxNavigator<String> nav = factory.createNavigator(new Naming.Local(), new StringReader("<foo> bar </foo>"));
+      assertTrue(nav.getTrimContent());
+      assertEquals("bar", nav.getContent());
+   }
+
+   public void testInputFactory() throws Exception
+   {
+      XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+      StaxNavigatorFactory factory = StaxNavigatorFactory.builder().inputFactory(inputFactory).coalescing(true).build();
+      assertSame(inputFactory, factory.getInputFactory());
+      assertEquals(Boolean.TRUE, inputFactory.getProperty(XMLInputFactory.IS_COALESCING));
+   }
+
+   public void testNamespaceAware() throws Exception
+   {
+      StaxNavigatorFactory factory = StaxNavigatorFactory.builder().namespaceAware(false).build();
+      assertEquals(Boolean.FALSE, factory.getInputFactory().getProperty(XMLInputFactory.IS_NAMESPACE_AWARE));
+   }
+
+   public void testSupportDTD() throws Exception
+   {
+      StaxNavigatorFactory factory = StaxNavigatorFactory.builder().supportDTD(false).build();
+      assertEquals(Boolean.FALSE, factory.getInputFactory().getProperty(XMLInputFactory.SUPPORT_DTD));
+   }
+
+   public void testNullArguments() throws Exception
+   {
+      StaxNavigatorFactory factory = StaxNavigatorFactory.builder().build();
+      try
+      {
+         factory.createNavigator(null, new StringReader("<foo/>"));
+         fail();
+      }
+      catch (NullPointerException ignore)
+      {
+      }
+      try
+      {
+         factory.createNavigator(new Naming.Local(), (StringReader)null);
+         fail();
+      }
+      catch (NullPointerException ignore)
+      {
+      }
+   }
+
+   private List<Path> createDocuments(int size) throws Exception
+   {
+      List<Path> paths = new ArrayList<Path>();
+      for (int i = 0;i < size;i++)
+      {
+         Path path = File.createTempFile("staxnav", ".xml").toPath();
+         path.toFile().deleteOnExit();
+         Files.write(path, ("<foo><bar>" + i + "</bar></foo>").getBytes("UTF-8"));
+         paths.add(path);
+      }
+      return paths;
+   }
+
+   public void testProcessAll() throws Exception
+   {
+      StaxNavigatorFactory factory = StaxNavigatorFactory.builder().build();
+      List<Path> paths = createDocuments(50);
+      List<Integer> results = factory.processAll(paths, new Naming.Local(), nav ->
+      {
+         assertEquals("bar", nav.child());
+         return nav.parseInt();
+      });
+      assertEquals(50, results.size());
+      for (int i = 0;i < 50;i++)
+      {
+         assertEquals(i, (int)results.get(i));
+      }
+   }
+
+   public void testProcessAllReuse() throws Exception
+   {
+      StaxNavigatorFactory factory = StaxNavigatorFactory.builder().build();
+      List<Path> paths = createDocuments(10);
+      StringBuilder large = new StringBuilder("<foo>");
+      while (large.length() <= StaxNavigatorFactory.BUFFERED_FILE_SIZE)
+      {
+         large.append("<bar>0</bar>");
+      }
+      Files.write(paths.get(5), large.append("</foo>").toString().getBytes("UTF-8"));
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try
+      {
+         List<StaxNavigator<String>> navigators = factory.processAll(paths, new Naming.Local(), nav ->
+         {
+            assertEquals("bar", nav.child());
+            return nav;
+         }, executor);
+         assertEquals(10, navigators.size());
+         for (StaxNavigator<String> navigator : navigators)
+         {
+            assertSame(navigators.get(0), navigator);
+         }
+      }
+      finally
+      {
+         executor.shutdown();
+      }
+   }
+
+   public void testProcessAllFailure() throws Exception
+   {
+      StaxNavigatorFactory factory = StaxNavigatorFactory.builder().build();
+      List<Path> paths = createDocuments(10);
+      Files.write(paths.get(5), "<foo><bar>".getBytes("UTF-8"));
+      ExecutorService executor = Executors.newFixedThreadPool(2);
+      try
+      {
+         factory.processAll(paths, new Naming.Local(), nav -> nav.descendant("juu"), executor);
+         fail();
+      }
+      catch (StaxNavException ignore)
+      {
+      }
+      finally
+      {
+         executor.shutdown();
+      }
+   }
+}
@@ -32,14 +32,30 @@ public class TheTestSuite
    public static Test suite()
    {
       TestSuite suite = new TestSuite();
+      suite.addTest(new TestSuite(AllocationTestCase.class));
+      suite.addTest(new TestSuite(AsyncNavigatorTestCase.class));
+      suite.addTest(new TestSuite(AttributeProjectionTestCase.class));
+      suite.addTest(new TestSuite(AttributesTestCase.class));
       suite.addTest(new TestSuite(ContentTestCase.class));
       suite.addTest(new TestSuite(EncodedNamingTestCase.class));
+      suite.addTest(new TestSuite(ForkParallelTestCase.class));
       suite.addTest(new TestSuite(GateInTestCase.class));
       suite.addTest(new TestSuite(LocalBrowseTestCase.class));
       suite.addTest(new TestSuite(MappedEnumeratedBrowseTestCase.class));
+      suite.addTest(new TestSuite(MappedInputStreamTestCase.class));
+      suite.addTest(new TestSuite(NameTableTestCase.class));
       suite.addTest(new TestSuite(NamespaceTestCase.class));
+      suite.addTest(new TestSuite(ParseContentTestCase.class));
+      suite.addTest(new TestSuite(PathExpressionTestCase.class));
       suite.addTest(new TestSuite(QualifiedBrowseTestCase.class));
+      suite.addTest(new TestSuite(RetentionTestCase.class));
+      suite.addTest(new TestSuite(ReusableNavigatorTestCase.class));
       suite.addTest(new TestSuite(SimpleEnumeratedBrowseTestCase.class));
+      suite.addTest(new TestSuite(SingleCursorTestCase.class));
+      suite.addTest(new TestSuite(SkipTestCase.class));
+      suite.addTest(new TestSuite(SnapshotTestCase.class));
+      suite.addTest(new TestSuite(StaxNavigatorFactoryTestCase.class));
+      suite.addTest(new TestSuite(StatsTestCase.class));
       return suite;
    }
 }
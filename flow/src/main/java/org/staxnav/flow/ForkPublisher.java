@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.staxnav.flow;
+
+import org.staxnav.Axis;
+import org.staxnav.Snapshot;
+import org.staxnav.StaxNavigator;
+
+import java.util.Iterator;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * <p>A publisher of the forks of a navigator built according to the same rules than
+ * {@link StaxNavigator#forkStreaming(Axis, Object)}. The navigator is moved to the next fork only when the
+ * subscriber demand allows it, so the document is parsed as far as the subscriber requested. Cancelling the
+ * subscription releases the navigator, the stream of the navigator is not closed by the publisher.</p>
+ *
+ * <p>The publisher accepts a single subscriber since the navigator is moved once. The signals are delivered on the
+ * thread requesting the forks, a fork published by {@link #forks(StaxNavigator, Axis, Object)} must be navigated
+ * before <code>onNext</code> returns since the navigator moves when the next fork is published, a subscriber
+ * processing the forks on another thread should subscribe to {@link #snapshots(StaxNavigator, Axis, Object)}.</p>
+ *
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ * @param <N> the name type
+ * @param <T> the published type
+ */
+public final class ForkPublisher<N, T> implements Flow.Publisher<T>
+{
+
+   /**
+    * Returns a publisher of the forks of the navigator.
+    *
+    * @param navigator the navigator
+    * @param axis the axis of navigation for the forks
+    * @param name the name of the root elements of the forks
+    * @param <N> the name type
+    * @return the publisher
+    * @throws NullPointerException if any argument is null
+    */
+   public static <N> Flow.Publisher<StaxNavigator<N>> forks(StaxNavigator<N> navigator, Axis axis, N name) throws NullPointerException
+   {
+      return new ForkPublisher<N, StaxNavigator<N>>(navigator, axis, name, Function.identity());
+   }
+
+   /**
+    * Returns a publisher of the snapshots of the forks of the navigator, the snapshots are detached from the
+    * navigator and can be used by any thread.
+    *
+    * @param navigator the navigator
+    * @param axis the axis of navigation for the forks
+    * @param name the name of the root elements of the forks
+    * @param <N> the name type
+    * @return the publisher
+    * @throws NullPointerException if any argument is null
+    */
+   public static <N> Flow.Publisher<Snapshot<N>> snapshots(StaxNavigator<N> navigator, Axis axis, N name) throws NullPointerException
+   {
+      return new ForkPublisher<N, Snapshot<N>>(navigator, axis, name, StaxNavigator::snapshot);
+   }
+
+   /** The forks, null once subscribed. */
+   private final AtomicReference<Iterable<StaxNavigator<N>>> forks;
+
+   /** . */
+   private final Function<StaxNavigator<N>, T> mapper;
+
+   private ForkPublisher(StaxNavigator<N> navigator, Axis axis, N name, Function<StaxNavigator<N>, T> mapper) throws NullPointerException
+   {
+      if (navigator == null)
+      {
+         throw new NullPointerException("No null navigator accepted");
+      }
+      if (axis == null)
+      {
+         throw new NullPointerException("No null axis accepted");
+      }
+      if (name == null)
+      {
+         throw new NullPointerException("No null name accepted");
+      }
+
+      //
+      this.forks = new AtomicReference<Iterable<StaxNavigator<N>>>(navigator.forkStreaming(axis, name));
+      this.mapper = mapper;
+   }
+
+   public void subscribe(Flow.Subscriber<? super T> subscriber)
+   {
+      if (subscriber == null)
+      {
+         throw new NullPointerException("No null subscriber accepted");
+      }
+      Iterable<StaxNavigator<N>> iterable = forks.getAndSet(null);
+      if (iterable == null)
+      {
+         ForkSubscription subscription = new ForkSubscription(null, null);
+         subscriber.onSubscribe(subscription);
+         subscriber.onError(new IllegalStateException("The publisher accepts a single subscriber"));
+      }
+      else
+      {
+         ForkSubscription subscription = new ForkSubscription(subscriber, iterable);
+         subscriber.onSubscribe(subscription);
+      }
+   }
+
+   private class ForkSubscription implements Flow.Subscription
+   {
+
+      /** . */
+      private final AtomicLong requested;
+
+      /** The number of pending drains, the thread that increments it from zero drains on behalf of the others. */
+      private final AtomicInteger pending;
+
+      /** . */
+      private volatile boolean cancelled;
+
+      /** . */
+      private volatile Throwable failure;
+
+      /** The subscriber, null once the subscription is terminated. */
+      private Flow.Subscriber<? super T> subscriber;
+
+      /** . */
+      private Iterable<StaxNavigator<N>> iterable;
+
+      /** . */
+      private Iterator<StaxNavigator<N>> iterator;
+
+      private ForkSubscription(Flow.Subscriber<? super T> subscriber, Iterable<StaxNavigator<N>> iterable)
+      {
+         this.requested = new AtomicLong();
+         this.pending = new AtomicInteger();
+         this.cancelled = false;
+         this.failure = null;
+         this.subscriber = subscriber;
+         this.iterable = iterable;
+         this.iterator = null;
+      }
+
+      public void request(long n)
+      {
+         if (n <= 0)
+         {
+            failure = new IllegalArgumentException("The number of requested forks must be positive instead of " + n);
+         }
+         else
+         {
+            long current;
+            do
+            {
+               current = requested.get();
+            }
+            while (!requested.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+         }
+         drain();
+      }
+
+      public void cancel()
+      {
+         cancelled = true;
+         drain();
+      }
+
+      private void drain()
+      {
+         if (pending.getAndIncrement() != 0)
+         {
+            return;
+         }
+         int missed = 1;
+         do
+         {
+            try
+            {
+               emit();
+            }
+            catch (RuntimeException | Error e)
+            {
+               // A subscriber throwing from a signal cancels its subscription (rule 2.13), the failure is raised to
+               // the caller and the subscription does not remain in the draining state
+               cancelled = true;
+               release();
+               pending.set(0);
+               throw e;
+            }
+            missed = pending.addAndGet(-missed);
+         }
+         while (missed != 0);
+      }
+
+      private void emit()
+      {
+         long emitted = 0;
+         long demand = requested.get();
+         while (subscriber != null)
+         {
+            if (cancelled)
+            {
+               release();
+            }
+            else if (failure != null)
+            {
+               Flow.Subscriber<? super T> s = release();
+               s.onError(failure);
+            }
+            else
+            {
+               if (emitted == demand)
+               {
+                  if (demand != Long.MAX_VALUE)
+                  {
+                     demand = requested.addAndGet(-emitted);
+                     emitted = 0;
+                  }
+                  if (demand == 0)
+                  {
+                     return;
+                  }
+               }
+               T next;
+               try
+               {
+                  if (iterator == null)
+                  {
+                     iterator = iterable.iterator();
+                  }
+                  next = iterator.hasNext() ? mapper.apply(iterator.next()) : null;
+               }
+               catch (RuntimeException e)
+               {
+                  Flow.Subscriber<? super T> s = release();
+                  s.onError(e);
+                  return;
+               }
+               if (next == null)
+               {
+                  Flow.Subscriber<? super T> s = release();
+                  s.onComplete();
+               }
+               else
+               {
+                  emitted++;
+                  subscriber.onNext(next);
+               }
+            }
+         }
+      }
+
+      /**
+       * Terminates the subscription and releases the navigator.
+       *
+       * @return the subscriber to signal
+       */
+      private Flow.Subscriber<? super T> release()
+      {
+         Flow.Subscriber<? super T> s = subscriber;
+         subscriber = null;
+         iterable = null;
+         iterator = null;
+         return s;
+      }
+   }
+}
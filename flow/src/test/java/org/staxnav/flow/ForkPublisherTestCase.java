@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.staxnav.flow;
+
+import junit.framework.TestCase;
+import org.staxnav.Axis;
+import org.staxnav.Naming;
+import org.staxnav.Snapshot;
+import org.staxnav.StaxNavigator;
+import org.staxnav.StaxNavigatorFactory;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+/**
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public class ForkPublisherTestCase extends TestCase
+{
+
+   /** . */
+   private static final String DOCUMENT =
+      "<root>" +
+         "<item>a</item>" +
+         "<other/>" +
+         "<item>b</item>" +
+         "<item>c</item>" +
+      "</root>";
+
+   private static class Recorder<T> implements Flow.Subscriber<T>
+   {
+
+      /** . */
+      Flow.Subscription subscription;
+
+      /** . */
+      private final List<T> items = new ArrayList<T>();
+
+      /** . */
+      private Throwable failure;
+
+      /** . */
+      private boolean completed;
+
+      public void onSubscribe(Flow.Subscription subscription)
+      {
+         this.subscription = subscription;
+      }
+
+      public void onNext(T item)
+      {
+         items.add(item);
+      }
+
+      public void onError(Throwable throwable)
+      {
+         failure = throwable;
+      }
+
+      public void onComplete()
+      {
+         completed = true;
+      }
+   }
+
+   private StaxNavigator<String> navigator()
+   {
+      StaxNavigator<String> nav = StaxNavigatorFactory.create(new Naming.Local(), new StringReader(DOCUMENT));
+      assertEquals("item", nav.child());
+      return nav;
+   }
+
+   public void testDemand() throws Exception
+   {
+      StaxNavigator<String> nav = navigator();
+      Recorder<StaxNavigator<String>> recorder = new Recorder<StaxNavigator<String>>()
+      {
+         @Override
+         public void onNext(StaxNavigator<String> item)
+         {
+            super.onNext(item);
+            assertEquals("item", item.getName());
+         }
+      };
+      ForkPublisher.forks(nav, Axis.FOLLOWING_SIBLING, "item").subscribe(recorder);
+      assertEquals(2, nav.getStats().getElementsRead());
+      recorder.subscription.request(1);
+      assertEquals(1, recorder.items.size());
+      assertEquals(2, nav.getStats().getElementsRead());
+      recorder.subscription.request(1);
+      assertEquals(2, recorder.items.size());
+      assertEquals(4, nav.getStats().getElementsRead());
+      assertFalse(recorder.completed);
+      recorder.subscription.request(2);
+      assertEquals(3, recorder.items.size());
+      assertTrue(recorder.completed);
+      assertNull(recorder.failure);
+   }
+
+   public void testSnapshots() throws Exception
+   {
+      Recorder<Snapshot<String>> recorder = new Recorder<Snapshot<String>>();
+      ForkPublisher.snapshots(navigator(), Axis.FOLLOWING_SIBLING, "item").subscribe(recorder);
+      recorder.subscription.request(Long.MAX_VALUE);
+      assertTrue(recorder.completed);
+      List<String> contents = new ArrayList<String>();
+      for (Snapshot<String> snapshot : recorder.items)
+      {
+         contents.add(snapshot.navigator().getContent());
+      }
+      assertEquals(Arrays.asList("a", "b", "c"), contents);
+   }
+
+   public void testRequestFromOnNext() throws Exception
+   {
+      Recorder<StaxNavigator<String>> recorder = new Recorder<StaxNavigator<String>>()
+      {
+         @Override
+         public void onNext(StaxNavigator<String> item)
+         {
+            super.onNext(item);
+            subscription.request(1);
+         }
+      };
+      ForkPublisher.forks(navigator(), Axis.FOLLOWING_SIBLING, "item").subscribe(recorder);
+      recorder.subscription.request(1);
+      assertEquals(3, recorder.items.size());
+      assertTrue(recorder.completed);
+   }
+
+   public void testCancel() throws Exception
+   {
+      StaxNavigator<String> nav = navigator();
+      Recorder<StaxNavigator<String>> recorder = new Recorder<StaxNavigator<String>>();
+      ForkPublisher.forks(nav, Axis.FOLLOWING_SIBLING, "item").subscribe(recorder);
+      recorder.subscription.request(1);
+      recorder.subscription.cancel();
+      recorder.subscription.request(5);
+      assertEquals(1, recorder.items.size());
+      assertFalse(recorder.completed);
+      assertNull(recorder.failure);
+      assertEquals(2, nav.getStats().getElementsRead());
+   }
+
+   public void testFailingSubscriber() throws Exception
+   {
+      StaxNavigator<String> nav = navigator();
+      final RuntimeException failure = new RuntimeException();
+      Recorder<StaxNavigator<String>> recorder = new Recorder<StaxNavigator<String>>()
+      {
+         @Override
+         public void onNext(StaxNavigator<String> item)
+         {
+            super.onNext(item);
+            throw failure;
+         }
+      };
+      ForkPublisher.forks(nav, Axis.FOLLOWING_SIBLING, "item").subscribe(recorder);
+      try
+      {
+         recorder.subscription.request(2);
+         fail();
+      }
+      catch (RuntimeException e)
+      {
+         assertSame(failure, e);
+      }
+
+      // The subscription is cancelled
+      recorder.subscription.request(2);
+      assertEquals(1, recorder.items.size());
+      assertFalse(recorder.completed);
+      assertNull(recorder.failure);
+      assertEquals(2, nav.getStats().getElementsRead());
+   }
+
+   public void testInvalidRequest() throws Exception
+   {
+      Recorder<StaxNavigator<String>> recorder = new Recorder<StaxNavigator<String>>();
+      ForkPublisher.forks(navigator(), Axis.FOLLOWING_SIBLING, "item").subscribe(recorder);
+      recorder.subscription.request(0);
+      assertTrue(recorder.failure instanceof IllegalArgumentException);
+      assertEquals(0, recorder.items.size());
+   }
+
+   public void testSingleSubscriber() throws Exception
+   {
+      Flow.Publisher<StaxNavigator<String>> publisher = ForkPublisher.forks(navigator(), Axis.FOLLOWING_SIBLING, "item");
+      publisher.subscribe(new Recorder<StaxNavigator<String>>());
+      Recorder<StaxNavigator<String>> recorder = new Recorder<StaxNavigator<String>>();
+      publisher.subscribe(recorder);
+      assertNotNull(recorder.subscription);
+      assertTrue(recorder.failure instanceof IllegalStateException);
+   }
+}
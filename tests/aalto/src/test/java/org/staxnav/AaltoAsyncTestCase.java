@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2010 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.staxnav;
+
+import com.fasterxml.aalto.AsyncByteArrayFeeder;
+import com.fasterxml.aalto.AsyncXMLStreamReader;
+import com.fasterxml.aalto.stax.InputFactoryImpl;
+import junit.framework.TestCase;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
+ * @version $Revision$
+ */
+public class AaltoAsyncTestCase extends TestCase
+{
+
+   /** . */
+   private static final String DOCUMENT =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+      "<root>" +
+         "<a foo=\"bar\">foo<a1>bar &amp; juu</a1><a2/></a>" +
+         "<b><b1>\u00e9t\u00e9</b1></b>" +
+         "<a><a3/>daa<a4><![CDATA[<a5/>]]></a4></a>" +
+      "</root>";
+
+   private AsyncStaxNavigator<String> asyncNavigator()
+   {
+      final AsyncXMLStreamReader<AsyncByteArrayFeeder> stream = new InputFactoryImpl().createAsyncForByteArray();
+      return StaxNavigatorFactory.builder().build().createAsyncNavigator(new Naming.Local(), stream, new InputFeeder()
+      {
+         public void feed(byte[] bytes, int offset, int length) throws XMLStreamException
+         {
+            stream.getInputFeeder().feedInput(bytes, offset, length);
+         }
+
+         public void endOfInput()
+         {
+            stream.getInputFeeder().endOfInput();
+         }
+      });
+   }
+
+   private List<String> expected() throws Exception
+   {
+      List<String> expected = new ArrayList<String>();
+      StaxNavigator<String> nav = StaxNavigatorFactory.create(new Naming.Local(), new StringReader(DOCUMENT));
+      do
+      {
+         expected.add(nav.getName() + "=" + nav.getContent());
+      }
+      while (nav.next() != null);
+      return expected;
+   }
+
+   public void testChunks() throws Exception
+   {
+      byte[] bytes = DOCUMENT.getBytes(StandardCharsets.UTF_8);
+      List<String> expected = expected();
+      Random random = new Random(0);
+      for (int i = 0;i < 50;i++)
+      {
+         AsyncStaxNavigator<String> nav = asyncNavigator();
+         int[] offset = {0};
+         AsyncStaxNavigator.Status status = execute(nav, bytes, offset, random, n -> n.navigate(Axis.SELF));
+         assertEquals(AsyncStaxNavigator.Status.FOUND, status);
+         List<String> names = new ArrayList<String>();
+         do
+         {
+            assertEquals(AsyncStaxNavigator.Status.FOUND, execute(nav, bytes, offset, random, AsyncStaxNavigator::readContent));
+            names.add(nav.getNavigator().getName() + "=" + nav.getNavigator().getContent());
+         }
+         while (execute(nav, bytes, offset, random, AsyncStaxNavigator::next) == AsyncStaxNavigator.Status.FOUND);
+         assertEquals(expected, names);
+      }
+   }
+
+   private AsyncStaxNavigator.Status execute(AsyncStaxNavigator<String> nav, byte[] bytes, int[] offset, Random random, Operation operation)
+   {
+      while (true)
+      {
+         AsyncStaxNavigator.Status status = operation.execute(nav);
+         if (status != AsyncStaxNavigator.Status.NEED_INPUT)
+         {
+            return status;
+         }
+         if (offset[0] < bytes.length)
+         {
+            int length = Math.min(1 + random.nextInt(8), bytes.length - offset[0]);
+            nav.feed(bytes, offset[0], length);
+            offset[0] += length;
+         }
+         else
+         {
+            nav.endOfInput();
+         }
+      }
+   }
+
+   private interface Operation
+   {
+      AsyncStaxNavigator.Status execute(AsyncStaxNavigator<String> nav);
+   }
+}